@@ -0,0 +1,47 @@
+package com.imagecloud.allinone;
+
+import com.imagecloud.conversion.config.PixelPipelineConfig;
+import com.imagecloud.conversion.metrics.ConversionMetrics;
+import com.imagecloud.conversion.service.ConversionSingleFlight;
+import com.imagecloud.conversion.service.ConversionWorker;
+import com.imagecloud.conversion.service.ImageConversionService;
+import com.imagecloud.conversion.service.PreviewRenderer;
+import com.imagecloud.main.MainServiceApplication;
+import com.imagecloud.main.model.Image;
+import com.imagecloud.main.repository.ImageRepository;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * main-service with the conversion engine in the same JVM. Uploads are handed to the converter through
+ * main-service's in-process bus instead of RabbitMQ, so image bytes are never serialised or copied.
+ *
+ * Only the conversion engine is imported from conversion-service; its RabbitMQ listener, warm-up and
+ * autoscaling estimator stay out.
+ */
+@SpringBootApplication(
+        scanBasePackageClasses = {MainServiceApplication.class, AllInOneApplication.class},
+        exclude = RabbitAutoConfiguration.class)
+@EnableJpaRepositories(basePackageClasses = ImageRepository.class)
+@EntityScan(basePackageClasses = Image.class)
+@EnableScheduling
+@Import({
+        ConversionMetrics.class,
+        PixelPipelineConfig.class,
+        ImageConversionService.class,
+        ConversionSingleFlight.class,
+        PreviewRenderer.class,
+        ConversionWorker.class
+})
+public class AllInOneApplication {
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(AllInOneApplication.class);
+        application.setAdditionalProfiles("all-in-one");
+        application.run(args);
+    }
+}
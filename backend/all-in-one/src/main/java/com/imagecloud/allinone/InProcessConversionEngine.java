@@ -0,0 +1,50 @@
+package com.imagecloud.allinone;
+
+import com.imagecloud.conversion.service.ConversionWorker;
+import com.imagecloud.main.dto.ConversionPreview;
+import com.imagecloud.main.dto.ConversionRequest;
+import com.imagecloud.main.dto.ConversionResponse;
+import com.imagecloud.main.messaging.ConversionEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Adapts conversion-service's worker to main-service's in-process bus. The two services keep their own
+ * copies of the DTOs; only references are moved between them, the image bytes are shared as they are.
+ */
+@Component
+@RequiredArgsConstructor
+public class InProcessConversionEngine implements ConversionEngine {
+
+    private final ConversionWorker conversionWorker;
+
+    @Override
+    public ConversionResponse convert(ConversionRequest request, long dequeuedAt,
+                                      Consumer<ConversionPreview> previews) {
+        com.imagecloud.conversion.dto.ConversionRequest conversionRequest =
+                new com.imagecloud.conversion.dto.ConversionRequest(
+                        request.getImageId(),
+                        request.getImageData(),
+                        request.getOriginalFormat(),
+                        request.getTargetFormat(),
+                        request.getDeadline(),
+                        request.getSourceHash());
+
+        com.imagecloud.conversion.dto.ConversionResponse result =
+                conversionWorker.process(conversionRequest, dequeuedAt, preview -> previews.accept(
+                        new ConversionPreview(
+                                preview.getImageId(),
+                                preview.getPreviewData(),
+                                preview.getWidth(),
+                                preview.getHeight()))).response();
+
+        return new ConversionResponse(
+                result.getImageId(),
+                result.getConvertedImageData(),
+                result.isSuccess(),
+                result.getErrorMessage(),
+                result.isExpired());
+    }
+}
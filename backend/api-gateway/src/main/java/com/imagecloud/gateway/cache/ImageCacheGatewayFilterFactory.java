@@ -0,0 +1,210 @@
+package com.imagecloud.gateway.cache;
+
+import com.imagecloud.gateway.cache.ImageResponseCache.CachedImage;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves converted image downloads from {@link ImageResponseCache} and fills it on a miss.
+ *
+ * A hit is only served to the user the backend authorised when the entry was stored; anyone else is passed
+ * through so main-service makes the ownership decision. Concurrent misses for the same image wait for the
+ * first request's body to land on disk instead of each hitting main-service.
+ *
+ * Runs just before {@link NettyWriteResponseFilter} so the response decorator sees the proxied body.
+ */
+@Component
+public class ImageCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<Object> {
+
+    private static final Pattern DOWNLOAD_PATH = Pattern.compile("^/api/images/(\\d+)/download$");
+    private static final String USER_HEADER = "X-User-Id";
+    private static final String CACHE_HEADER = "X-Cache";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final ImageResponseCache cache;
+
+    public ImageCacheGatewayFilterFactory(ImageResponseCache cache) {
+        super(Object.class);
+        this.cache = cache;
+    }
+
+    @Override
+    public GatewayFilter apply(Object config) {
+        return new OrderedGatewayFilter(this::filter, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        Matcher matcher = DOWNLOAD_PATH.matcher(request.getPath().value());
+        String userId = request.getHeaders().getFirst(USER_HEADER);
+        if (request.getMethod() != HttpMethod.GET || userId == null || !matcher.matches()) {
+            return chain.filter(exchange);
+        }
+        String imageId = matcher.group(1);
+
+        CachedImage cached = cache.get(imageId);
+        if (cached != null) {
+            if (!cached.ownerId().equals(userId)) {
+                cache.countBypass();
+                return chain.filter(exchange);
+            }
+            cache.countHit();
+            return serve(exchange, chain, cached, "HIT");
+        }
+
+        CompletableFuture<CachedImage> flight = new CompletableFuture<>();
+        CompletableFuture<CachedImage> running = cache.joinOrLead(imageId, flight);
+        if (running != null) {
+            cache.countCoalesced();
+            return Mono.fromFuture(running)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(entry -> entry.isPresent() && entry.get().ownerId().equals(userId)
+                            ? serve(exchange, chain, entry.get(), "COALESCED")
+                            : chain.filter(exchange));
+        }
+
+        cache.countMiss();
+        CapturingResponse response = new CapturingResponse(exchange.getResponse(), imageId, userId, flight);
+        return chain.filter(exchange.mutate().response(response).build())
+                .doFinally(signal -> response.finish(null));
+    }
+
+    private Mono<Void> serve(ServerWebExchange exchange, GatewayFilterChain chain, CachedImage entry, String result) {
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = response.getHeaders();
+        headers.setETag(entry.etag());
+        if (entry.cacheControl() != null) {
+            headers.setCacheControl(entry.cacheControl());
+        }
+        headers.set(CACHE_HEADER, result);
+
+        if (exchange.getRequest().getHeaders().getIfNoneMatch().contains(entry.etag())) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+
+        // Open eagerly: once the channel is held, a concurrent eviction cannot pull the file away mid-stream
+        AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(entry.file(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            cache.invalidate(entry);
+            headers.remove(CACHE_HEADER);
+            return chain.filter(exchange);
+        }
+
+        response.setStatusCode(HttpStatus.OK);
+        headers.setContentType(entry.contentType() != null
+                ? MediaType.parseMediaType(entry.contentType())
+                : MediaType.APPLICATION_OCTET_STREAM);
+        if (entry.contentDisposition() != null) {
+            headers.set(HttpHeaders.CONTENT_DISPOSITION, entry.contentDisposition());
+        }
+        headers.setContentLength(entry.size());
+        return response.writeWith(DataBufferUtils.readAsynchronousFileChannel(
+                () -> channel, response.bufferFactory(), READ_BUFFER_SIZE));
+    }
+
+    /**
+     * Tees a successful, cacheable backend body to a temp file while it streams to the client.
+     */
+    private class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final String imageId;
+        private final String userId;
+        private final CompletableFuture<CachedImage> flight;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        CapturingResponse(ServerHttpResponse delegate, String imageId, String userId,
+                          CompletableFuture<CachedImage> flight) {
+            super(delegate);
+            this.imageId = imageId;
+            this.userId = userId;
+            this.flight = flight;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            String etag = headers.getETag();
+            if (getStatusCode() != HttpStatus.OK || etag == null || !cache.cacheable(headers.getContentLength())) {
+                finish(null);
+                return super.writeWith(body);
+            }
+
+            Path tempFile;
+            AsynchronousFileChannel channel;
+            try {
+                tempFile = cache.createTempFile(imageId);
+                channel = AsynchronousFileChannel.open(tempFile, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                finish(null);
+                return super.writeWith(body);
+            }
+
+            String contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+            String contentDisposition = headers.getFirst(HttpHeaders.CONTENT_DISPOSITION);
+            String cacheControl = headers.getCacheControl();
+            AtomicLong written = new AtomicLong();
+            Flux<DataBuffer> teed = DataBufferUtils.write(Flux.<DataBuffer>from(body), channel)
+                    .doOnNext(buffer -> written.addAndGet(buffer.readableByteCount()))
+                    .doOnComplete(() -> {
+                        close(channel);
+                        finish(cache.commit(imageId, etag, userId, contentType, contentDisposition, cacheControl,
+                                tempFile, written.get()));
+                    })
+                    .doOnError(e -> abandon(channel, tempFile))
+                    .doOnCancel(() -> abandon(channel, tempFile));
+            return super.writeWith(teed);
+        }
+
+        void finish(CachedImage entry) {
+            if (finished.compareAndSet(false, true)) {
+                cache.finish(imageId, flight, entry);
+            }
+        }
+
+        private void abandon(AsynchronousFileChannel channel, Path tempFile) {
+            close(channel);
+            cache.discard(tempFile);
+            finish(null);
+        }
+
+        private void close(AsynchronousFileChannel channel) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Nothing left to flush for an abandoned or completed temp file
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.imagecloud.gateway.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Bounded, disk-backed LRU cache of converted image downloads.
+ *
+ * Bodies live in files under {@code gateway.image-cache.directory}; only a small index entry per image stays
+ * on the heap. Entries are keyed by image ID and carry the backend's content-hash ETag, which is also part of
+ * the file name. Completed conversions are immutable, so entries are never revalidated, only evicted.
+ *
+ * Also tracks in-flight backend fetches so concurrent misses for the same image share a single request.
+ */
+@Component
+public class ImageResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageResponseCache.class);
+
+    public record CachedImage(String imageId, String etag, String ownerId, String contentType,
+                              String contentDisposition, String cacheControl, Path file, long size) {
+    }
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // Access-ordered, guarded by this
+    private final LinkedHashMap<String, CachedImage> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final Map<String, CompletableFuture<CachedImage>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter bypassed;
+    private final Counter evictions;
+
+    public ImageResponseCache(@Value("${gateway.image-cache.directory:${java.io.tmpdir}/imagecloud-gateway-cache}") String directory,
+                              @Value("${gateway.image-cache.max-bytes:536870912}") long maxBytes,
+                              @Value("${gateway.image-cache.max-entry-bytes:20971520}") long maxEntryBytes,
+                              MeterRegistry meterRegistry) {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        resetDirectory();
+
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+        this.coalesced = requestCounter(meterRegistry, "coalesced");
+        this.bypassed = requestCounter(meterRegistry, "bypass");
+        this.evictions = Counter.builder("imagecloud.gateway.image_cache.evictions.total")
+                .description("Entries evicted from the gateway image cache")
+                .register(meterRegistry);
+        Gauge.builder("imagecloud.gateway.image_cache.bytes", this, ImageResponseCache::totalBytes)
+                .baseUnit("bytes")
+                .description("Bytes held on disk by the gateway image cache")
+                .register(meterRegistry);
+    }
+
+    public synchronized CachedImage get(String imageId) {
+        return index.get(imageId);
+    }
+
+    /**
+     * Registers {@code flight} as the fetch for this image unless one is already running.
+     *
+     * @return the running fetch to wait on, or null if the caller is now the leader and must fetch
+     */
+    public CompletableFuture<CachedImage> joinOrLead(String imageId, CompletableFuture<CachedImage> flight) {
+        return inFlight.putIfAbsent(imageId, flight);
+    }
+
+    /**
+     * Ends a fetch started with {@link #joinOrLead}. A null entry tells waiters to go to the backend themselves.
+     */
+    public void finish(String imageId, CompletableFuture<CachedImage> flight, CachedImage entry) {
+        inFlight.remove(imageId, flight);
+        flight.complete(entry);
+    }
+
+    public boolean cacheable(long contentLength) {
+        return contentLength >= 0 && contentLength <= maxEntryBytes;
+    }
+
+    public Path createTempFile(String imageId) throws IOException {
+        return Files.createTempFile(directory, imageId + "-", ".part");
+    }
+
+    /**
+     * Moves a fully written temp file into the cache and evicts least recently used entries over budget.
+     */
+    public CachedImage commit(String imageId, String etag, String ownerId, String contentType,
+                              String contentDisposition, String cacheControl, Path tempFile, long size) {
+        Path target = directory.resolve(imageId + "-" + etag.replaceAll("[^A-Za-z0-9]", "") + ".bin");
+        try {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not store cached image {}: {}", imageId, e.getMessage());
+            discard(tempFile);
+            return null;
+        }
+
+        CachedImage entry = new CachedImage(imageId, etag, ownerId, contentType, contentDisposition, cacheControl,
+                target, size);
+        List<CachedImage> evicted = new ArrayList<>();
+        synchronized (this) {
+            CachedImage previous = index.put(imageId, entry);
+            if (previous != null) {
+                totalBytes -= previous.size();
+                if (!previous.file().equals(target)) {
+                    evicted.add(previous);
+                }
+            }
+            totalBytes += size;
+            Iterator<CachedImage> eldest = index.values().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                CachedImage candidate = eldest.next();
+                if (candidate == entry) {
+                    continue;
+                }
+                eldest.remove();
+                totalBytes -= candidate.size();
+                evicted.add(candidate);
+            }
+        }
+        // Readers hold an open channel, so deleting a file that is still being streamed is safe
+        evicted.forEach(old -> discard(old.file()));
+        evictions.increment(evicted.size());
+        return entry;
+    }
+
+    public synchronized void invalidate(CachedImage entry) {
+        if (index.remove(entry.imageId(), entry)) {
+            totalBytes -= entry.size();
+        }
+        discard(entry.file());
+    }
+
+    public void discard(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Could not delete cache file {}: {}", file, e.getMessage());
+        }
+    }
+
+    public void countHit() {
+        hits.increment();
+    }
+
+    public void countMiss() {
+        misses.increment();
+    }
+
+    public void countCoalesced() {
+        coalesced.increment();
+    }
+
+    public void countBypass() {
+        bypassed.increment();
+    }
+
+    private synchronized double totalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * The index is not persisted, so files left by a previous run are unreachable and removed.
+     */
+    private void resetDirectory() {
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(this::discard);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot initialise image cache directory " + directory, e);
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("imagecloud.gateway.image_cache.requests.total")
+                .tag("result", result)
+                .description("Image download requests by cache result")
+                .register(meterRegistry);
+    }
+}
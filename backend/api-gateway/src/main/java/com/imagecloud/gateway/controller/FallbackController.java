@@ -31,4 +31,12 @@ public class FallbackController {
         response.put("status", "SERVICE_UNAVAILABLE");
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
     }
+    
+    @RequestMapping("/images")
+    public ResponseEntity<Map<String, String>> imagesFallback() {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Image service is temporarily unavailable. Please try again later.");
+        response.put("status", "SERVICE_UNAVAILABLE");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+    }
 }
@@ -0,0 +1,70 @@
+package com.imagecloud.gateway.loadbalancer;
+
+import com.imagecloud.gateway.loadbalancer.InstanceLoadTracker.InstanceLoad;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+
+/**
+ * Charges each {@code lb://} request to the instance the load balancer picked, until the exchange completes.
+ *
+ * The request's Content-Length is charged up front. The response's is added once the backend's headers
+ * are in, so a large download keeps its instance looking busy while it streams. Chunked bodies of unknown
+ * length count as a request but add no bytes.
+ */
+@Component
+public class InstanceLoadFilter implements GlobalFilter, Ordered {
+
+    private final InstanceLoadTracker tracker;
+
+    public InstanceLoadFilter(InstanceLoadTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Response<ServiceInstance> chosen = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (chosen == null || !chosen.hasServer()) {
+            return chain.filter(exchange);
+        }
+
+        InstanceLoad load = tracker.get(chosen.getServer());
+        long requestBytes = Math.max(0, exchange.getRequest().getHeaders().getContentLength());
+        // Bytes charged so far for this exchange; -1 once released, so a late commit cannot charge again
+        AtomicLong held = new AtomicLong(requestBytes);
+        load.start(requestBytes);
+
+        exchange.getResponse().beforeCommit(() -> {
+            long responseBytes = exchange.getResponse().getHeaders().getContentLength();
+            if (responseBytes > 0) {
+                long current;
+                do {
+                    current = held.get();
+                    if (current < 0) {
+                        return Mono.empty();
+                    }
+                } while (!held.compareAndSet(current, current + responseBytes));
+                load.addBytes(responseBytes);
+            }
+            return Mono.empty();
+        });
+
+        return chain.filter(exchange)
+                .doFinally(signal -> load.finish(held.getAndSet(-1)));
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1;
+    }
+}
@@ -0,0 +1,87 @@
+package com.imagecloud.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Requests and bytes this gateway currently has outstanding against each backend instance.
+ *
+ * Counters are plain atomics, one pair per instance. The map is only written the first time an instance is
+ * seen, so the per-request path is a lookup and two atomic adds. Gauges are registered at the same moment;
+ * cardinality is bounded by the number of instances ever routed to.
+ */
+@Component
+public class InstanceLoadTracker {
+
+    public static final class InstanceLoad {
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        public long requests() {
+            return requests.get();
+        }
+
+        public long bytes() {
+            return bytes.get();
+        }
+
+        public void start(long requestBytes) {
+            requests.incrementAndGet();
+            bytes.addAndGet(requestBytes);
+        }
+
+        public void addBytes(long amount) {
+            bytes.addAndGet(amount);
+        }
+
+        public void finish(long heldBytes) {
+            requests.decrementAndGet();
+            bytes.addAndGet(-heldBytes);
+        }
+    }
+
+    private final ConcurrentMap<String, InstanceLoad> loads = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public InstanceLoadTracker(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public InstanceLoad get(ServiceInstance instance) {
+        String key = key(instance);
+        InstanceLoad load = loads.get(key);
+        if (load != null) {
+            return load;
+        }
+        InstanceLoad created = new InstanceLoad();
+        load = loads.putIfAbsent(key, created);
+        if (load != null) {
+            return load;
+        }
+        String service = instance.getServiceId() != null ? instance.getServiceId().toLowerCase() : "unknown";
+        String address = instance.getHost() + ":" + instance.getPort();
+        Gauge.builder("imagecloud.gateway.lb.in_flight.requests", created, InstanceLoad::requests)
+                .tag("service", service)
+                .tag("instance", address)
+                .description("Requests the gateway has outstanding against a backend instance")
+                .register(meterRegistry);
+        Gauge.builder("imagecloud.gateway.lb.in_flight.bytes", created, InstanceLoad::bytes)
+                .tag("service", service)
+                .tag("instance", address)
+                .baseUnit("bytes")
+                .description("Request and response body bytes still outstanding against a backend instance")
+                .register(meterRegistry);
+        return created;
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + "/" + instance.getHost() + ":" + instance.getPort();
+    }
+}
@@ -0,0 +1,103 @@
+package com.imagecloud.gateway.loadbalancer;
+
+import com.imagecloud.gateway.loadbalancer.InstanceLoadTracker.InstanceLoad;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power-of-two-choices over outstanding work: two distinct instances are drawn at random and the one with
+ * the lower score wins.
+ *
+ *   score = in-flight requests + in-flight bytes / bytesPerRequest + reportedLoadWeight * reported load
+ *
+ * Round robin treats a 40 MB upload and a status poll as equal, so it stacks heavy requests on whichever
+ * instance their turn lands on. Comparing two random candidates instead of scanning for the global minimum
+ * keeps gateways that each see only their own traffic from all herding onto the same idle instance.
+ *
+ * The reported load is read from the instance metadata key {@code reportedLoadKey} (a number, e.g. set
+ * through {@code eureka.instance.metadata-map}) and ignored when the key is absent or not numeric.
+ */
+public class LeastOutstandingLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(LeastOutstandingLoadBalancer.class);
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final String serviceId;
+    private final InstanceLoadTracker tracker;
+    private final long bytesPerRequest;
+    private final String reportedLoadKey;
+    private final double reportedLoadWeight;
+
+    public LeastOutstandingLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                                        String serviceId, InstanceLoadTracker tracker, long bytesPerRequest,
+                                        String reportedLoadKey, double reportedLoadWeight) {
+        this.supplierProvider = supplierProvider;
+        this.serviceId = serviceId;
+        this.tracker = tracker;
+        this.bytesPerRequest = Math.max(1, bytesPerRequest);
+        this.reportedLoadKey = reportedLoadKey;
+        this.reportedLoadWeight = reportedLoadWeight;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::choose);
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        int size = instances.size();
+        if (size == 0) {
+            log.warn("No servers available for service: {}", serviceId);
+            return new EmptyResponse();
+        }
+        if (size == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        // Second draw skips the first index, so the two candidates are always distinct
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return new DefaultResponse(score(b) < score(a) ? b : a);
+    }
+
+    private double score(ServiceInstance instance) {
+        InstanceLoad load = tracker.get(instance);
+        double score = load.requests() + (double) load.bytes() / bytesPerRequest;
+        if (reportedLoadWeight > 0) {
+            score += reportedLoadWeight * reportedLoad(instance);
+        }
+        return score;
+    }
+
+    private double reportedLoad(ServiceInstance instance) {
+        String value = instance.getMetadata() != null ? instance.getMetadata().get(reportedLoadKey) : null;
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
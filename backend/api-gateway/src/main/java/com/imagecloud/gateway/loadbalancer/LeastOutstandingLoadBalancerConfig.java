@@ -0,0 +1,31 @@
+package com.imagecloud.gateway.loadbalancer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Per-client load balancer configuration, instantiated in each service's child context through
+ * {@code @LoadBalancerClients(defaultConfiguration = ...)}. Deliberately not a {@code @Configuration}, so
+ * component scanning does not also register it in the main context.
+ */
+public class LeastOutstandingLoadBalancerConfig {
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory clientFactory,
+            InstanceLoadTracker tracker,
+            @Value("${gateway.loadbalancer.bytes-per-request:1048576}") long bytesPerRequest,
+            @Value("${gateway.loadbalancer.reported-load.key:load}") String reportedLoadKey,
+            @Value("${gateway.loadbalancer.reported-load.weight:0}") double reportedLoadWeight) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new LeastOutstandingLoadBalancer(
+                clientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId, tracker, bytesPerRequest, reportedLoadKey, reportedLoadWeight);
+    }
+}
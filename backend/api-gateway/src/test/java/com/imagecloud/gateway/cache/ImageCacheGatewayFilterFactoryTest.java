@@ -0,0 +1,110 @@
+package com.imagecloud.gateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageCacheGatewayFilterFactoryTest {
+
+    private static final String OWNER = "42";
+    private static final String ETAG = "\"abc123\"";
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger backendCalls = new AtomicInteger();
+    private final GatewayFilterChain backend = exchange -> {
+        backendCalls.incrementAndGet();
+        return Mono.empty();
+    };
+
+    private ImageResponseCache cache;
+    private GatewayFilter filter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cache = new ImageResponseCache(directory.toString(), 1_000_000, 1_000_000, registry);
+        filter = new ImageCacheGatewayFilterFactory(cache).apply(new Object());
+
+        Path temp = cache.createTempFile("7");
+        Files.writeString(temp, "converted-bytes");
+        cache.commit("7", ETAG, OWNER, "image/png", "attachment; filename=\"7.png\"", null, temp, 15);
+    }
+
+    @Test
+    void servesACachedDownloadToItsOwner() {
+        MockServerWebExchange exchange = download("7", OWNER);
+
+        filter.filter(exchange, backend).block();
+
+        assertThat(backendCalls).hasValue(0);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getHeaders().getFirst("X-Cache")).isEqualTo("HIT");
+        assertThat(exchange.getResponse().getHeaders().getETag()).isEqualTo(ETAG);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("converted-bytes");
+        assertThat(requests("hit")).isEqualTo(1);
+    }
+
+    @Test
+    void passesOtherUsersThroughToTheBackend() {
+        MockServerWebExchange exchange = download("7", "99");
+
+        filter.filter(exchange, backend).block();
+
+        // main-service decides whether this user may see the image; the cached body is never written
+        assertThat(backendCalls).hasValue(1);
+        assertThat(exchange.getResponse().getHeaders().getFirst("X-Cache")).isNull();
+        assertThat(requests("bypass")).isEqualTo(1);
+        assertThat(requests("hit")).isZero();
+    }
+
+    @Test
+    void answersAMatchingIfNoneMatchWithNotModified() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .get("/api/images/7/download")
+                .header("X-User-Id", OWNER)
+                .ifNoneMatch(ETAG));
+
+        filter.filter(exchange, backend).block();
+
+        assertThat(backendCalls).hasValue(0);
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    void ignoresRequestsWithoutAUserOrOutsideTheDownloadPath() {
+        filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/images/7/download")), backend)
+                .block();
+        filter.filter(request("/api/images/7", OWNER), backend).block();
+
+        assertThat(backendCalls).hasValue(2);
+        assertThat(requests("hit") + requests("miss") + requests("bypass")).isZero();
+    }
+
+    private double requests(String result) {
+        return registry.get("imagecloud.gateway.image_cache.requests.total").tag("result", result).counter().count();
+    }
+
+    private static MockServerWebExchange download(String imageId, String userId) {
+        return request("/api/images/" + imageId + "/download", userId);
+    }
+
+    private static MockServerWebExchange request(String path, String userId) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path).header("X-User-Id", userId));
+    }
+}
@@ -0,0 +1,105 @@
+package com.imagecloud.gateway.cache;
+
+import com.imagecloud.gateway.cache.ImageResponseCache.CachedImage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageResponseCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void evictsLeastRecentlyUsedEntriesOverTheByteBudget() throws IOException {
+        ImageResponseCache cache = cache(250);
+        CachedImage first = store(cache, "1", "etag-a", 100);
+        CachedImage second = store(cache, "2", "etag-b", 100);
+        // Touch the first entry so the second is now the eldest
+        cache.get("1");
+
+        store(cache, "3", "etag-c", 100);
+
+        assertThat(cache.get("2")).isNull();
+        assertThat(second.file()).doesNotExist();
+        assertThat(cache.get("1")).isEqualTo(first);
+        assertThat(first.file()).exists();
+        assertThat(cache.get("3")).isNotNull();
+        assertThat(registry.get("imagecloud.gateway.image_cache.bytes").gauge().value()).isEqualTo(200);
+        assertThat(registry.get("imagecloud.gateway.image_cache.evictions.total").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsAnEntryLargerThanTheBudgetButEvictsEverythingElse() throws IOException {
+        ImageResponseCache cache = cache(150);
+        store(cache, "1", "etag-a", 100);
+
+        CachedImage large = store(cache, "2", "etag-b", 200);
+
+        assertThat(cache.get("1")).isNull();
+        assertThat(cache.get("2")).isEqualTo(large);
+    }
+
+    @Test
+    void replacingAnEntryDeletesTheOldFileAndAdjustsTheTotal() throws IOException {
+        ImageResponseCache cache = cache(1000);
+        CachedImage old = store(cache, "1", "etag-a", 100);
+
+        CachedImage replacement = store(cache, "1", "etag-b", 40);
+
+        assertThat(cache.get("1")).isEqualTo(replacement);
+        assertThat(old.file()).doesNotExist();
+        assertThat(replacement.file()).exists();
+        assertThat(registry.get("imagecloud.gateway.image_cache.bytes").gauge().value()).isEqualTo(40);
+    }
+
+    @Test
+    void invalidateRemovesTheEntryAndItsFile() throws IOException {
+        ImageResponseCache cache = cache(1000);
+        CachedImage entry = store(cache, "1", "etag-a", 100);
+
+        cache.invalidate(entry);
+
+        assertThat(cache.get("1")).isNull();
+        assertThat(entry.file()).doesNotExist();
+        assertThat(registry.get("imagecloud.gateway.image_cache.bytes").gauge().value()).isZero();
+    }
+
+    @Test
+    void startsFromAnEmptyDirectory() throws IOException {
+        Path leftover = Files.writeString(directory.resolve("7-stale.bin"), "stale");
+
+        cache(1000);
+
+        assertThat(leftover).doesNotExist();
+    }
+
+    @Test
+    void onlyEntriesWithinTheSizeLimitAreCacheable() {
+        ImageResponseCache cache = new ImageResponseCache(directory.toString(), 1000, 100, registry);
+
+        assertThat(cache.cacheable(100)).isTrue();
+        assertThat(cache.cacheable(101)).isFalse();
+        // Unknown length, e.g. a chunked response
+        assertThat(cache.cacheable(-1)).isFalse();
+    }
+
+    private ImageResponseCache cache(long maxBytes) {
+        return new ImageResponseCache(directory.toString(), maxBytes, maxBytes * 2, registry);
+    }
+
+    private static CachedImage store(ImageResponseCache cache, String imageId, String etag, int size)
+            throws IOException {
+        Path temp = cache.createTempFile(imageId);
+        Files.write(temp, new byte[size]);
+        return cache.commit(imageId, "\"" + etag + "\"", "42", "image/png", null, null, temp, size);
+    }
+}
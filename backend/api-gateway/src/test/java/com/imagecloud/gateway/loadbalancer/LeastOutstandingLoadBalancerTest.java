@@ -0,0 +1,116 @@
+package com.imagecloud.gateway.loadbalancer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeastOutstandingLoadBalancerTest {
+
+    private static final String SERVICE = "main-service";
+    private static final long BYTES_PER_REQUEST = 1_000_000;
+
+    private final InstanceLoadTracker tracker = new InstanceLoadTracker(new SimpleMeterRegistry());
+
+    @Test
+    void picksTheInstanceWithFewerRequestsInFlight() {
+        ServiceInstance busy = instance("a", Map.of());
+        ServiceInstance idle = instance("b", Map.of());
+        tracker.get(busy).start(0);
+        tracker.get(busy).start(0);
+        tracker.get(idle).start(0);
+
+        // With two instances both are always drawn, so the lower score must win every time
+        for (int i = 0; i < 50; i++) {
+            assertThat(choose(0, busy, idle)).isSameAs(idle);
+        }
+    }
+
+    @Test
+    void weighsInFlightBytesAgainstRequestCount() {
+        ServiceInstance uploading = instance("a", Map.of());
+        ServiceInstance polling = instance("b", Map.of());
+        // One 40 MB upload outweighs three small polls
+        tracker.get(uploading).start(40 * BYTES_PER_REQUEST);
+        for (int i = 0; i < 3; i++) {
+            tracker.get(polling).start(0);
+        }
+
+        assertThat(choose(0, uploading, polling)).isSameAs(polling);
+    }
+
+    @Test
+    void addsWeightedReportedLoadFromMetadata() {
+        ServiceInstance reportedBusy = instance("a", Map.of("load", "5"));
+        ServiceInstance quiet = instance("b", Map.of());
+        tracker.get(quiet).start(0);
+
+        assertThat(choose(1.0, reportedBusy, quiet)).isSameAs(quiet);
+        // Ignored without a weight, so the instance with nothing in flight wins again
+        assertThat(choose(0, reportedBusy, quiet)).isSameAs(reportedBusy);
+    }
+
+    @Test
+    void ignoresNonNumericReportedLoad() {
+        ServiceInstance garbled = instance("a", Map.of("load", "high"));
+        ServiceInstance busy = instance("b", Map.of());
+        tracker.get(busy).start(0);
+
+        assertThat(choose(1.0, garbled, busy)).isSameAs(garbled);
+    }
+
+    @Test
+    void neverPicksTheBusiestOfSeveralInstances() {
+        ServiceInstance[] instances = {
+                instance("a", Map.of()), instance("b", Map.of()), instance("c", Map.of()), instance("d", Map.of())
+        };
+        for (int i = 0; i < 10; i++) {
+            tracker.get(instances[3]).start(0);
+        }
+
+        LeastOutstandingLoadBalancer balancer = balancer(0, instances);
+        Set<ServiceInstance> chosen = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            chosen.add(balancer.choose(new DefaultRequest<>()).block().getServer());
+        }
+
+        // Any pair includes a less loaded instance, while the idle ones still share the traffic
+        assertThat(chosen).containsExactlyInAnyOrder(instances[0], instances[1], instances[2]);
+    }
+
+    @Test
+    void singleInstanceIsReturnedAndNoInstancesGiveAnEmptyResponse() {
+        ServiceInstance only = instance("a", Map.of());
+        tracker.get(only).start(0);
+
+        assertThat(choose(0, only)).isSameAs(only);
+        Response<ServiceInstance> none = balancer(0).choose(new DefaultRequest<>()).block();
+        assertThat(none.hasServer()).isFalse();
+    }
+
+    private ServiceInstance choose(double reportedLoadWeight, ServiceInstance... instances) {
+        Response<ServiceInstance> response = balancer(reportedLoadWeight, instances)
+                .choose(new DefaultRequest<>())
+                .block();
+        assertThat(response.hasServer()).isTrue();
+        return response.getServer();
+    }
+
+    private LeastOutstandingLoadBalancer balancer(double reportedLoadWeight, ServiceInstance... instances) {
+        return new LeastOutstandingLoadBalancer(ServiceInstanceListSuppliers.toProvider(SERVICE, instances),
+                SERVICE, tracker, BYTES_PER_REQUEST, "load", reportedLoadWeight);
+    }
+
+    private static ServiceInstance instance(String id, Map<String, String> metadata) {
+        return new DefaultServiceInstance(id, SERVICE, id + ".internal", 8081, false, metadata);
+    }
+}
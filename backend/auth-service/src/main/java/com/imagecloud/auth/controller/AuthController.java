@@ -4,7 +4,7 @@ import com.imagecloud.auth.dto.AuthResponse;
 import com.imagecloud.auth.dto.LoginRequest;
 import com.imagecloud.auth.dto.MessageResponse;
 import com.imagecloud.auth.dto.SignupRequest;
-import com.imagecloud.auth.model.User;
+import com.imagecloud.auth.dto.UserResponse;
 import com.imagecloud.auth.service.AuthService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,7 +45,7 @@ public class AuthController {
     public ResponseEntity<?> getCurrentUser(Authentication authentication) {
         try {
             String email = authentication.getName();
-            User user = authService.getCurrentUser(email);
+            UserResponse user = authService.getCurrentUser(email);
             return ResponseEntity.ok(user);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -0,0 +1,15 @@
+package com.imagecloud.auth.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class UserResponse {
+    private Long id;
+    private String email;
+    private Boolean isActive;
+    private LocalDateTime createdAt;
+}
@@ -3,10 +3,12 @@ package com.imagecloud.auth.service;
 import com.imagecloud.auth.dto.AuthResponse;
 import com.imagecloud.auth.dto.LoginRequest;
 import com.imagecloud.auth.dto.SignupRequest;
+import com.imagecloud.auth.dto.UserResponse;
 import com.imagecloud.auth.model.User;
 import com.imagecloud.auth.repository.UserRepository;
 import com.imagecloud.auth.security.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -22,19 +24,24 @@ public class AuthService {
     @Autowired
     private JwtUtil jwtUtil;
     
+    @Autowired
+    private UserCache userCache;
+    
     public AuthResponse signup(SignupRequest request) {
-        // Check if email already exists
-        if (userRepository.existsByEmail(request.getEmail())) {
-            throw new RuntimeException("Email already exists");
-        }
-        
         // Create new user
         User user = new User();
         user.setEmail(request.getEmail());
         user.setPassword(passwordEncoder.encode(request.getPassword()));
         user.setIsActive(true);
         
-        User savedUser = userRepository.save(user);
+        // The unique constraint on email is the duplicate check; no separate existence query
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("Email already exists");
+        }
+        userCache.put(CachedUser.of(savedUser));
         
         // Generate JWT token
         String token = jwtUtil.generateToken(savedUser.getEmail(), savedUser.getId());
@@ -44,11 +51,13 @@ public class AuthService {
     
     public AuthResponse login(LoginRequest request) {
         // Find user by email
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new RuntimeException("Invalid email or password"));
+        CachedUser user = findUser(request.getEmail());
+        if (user == null) {
+            throw new RuntimeException("Invalid email or password");
+        }
         
         // Validate password
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+        if (!passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
             throw new RuntimeException("Invalid email or password");
         }
         
@@ -58,8 +67,23 @@ public class AuthService {
         return new AuthResponse(token, user.getId(), user.getEmail());
     }
     
-    public User getCurrentUser(String email) {
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    public UserResponse getCurrentUser(String email) {
+        CachedUser user = findUser(email);
+        if (user == null) {
+            throw new RuntimeException("User not found");
+        }
+        return user.toResponse();
+    }
+    
+    private CachedUser findUser(String email) {
+        CachedUser cached = userCache.get(email);
+        if (cached != null) {
+            return cached;
+        }
+        CachedUser loaded = userRepository.findByEmail(email).map(CachedUser::of).orElse(null);
+        if (loaded != null) {
+            userCache.put(loaded);
+        }
+        return loaded;
     }
 }
@@ -0,0 +1,31 @@
+package com.imagecloud.auth.service;
+
+import com.imagecloud.auth.dto.UserResponse;
+import com.imagecloud.auth.model.User;
+import lombok.ToString;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+/**
+ * Detached, immutable copy of the fields login and /me need. The password hash is kept for login
+ * but never leaves the service and is left out of toString so it cannot end up in logs.
+ */
+@Value
+public class CachedUser {
+    Long id;
+    String email;
+    @ToString.Exclude
+    String passwordHash;
+    Boolean isActive;
+    LocalDateTime createdAt;
+
+    public static CachedUser of(User user) {
+        return new CachedUser(user.getId(), user.getEmail(), user.getPassword(), user.getIsActive(),
+                user.getCreatedAt());
+    }
+
+    public UserResponse toResponse() {
+        return new UserResponse(id, email, isActive, createdAt);
+    }
+}
@@ -0,0 +1,114 @@
+package com.imagecloud.auth.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded LRU of users by email with a fixed TTL, in front of the users table for login and /me.
+ * Writes through JPA evict the user on this instance (see UserCacheInvalidator); other replicas
+ * serve their copy until it expires, so the TTL bounds how stale a user can be cluster-wide.
+ * Absent users are never cached, so a signup is visible to the next login immediately.
+ * Guarded by a ReentrantLock rather than a monitor, so a virtual thread waiting on it does not pin its carrier.
+ */
+@Component
+public class UserCache {
+
+    private record Entry(CachedUser user, long expiresAt) {
+    }
+
+    // Access-ordered, guarded by lock
+    private final Map<String, Entry> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long ttlMillis;
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserCache(@Value("${auth.user-cache.max-entries:10000}") int maxEntries,
+                     @Value("${auth.user-cache.ttl-seconds:60}") long ttlSeconds,
+                     MeterRegistry meterRegistry) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = Counter.builder("imagecloud.auth.user_cache.requests")
+                .tag("result", "hit")
+                .description("User lookups served from the in-process cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("imagecloud.auth.user_cache.requests")
+                .tag("result", "miss")
+                .description("User lookups that went to the database")
+                .register(meterRegistry);
+        Gauge.builder("imagecloud.auth.user_cache.size", this, UserCache::size)
+                .description("Users currently cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the cached user, or null if absent or expired
+     */
+    public CachedUser get(String email) {
+        Entry entry;
+        lock.lock();
+        try {
+            entry = entries.get(email);
+            if (entry != null && entry.expiresAt() < System.currentTimeMillis()) {
+                entries.remove(email);
+                entry = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.user();
+    }
+
+    public void put(CachedUser user) {
+        lock.lock();
+        try {
+            entries.put(user.getEmail(), new Entry(user, System.currentTimeMillis() + ttlMillis));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every entry for this user id, including one cached under an email that has since changed.
+     */
+    public void evict(Long userId) {
+        lock.lock();
+        try {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().user().getId().equals(userId)) {
+                    iterator.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.imagecloud.auth.service;
+
+import com.imagecloud.auth.model.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on User: any update or delete made through this service evicts the cached copy,
+ * whichever code path made it.
+ */
+@Component
+public class UserCacheInvalidator {
+
+    @Autowired
+    private UserCache userCache;
+
+    @PostUpdate
+    @PostRemove
+    public void evict(User user) {
+        userCache.evict(user.getId());
+    }
+}
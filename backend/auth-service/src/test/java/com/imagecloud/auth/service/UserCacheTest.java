@@ -0,0 +1,79 @@
+package com.imagecloud.auth.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void returnsCachedUserUntilItExpires() throws InterruptedException {
+        UserCache cache = new UserCache(10, 60, registry);
+        CachedUser alice = user(1L, "alice@example.com");
+        cache.put(alice);
+
+        assertThat(cache.get("alice@example.com")).isSameAs(alice);
+
+        UserCache expiring = new UserCache(10, 0, new SimpleMeterRegistry());
+        expiring.put(alice);
+        Thread.sleep(5);
+
+        assertThat(expiring.get("alice@example.com")).isNull();
+        assertThat(expiring.size()).isZero();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedBeyondMaxEntries() {
+        UserCache cache = new UserCache(2, 60, registry);
+        cache.put(user(1L, "a@example.com"));
+        cache.put(user(2L, "b@example.com"));
+        // Touch a so that b is the eldest
+        cache.get("a@example.com");
+        cache.put(user(3L, "c@example.com"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("b@example.com")).isNull();
+        assertThat(cache.get("a@example.com")).isNotNull();
+        assertThat(cache.get("c@example.com")).isNotNull();
+    }
+
+    @Test
+    void evictDropsEveryEntryForTheUserId() {
+        UserCache cache = new UserCache(10, 60, registry);
+        cache.put(user(1L, "old@example.com"));
+        cache.put(user(1L, "new@example.com"));
+        cache.put(user(2L, "other@example.com"));
+
+        cache.evict(1L);
+
+        assertThat(cache.get("old@example.com")).isNull();
+        assertThat(cache.get("new@example.com")).isNull();
+        assertThat(cache.get("other@example.com")).isNotNull();
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        UserCache cache = new UserCache(10, 60, registry);
+        cache.put(user(1L, "alice@example.com"));
+
+        cache.get("alice@example.com");
+        cache.get("alice@example.com");
+        cache.get("bob@example.com");
+
+        assertThat(registry.get("imagecloud.auth.user_cache.requests").tag("result", "hit").counter().count())
+                .isEqualTo(2);
+        assertThat(registry.get("imagecloud.auth.user_cache.requests").tag("result", "miss").counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("imagecloud.auth.user_cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    private static CachedUser user(Long id, String email) {
+        return new CachedUser(id, email, "hash", true, LocalDateTime.now());
+    }
+}
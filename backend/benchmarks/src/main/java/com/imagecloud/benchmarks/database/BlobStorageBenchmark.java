@@ -0,0 +1,136 @@
+package com.imagecloud.benchmarks.database;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.largeobject.LargeObject;
+import org.postgresql.largeobject.LargeObjectManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.util.Random;
+
+/**
+ * One-shot write/read throughput comparison of the three blob layouts against the benchmark's Postgres.
+ * Run with {@code --spring.profiles.active=storage-benchmark}.
+ *
+ * The payload is random bytes, which, like JPEG or PNG data, does not compress. Each layout gets its own
+ * scratch table (and large objects) that are dropped afterwards; the images table is never touched.
+ * The LO API has no equivalent in H2, so this runs on a real Postgres: embedded by default, see
+ * {@link EmbeddedPostgresConfig}.
+ */
+@Component
+@Profile("storage-benchmark")
+@RequiredArgsConstructor
+@Slf4j
+public class BlobStorageBenchmark implements CommandLineRunner {
+
+    private static final double MB = 1024.0 * 1024.0;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${image.storage.benchmark.blob-bytes:2097152}")
+    private int blobBytes;
+
+    @Value("${image.storage.benchmark.iterations:50}")
+    private int iterations;
+
+    @Override
+    public void run(String... args) {
+        byte[] payload = new byte[blobBytes];
+        new Random(42).nextBytes(payload);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        try {
+            jdbcTemplate.execute("create table blob_bench_extended (id bigint primary key, data bytea)");
+            jdbcTemplate.execute("create table blob_bench_external (id bigint primary key, data bytea)");
+            jdbcTemplate.execute("alter table blob_bench_external alter column data set storage external");
+            jdbcTemplate.execute("create table blob_bench_lo (id bigint primary key, data_oid oid)");
+
+            report("bytea (EXTENDED, current)", benchBytea("blob_bench_extended", payload));
+            report("bytea (STORAGE EXTERNAL)", benchBytea("blob_bench_external", payload));
+            report("large object", benchLargeObject(tx, payload));
+        } finally {
+            jdbcTemplate.execute("select lo_unlink(data_oid) from blob_bench_lo");
+            jdbcTemplate.execute("drop table if exists blob_bench_extended, blob_bench_external, blob_bench_lo");
+        }
+    }
+
+    private long[] benchBytea(String table, byte[] payload) {
+        long writeStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            jdbcTemplate.update("insert into " + table + " (id, data) values (?, ?)", i, payload);
+        }
+        long writeNanos = System.nanoTime() - writeStart;
+
+        long readStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            jdbcTemplate.queryForObject("select data from " + table + " where id = ?", byte[].class, i);
+        }
+        return new long[] {writeNanos, System.nanoTime() - readStart, storedBytes(table)};
+    }
+
+    private long[] benchLargeObject(TransactionTemplate tx, byte[] payload) {
+        long writeStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            long id = i;
+            tx.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                LargeObjectManager manager = connection.unwrap(PGConnection.class).getLargeObjectAPI();
+                long oid = manager.createLO(LargeObjectManager.READWRITE);
+                LargeObject object = manager.open(oid, LargeObjectManager.WRITE);
+                try (OutputStream out = object.getOutputStream()) {
+                    out.write(payload);
+                } catch (IOException e) {
+                    throw new SQLException(e);
+                }
+                jdbcTemplate.update("insert into blob_bench_lo (id, data_oid) values (?, ?)", id, oid);
+                return null;
+            }));
+        }
+        long writeNanos = System.nanoTime() - writeStart;
+
+        long readStart = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            Long oid = jdbcTemplate.queryForObject("select data_oid from blob_bench_lo where id = ?", Long.class, i);
+            tx.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                LargeObjectManager manager = connection.unwrap(PGConnection.class).getLargeObjectAPI();
+                try (InputStream in = manager.open(oid, LargeObjectManager.READ).getInputStream()) {
+                    in.transferTo(OutputStream.nullOutputStream());
+                } catch (IOException e) {
+                    throw new SQLException(e);
+                }
+                return null;
+            }));
+        }
+        Long stored = jdbcTemplate.queryForObject(
+                "select coalesce(sum(octet_length(data)), 0) from pg_largeobject "
+                        + "where loid in (select data_oid from blob_bench_lo)", Long.class);
+        return new long[] {writeNanos, System.nanoTime() - readStart, stored != null ? stored : 0};
+    }
+
+    private long storedBytes(String table) {
+        Long size = jdbcTemplate.queryForObject("select pg_total_relation_size(?::regclass)", Long.class, table);
+        return size != null ? size : 0;
+    }
+
+    private void report(String layout, long[] result) {
+        double totalMb = (double) blobBytes * iterations / MB;
+        log.info("{}: write {} MB/s, read {} MB/s, {} MB on disk for {} x {} KB",
+                layout,
+                String.format("%.1f", totalMb / (result[0] / 1e9)),
+                String.format("%.1f", totalMb / (result[1] / 1e9)),
+                String.format("%.1f", result[2] / MB),
+                iterations, blobBytes / 1024);
+    }
+}
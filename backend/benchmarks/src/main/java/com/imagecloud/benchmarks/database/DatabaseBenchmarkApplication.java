@@ -0,0 +1,23 @@
+package com.imagecloud.benchmarks.database;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+
+/**
+ * One-shot benchmarks that need a real Postgres, embedded unless {@code BENCHMARK_EMBEDDED_POSTGRES=false}.
+ * Each is a {@code CommandLineRunner} behind its own profile; the process exits once the selected runners are done.
+ *
+ * main-service is on the classpath for the write-path benchmark, and with it main-service's application.yml,
+ * so the connection settings and storage mode are the service's own. Its broker is never used.
+ */
+@SpringBootApplication(exclude = RabbitAutoConfiguration.class)
+public class DatabaseBenchmarkApplication {
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(DatabaseBenchmarkApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.setAdditionalProfiles("database-benchmark");
+        System.exit(SpringApplication.exit(application.run(args)));
+    }
+}
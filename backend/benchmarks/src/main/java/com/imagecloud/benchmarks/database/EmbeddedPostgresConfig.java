@@ -0,0 +1,43 @@
+package com.imagecloud.benchmarks.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Runs the database benchmarks against a throwaway Postgres unpacked from a bundled binary, so they need no
+ * external server. It is a real Postgres rather than H2, because main-service relies on Postgres-only features
+ * such as large objects and {@code UPDATE ... FROM}.
+ *
+ * Only the URL is replaced: credentials and the Hikari settings still come from main-service's application.yml.
+ * Set {@code BENCHMARK_EMBEDDED_POSTGRES=false} to measure the server named by the {@code DB_*} variables instead.
+ */
+@Configuration
+@ConditionalOnProperty(name = "benchmark.embedded-postgres", havingValue = "true", matchIfMissing = true)
+@Slf4j
+class EmbeddedPostgresConfig {
+
+    @Bean(destroyMethod = "close")
+    EmbeddedPostgres embeddedPostgres() throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+        log.info("Embedded Postgres listening on port {}", postgres.getPort());
+        return postgres;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource dataSource(DataSourceProperties properties, EmbeddedPostgres embeddedPostgres) {
+        return properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url("jdbc:postgresql://localhost:" + embeddedPostgres.getPort()
+                        + "/postgres?reWriteBatchedInserts=true")
+                .build();
+    }
+}
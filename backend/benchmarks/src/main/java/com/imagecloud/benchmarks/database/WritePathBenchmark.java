@@ -0,0 +1,141 @@
+package com.imagecloud.benchmarks.database;
+
+import com.imagecloud.common.util.ContentHash;
+import com.imagecloud.main.model.ConversionStatus;
+import com.imagecloud.main.model.Image;
+import com.imagecloud.main.repository.ImageRepository;
+import com.imagecloud.main.repository.ImageRepository.ConversionTargetView;
+import com.imagecloud.main.storage.ImageBlobStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * One-shot throughput comparison of the images write path against the benchmark's Postgres
+ * ({@link EmbeddedPostgresConfig}).
+ * Run with {@code --spring.profiles.active=write-path-benchmark}.
+ *
+ * "entity" replays what upload and response handling did before: saving the detached entity, which makes
+ * Hibernate re-select the row and rewrite every column, blobs included. "targeted" is the current path.
+ * Rows are written to the images table under a dedicated user and deleted afterwards.
+ */
+@Component
+@Profile("write-path-benchmark")
+@RequiredArgsConstructor
+@Slf4j
+public class WritePathBenchmark implements CommandLineRunner {
+
+    private static final String USER_ID = "write-path-benchmark";
+
+    private final ImageRepository imageRepository;
+    private final ImageBlobStore imageBlobStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${image.write-path.benchmark.blob-bytes:524288}")
+    private int blobBytes;
+
+    @Value("${image.write-path.benchmark.iterations:200}")
+    private int iterations;
+
+    @Override
+    public void run(String... args) {
+        byte[] original = new byte[blobBytes];
+        byte[] converted = new byte[blobBytes / 2];
+        Random random = new Random(42);
+        random.nextBytes(original);
+        random.nextBytes(converted);
+
+        try {
+            List<Long> entityIds = new ArrayList<>();
+            report("upload, entity save", time(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    Image image = imageRepository.save(newImage(original));
+                    image.setStatus(ConversionStatus.PROCESSING);
+                    imageRepository.save(image);
+                    entityIds.add(image.getId());
+                }
+            }));
+
+            List<Long> targetedIds = new ArrayList<>();
+            report("upload, targeted update", time(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    Image image = imageRepository.save(newImage(original));
+                    imageRepository.updateStatus(image.getId(), ConversionStatus.PROCESSING);
+                    targetedIds.add(image.getId());
+                }
+            }));
+
+            report("insert, one transaction (JDBC batched)", time(() -> {
+                List<Image> images = new ArrayList<>();
+                for (int i = 0; i < iterations; i++) {
+                    images.add(newImage(original));
+                }
+                new TransactionTemplate(transactionManager).executeWithoutResult(
+                        status -> imageRepository.saveAll(images));
+            }));
+
+            report("response, entity save", time(() -> {
+                for (Long id : entityIds) {
+                    Image image = imageRepository.findById(id).orElseThrow();
+                    imageBlobStore.storeConverted(image, converted);
+                    image.setStatus(ConversionStatus.COMPLETED);
+                    image.setConvertedAt(LocalDateTime.now());
+                    imageRepository.save(image);
+                }
+            }));
+
+            report("response, targeted update", time(() -> {
+                for (Long id : targetedIds) {
+                    ConversionTargetView target = imageRepository.findConversionTargetById(id).orElseThrow();
+                    Image result = new Image();
+                    result.setId(target.getId());
+                    imageBlobStore.storeConverted(result, converted);
+                    imageRepository.completeConversion(target.getId(), ConversionStatus.COMPLETED,
+                            result.getConvertedImage(), result.getConvertedOid(),
+                            ContentHash.sha256Hex(converted), LocalDateTime.now());
+                }
+            }));
+        } finally {
+            jdbcTemplate.queryForList("select lo_unlink(oid) from (select original_oid as oid from images "
+                    + "where user_id = ? union select converted_oid from images where user_id = ?) o "
+                    + "where oid is not null", Integer.class, USER_ID, USER_ID);
+            jdbcTemplate.update("delete from images where user_id = ?", USER_ID);
+        }
+    }
+
+    private Image newImage(byte[] original) {
+        Image image = new Image();
+        image.setUserId(USER_ID);
+        image.setOriginalFileName("bench.png");
+        image.setOriginalFormat("png");
+        image.setTargetFormat("jpg");
+        image.setStatus(ConversionStatus.PENDING);
+        imageBlobStore.storeOriginal(image, original);
+        return image;
+    }
+
+    private long time(Runnable phase) {
+        long start = System.nanoTime();
+        phase.run();
+        return System.nanoTime() - start;
+    }
+
+    private void report(String phase, long nanos) {
+        log.info("{}: {} images/s ({} x {} KB in {} ms)",
+                phase,
+                String.format("%.1f", iterations / (nanos / 1e9)),
+                iterations, blobBytes / 1024, nanos / 1_000_000);
+    }
+}
@@ -0,0 +1,23 @@
+package com.imagecloud.benchmarks.database;
+
+import com.imagecloud.main.config.ImageStorageConfig;
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.model.Image;
+import com.imagecloud.main.repository.ImageRepository;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+/**
+ * The slice of main-service the write-path benchmark drives: the images entity and repository, and the blob
+ * store selected by {@code image.storage.mode}.
+ */
+@Configuration
+@Profile("write-path-benchmark")
+@EnableJpaRepositories(basePackageClasses = ImageRepository.class)
+@EntityScan(basePackageClasses = Image.class)
+@Import({ImageMetrics.class, ImageStorageConfig.class})
+class WritePathBenchmarkConfig {
+}
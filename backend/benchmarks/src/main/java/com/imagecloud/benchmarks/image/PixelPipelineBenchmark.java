@@ -0,0 +1,105 @@
+package com.imagecloud.benchmarks.image;
+
+import com.imagecloud.common.image.PixelPipeline;
+import net.coobird.thumbnailator.Thumbnails;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How the pixel stage of a single large conversion scales with cores.
+ *
+ * The input is a random 4-byte ABGR image, the layout ImageIO produces for an RGBA PNG, flattened for
+ * JPEG output. Each thread count gets its own pool; the single-threaded Thumbnailator redraw that the
+ * service used before and the (serial) JPEG encode are measured alongside for scale.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PixelPipelineBenchmark {
+
+    private static final int WIDTH = 7680;
+
+    @State(Scope.Benchmark)
+    public static class Source {
+        @Param("40")
+        public int megapixels;
+
+        BufferedImage image;
+
+        @Setup
+        public void setUp() {
+            image = new BufferedImage(WIDTH, megapixels * 1_000_000 / WIDTH, BufferedImage.TYPE_4BYTE_ABGR);
+            new Random(42).nextBytes(((DataBufferByte) image.getRaster().getDataBuffer()).getData());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pipeline {
+        // Override with -p threads=... to match the cores of the machine being sized
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+
+        @Param("262144")
+        public int stripPixels;
+
+        PixelPipeline pipeline;
+
+        @Setup
+        public void setUp() {
+            pipeline = new PixelPipeline(new ForkJoinPool(threads), 0, stripPixels);
+        }
+
+        @TearDown
+        public void tearDown() {
+            pipeline.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Prepared {
+        BufferedImage image;
+
+        @Setup
+        public void setUp(Source source) {
+            image = PixelPipeline.serial().prepare(source.image, false, PixelPipeline.WHITE);
+        }
+    }
+
+    @Benchmark
+    public BufferedImage pipeline(Source source, Pipeline pipeline) {
+        return pipeline.pipeline.prepare(source.image, false, PixelPipeline.WHITE);
+    }
+
+    /** The redraw the service used before the pipeline. */
+    @Benchmark
+    public BufferedImage thumbnailatorRedraw(Source source) throws IOException {
+        return Thumbnails.of(source.image).scale(1.0).imageType(BufferedImage.TYPE_INT_RGB).asBufferedImage();
+    }
+
+    /** Serial and not parallelised; bounds what a faster pixel stage can gain end to end. */
+    @Benchmark
+    public boolean jpegEncode(Prepared prepared) throws IOException {
+        return ImageIO.write(prepared.image, "jpeg", OutputStream.nullOutputStream());
+    }
+}
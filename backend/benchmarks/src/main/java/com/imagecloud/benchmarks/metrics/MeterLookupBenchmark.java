@@ -0,0 +1,86 @@
+package com.imagecloud.benchmarks.metrics;
+
+import com.imagecloud.common.metrics.MeterSlots;
+import com.imagecloud.common.metrics.MetricFormat;
+import com.imagecloud.common.metrics.SizeBucket;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving a two-tag timer the way the metrics facades used to, with {@code Timer.builder(...).register()}
+ * on every recording, against the {@link MeterSlots} lookup they use now. Only the lookup is measured; the
+ * recording itself costs the same either way.
+ *
+ * Run with {@code -prof gc}: gc.alloc.rate.norm is the bytes allocated per lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeterLookupBenchmark {
+
+    private static final String NAME = "imagecloud.benchmark.duration";
+    private static final MetricFormat[] FORMATS = MetricFormat.values();
+    private static final SizeBucket[] SIZES = SizeBucket.values();
+
+    // Raw values as they arrive from requests, cycled so that every call resolves a different series
+    private static final String[] TARGET_FORMATS = {"jpg", "png", "webp", "JPEG", "gif"};
+    private static final long[] SOURCE_BYTES = {48_000, 350_000, 2_400_000, 12_000_000};
+
+    private PrometheusMeterRegistry registry;
+    private MeterSlots<Timer> slots;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        slots = new MeterSlots<>(FORMATS.length * SIZES.length, this::buildTimer);
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.close();
+    }
+
+    @Benchmark
+    public Timer builderRegister() {
+        int call = next++;
+        return Timer.builder(NAME)
+                .tag("target_format", MetricFormat.of(TARGET_FORMATS[call % TARGET_FORMATS.length]).tag())
+                .tag("size_bucket", SizeBucket.of(SOURCE_BYTES[call % SOURCE_BYTES.length]).tag())
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Benchmark
+    public Timer meterSlots() {
+        int call = next++;
+        int index = MetricFormat.of(TARGET_FORMATS[call % TARGET_FORMATS.length]).ordinal() * SIZES.length
+                + SizeBucket.of(SOURCE_BYTES[call % SOURCE_BYTES.length]).ordinal();
+        return slots.get(index);
+    }
+
+    private Timer buildTimer(int index) {
+        return Timer.builder(NAME)
+                .tag("target_format", FORMATS[index / SIZES.length].tag())
+                .tag("size_bucket", SIZES[index % SIZES.length].tag())
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
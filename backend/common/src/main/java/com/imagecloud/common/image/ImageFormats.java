@@ -0,0 +1,119 @@
+package com.imagecloud.common.image;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Format helpers for ingesting uploads and for the conversion pipeline.
+ * Detection looks at the leading magic bytes so a mislabelled upload is never trusted by extension alone.
+ */
+public final class ImageFormats {
+
+    private ImageFormats() {
+    }
+
+    /**
+     * Sniff the container format from the first bytes of the image.
+     *
+     * @return canonical format name (jpeg, png, gif, bmp, tiff, webp) or null if unknown
+     */
+    public static String detect(byte[] data) {
+        if (data == null || data.length < 4) {
+            return null;
+        }
+        if (startsWith(data, 0xFF, 0xD8, 0xFF)) {
+            return "jpeg";
+        }
+        if (startsWith(data, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "png";
+        }
+        if (startsWith(data, 'G', 'I', 'F', '8')) {
+            return "gif";
+        }
+        if (startsWith(data, 'B', 'M')) {
+            return "bmp";
+        }
+        if (startsWith(data, 'I', 'I', 0x2A, 0x00) || startsWith(data, 'M', 'M', 0x00, 0x2A)) {
+            return "tiff";
+        }
+        if (data.length >= 12 && startsWith(data, 'R', 'I', 'F', 'F')
+                && data[8] == 'W' && data[9] == 'E' && data[10] == 'B' && data[11] == 'P') {
+            return "webp";
+        }
+        return null;
+    }
+
+    /**
+     * Map user supplied format names and extensions onto the canonical names returned by {@link #detect}.
+     */
+    public static String normalize(String format) {
+        if (format == null) {
+            return null;
+        }
+        String f = format.trim().toLowerCase(Locale.ROOT);
+        if (f.startsWith(".")) {
+            f = f.substring(1);
+        }
+        switch (f) {
+            case "jpg":
+            case "jpe":
+            case "jfif":
+                return "jpeg";
+            case "tif":
+                return "tiff";
+            default:
+                return f;
+        }
+    }
+
+    /**
+     * Whether the canonical format can store transparency; anything else gets alpha flattened before encoding.
+     */
+    public static boolean supportsAlpha(String canonicalFormat) {
+        return "png".equals(canonicalFormat) || "gif".equals(canonicalFormat)
+                || "tiff".equals(canonicalFormat) || "webp".equals(canonicalFormat);
+    }
+
+    /**
+     * Reads only the image header to get width x height, without decoding any pixel data.
+     *
+     * @return pixel count, or -1 if no ImageIO reader understands the data
+     */
+    public static long pixelCount(byte[] data) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            if (in == null) {
+                return -1;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return -1;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                return (long) reader.getWidth(0) * reader.getHeight(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static boolean startsWith(byte[] data, int... prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+package com.imagecloud.common.image;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Decode, pixel stage, encode: the one conversion path used by conversion-service workers and by
+ * main-service's inline conversions, so a given source and target produce the same bytes on either path.
+ * Alpha is flattened onto white when the target format cannot store it.
+ */
+public final class ImageTranscoder {
+
+    private final PixelPipeline pixelPipeline;
+
+    public ImageTranscoder(PixelPipeline pixelPipeline) {
+        this.pixelPipeline = pixelPipeline;
+    }
+
+    /**
+     * @throws IOException if the source cannot be decoded or there is no encoder for {@code targetFormat}
+     */
+    public byte[] transcode(byte[] imageData, String targetFormat) throws IOException {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(imageData));
+        if (decoded == null) {
+            throw new IOException("Failed to read image data");
+        }
+
+        // Colour conversion and alpha flattening run in parallel row strips for large images
+        BufferedImage prepared = pixelPipeline.prepare(decoded,
+                ImageFormats.supportsAlpha(ImageFormats.normalize(targetFormat)), PixelPipeline.WHITE);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (!ImageIO.write(prepared, targetFormat, outputStream)) {
+            throw new IOException("No encoder available for target format " + targetFormat);
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,238 @@
+package com.imagecloud.common.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Turns a decoded image into the packed-int RGB or ARGB image the encoder gets, splitting the work into
+ * row strips on a ForkJoinPool so one large conversion can use every idle core instead of one.
+ *
+ * Common decoder layouts (interleaved 8-bit RGB/RGBA, packed int, 8-bit indexed) are read straight from
+ * the raster's backing array. Anything else falls back to one bulk {@code getRGB} per strip. Alpha is
+ * flattened onto {@code background} in the same pass when the target format cannot store it.
+ * Images below {@code minParallelPixels}, and all images in a {@link #serial()} pipeline, are converted on the
+ * calling thread.
+ */
+public class PixelPipeline implements AutoCloseable {
+
+    public static final int WHITE = 0xFFFFFF;
+
+    @FunctionalInterface
+    private interface StripConverter {
+        void convert(int fromRow, int toRow);
+    }
+
+    // Null for a serial pipeline
+    private final ForkJoinPool pool;
+    private final long minParallelPixels;
+    private final int stripPixels;
+
+    public PixelPipeline(ForkJoinPool pool, long minParallelPixels, int stripPixels) {
+        this.pool = pool;
+        this.minParallelPixels = minParallelPixels;
+        this.stripPixels = stripPixels;
+    }
+
+    /**
+     * A pipeline that never forks, for callers whose images are small enough that a pool would only add
+     * hand-off cost.
+     */
+    public static PixelPipeline serial() {
+        return new PixelPipeline(null, Long.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    public int parallelism() {
+        return pool != null ? pool.getParallelism() : 1;
+    }
+
+    /**
+     * @param keepAlpha whether the target format can store transparency
+     * @param background RGB that transparent pixels are composited onto when alpha is dropped
+     */
+    public BufferedImage prepare(BufferedImage source, boolean keepAlpha, int background) {
+        boolean alpha = keepAlpha && source.getColorModel().hasAlpha();
+        int type = source.getType();
+        if ((type == BufferedImage.TYPE_INT_RGB && !alpha) || (type == BufferedImage.TYPE_INT_ARGB && alpha)) {
+            return source;
+        }
+
+        int width = source.getWidth();
+        int height = source.getHeight();
+        BufferedImage target = new BufferedImage(width, height,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] out = ((DataBufferInt) target.getRaster().getDataBuffer()).getData();
+
+        StripConverter converter = converterFor(source, out, !alpha && source.getColorModel().hasAlpha(), background);
+        if (pool == null || (long) width * height < minParallelPixels || pool.getParallelism() == 1) {
+            converter.convert(0, height);
+        } else {
+            pool.invoke(new StripTask(converter, 0, height, Math.max(1, stripPixels / width)));
+        }
+        return target;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private StripConverter converterFor(BufferedImage source, int[] out, boolean flatten, int background) {
+        Raster raster = source.getRaster();
+        ColorModel colorModel = source.getColorModel();
+        DataBuffer buffer = raster.getDataBuffer();
+        int width = source.getWidth();
+        // Child rasters (sub-images) are offset into a larger buffer; only top-level rasters take the fast paths
+        boolean topLevel = raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0
+                && buffer.getNumBanks() == 1;
+
+        if (topLevel && buffer instanceof DataBufferByte bytes
+                && raster.getSampleModel() instanceof PixelInterleavedSampleModel sampleModel
+                && colorModel instanceof ComponentColorModel
+                && colorModel.getColorSpace().isCS_sRGB()
+                && !colorModel.isAlphaPremultiplied()
+                && sampleModel.getNumBands() >= 3) {
+            return interleavedBytes(bytes.getData(), bytes.getOffset(), sampleModel, width, out, flatten, background);
+        }
+        if (topLevel && buffer instanceof DataBufferInt ints
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel
+                && colorModel instanceof DirectColorModel direct
+                && !direct.isAlphaPremultiplied()
+                && direct.getRedMask() == 0xFF0000 && direct.getGreenMask() == 0xFF00 && direct.getBlueMask() == 0xFF) {
+            return packedInts(ints.getData(), ints.getOffset(), sampleModel.getScanlineStride(), width,
+                    direct.hasAlpha(), out, flatten, background);
+        }
+        if (topLevel && buffer instanceof DataBufferByte bytes
+                && colorModel instanceof IndexColorModel indexed
+                && colorModel.getPixelSize() == 8
+                && raster.getSampleModel() instanceof PixelInterleavedSampleModel sampleModel) {
+            // Full 256 entries so a stray index past a short palette reads as transparent black, not an exception
+            int[] palette = new int[256];
+            indexed.getRGBs(palette);
+            if (flatten) {
+                for (int i = 0; i < palette.length; i++) {
+                    palette[i] = 0xFF000000 | blend(palette[i], background);
+                }
+            }
+            return indexedBytes(bytes.getData(), bytes.getOffset(), sampleModel.getScanlineStride(), width, palette, out);
+        }
+        return bulkRgb(source, width, out, flatten, background);
+    }
+
+    private static StripConverter interleavedBytes(byte[] data, int offset, PixelInterleavedSampleModel sampleModel,
+                                                   int width, int[] out, boolean flatten, int background) {
+        int stride = sampleModel.getScanlineStride();
+        int pixelStride = sampleModel.getPixelStride();
+        int[] bands = sampleModel.getBandOffsets();
+        int r = bands[0];
+        int g = bands[1];
+        int b = bands[2];
+        int a = sampleModel.getNumBands() > 3 ? bands[3] : -1;
+        return (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                int in = offset + y * stride;
+                int o = y * width;
+                for (int x = 0; x < width; x++, in += pixelStride) {
+                    int rgb = (data[in + r] & 0xFF) << 16 | (data[in + g] & 0xFF) << 8 | (data[in + b] & 0xFF);
+                    int alpha = a >= 0 ? data[in + a] & 0xFF : 0xFF;
+                    out[o + x] = flatten ? 0xFF000000 | blend(alpha << 24 | rgb, background) : alpha << 24 | rgb;
+                }
+            }
+        };
+    }
+
+    private static StripConverter packedInts(int[] data, int offset, int scanline, int width, boolean hasAlpha,
+                                             int[] out, boolean flatten, int background) {
+        return (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                int in = offset + y * scanline;
+                int o = y * width;
+                for (int x = 0; x < width; x++) {
+                    int argb = hasAlpha ? data[in + x] : 0xFF000000 | data[in + x];
+                    out[o + x] = flatten ? 0xFF000000 | blend(argb, background) : argb;
+                }
+            }
+        };
+    }
+
+    private static StripConverter indexedBytes(byte[] data, int offset, int stride, int width, int[] palette,
+                                               int[] out) {
+        return (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                int in = offset + y * stride;
+                int o = y * width;
+                for (int x = 0; x < width; x++) {
+                    out[o + x] = palette[data[in + x] & 0xFF];
+                }
+            }
+        };
+    }
+
+    // 16-bit, grey, CMYK and other layouts: let the colour model do the work, one call per strip
+    private static StripConverter bulkRgb(BufferedImage source, int width, int[] out, boolean flatten, int background) {
+        return (fromRow, toRow) -> {
+            source.getRGB(0, fromRow, width, toRow - fromRow, out, fromRow * width, width);
+            if (flatten) {
+                for (int i = fromRow * width; i < toRow * width; i++) {
+                    out[i] = 0xFF000000 | blend(out[i], background);
+                }
+            }
+        };
+    }
+
+    /**
+     * Composites a non-premultiplied ARGB pixel over an opaque RGB background.
+     */
+    private static int blend(int argb, int background) {
+        int alpha = argb >>> 24;
+        if (alpha == 0xFF) {
+            return argb & 0xFFFFFF;
+        }
+        if (alpha == 0) {
+            return background;
+        }
+        int inverse = 255 - alpha;
+        int r = (((argb >> 16) & 0xFF) * alpha + ((background >> 16) & 0xFF) * inverse + 127) / 255;
+        int g = (((argb >> 8) & 0xFF) * alpha + ((background >> 8) & 0xFF) * inverse + 127) / 255;
+        int b = ((argb & 0xFF) * alpha + (background & 0xFF) * inverse + 127) / 255;
+        return r << 16 | g << 8 | b;
+    }
+
+    private static final class StripTask extends RecursiveAction {
+
+        private final StripConverter converter;
+        private final int fromRow;
+        private final int toRow;
+        private final int rowsPerStrip;
+
+        StripTask(StripConverter converter, int fromRow, int toRow, int rowsPerStrip) {
+            this.converter = converter;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.rowsPerStrip = rowsPerStrip;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= rowsPerStrip) {
+                converter.convert(fromRow, toRow);
+                return;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new StripTask(converter, fromRow, middle, rowsPerStrip),
+                    new StripTask(converter, middle, toRow, rowsPerStrip));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.imagecloud.common.messaging;
+
+import java.util.Map;
+
+/**
+ * AMQP header names carrying epoch-millisecond timestamps through the conversion pipeline,
+ * shared by main-service and conversion-service.
+ */
+public final class PipelineHeaders {
+
+    public static final String UPLOADED_AT = "x-uploaded-at";
+    public static final String ENQUEUED_AT = "x-enqueued-at";
+    public static final String DEQUEUED_AT = "x-dequeued-at";
+    public static final String CONVERSION_STARTED_AT = "x-conversion-started-at";
+    public static final String CONVERSION_FINISHED_AT = "x-conversion-finished-at";
+    public static final String RESPONSE_ENQUEUED_AT = "x-response-enqueued-at";
+    public static final String SOURCE_BYTES = "x-source-bytes";
+
+    private PipelineHeaders() {
+    }
+
+    public static Long longValue(Map<String, Object> headers, String name) {
+        Object value = headers.get(name);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof String text) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
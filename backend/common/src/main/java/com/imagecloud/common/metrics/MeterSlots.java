@@ -0,0 +1,32 @@
+package com.imagecloud.common.metrics;
+
+import io.micrometer.core.instrument.Meter;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Fixed-size table of meters addressed by a precomputed index.
+ * Each slot is registered on first use, so histogram series only appear for tag combinations
+ * that actually occur, and later lookups are a single array read with no builder or tag allocation.
+ */
+public final class MeterSlots<M extends Meter> {
+
+    private final AtomicReferenceArray<M> slots;
+    private final IntFunction<M> factory;
+
+    public MeterSlots(int size, IntFunction<M> factory) {
+        this.slots = new AtomicReferenceArray<>(size);
+        this.factory = factory;
+    }
+
+    public M get(int index) {
+        M meter = slots.get(index);
+        if (meter == null) {
+            // Registration is idempotent in the registry, so a lost race yields the same meter
+            meter = factory.apply(index);
+            slots.lazySet(index, meter);
+        }
+        return meter;
+    }
+}
@@ -0,0 +1,47 @@
+package com.imagecloud.common.metrics;
+
+/**
+ * Bounded set of format tag values. Formats come from user input, so anything unrecognised
+ * collapses to OTHER instead of creating a new time series.
+ */
+public enum MetricFormat {
+    JPEG("jpeg", "jpg", "jpe", "jfif"),
+    PNG("png"),
+    GIF("gif"),
+    BMP("bmp"),
+    WEBP("webp"),
+    TIFF("tiff", "tif"),
+    OTHER("other");
+
+    private static final MetricFormat[] VALUES = values();
+
+    private final String tag;
+    private final String[] aliases;
+
+    MetricFormat(String tag, String... aliases) {
+        this.tag = tag;
+        this.aliases = aliases;
+    }
+
+    public String tag() {
+        return tag;
+    }
+
+    public static MetricFormat of(String format) {
+        if (format == null) {
+            return OTHER;
+        }
+        String f = format.startsWith(".") ? format.substring(1) : format;
+        for (MetricFormat candidate : VALUES) {
+            if (candidate.tag.equalsIgnoreCase(f)) {
+                return candidate;
+            }
+            for (String alias : candidate.aliases) {
+                if (alias.equalsIgnoreCase(f)) {
+                    return candidate;
+                }
+            }
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,34 @@
+package com.imagecloud.common.metrics;
+
+/**
+ * Coarse size classes for metric tags, so latency can be compared per size without unbounded cardinality.
+ */
+public enum SizeBucket {
+    LT_100KB("lt_100kb", 100L * 1024),
+    LT_1MB("lt_1mb", 1024L * 1024),
+    LT_10MB("lt_10mb", 10L * 1024 * 1024),
+    GE_10MB("ge_10mb", Long.MAX_VALUE);
+
+    private static final SizeBucket[] VALUES = values();
+
+    private final String tag;
+    private final long upperBound;
+
+    SizeBucket(String tag, long upperBound) {
+        this.tag = tag;
+        this.upperBound = upperBound;
+    }
+
+    public String tag() {
+        return tag;
+    }
+
+    public static SizeBucket of(long bytes) {
+        for (SizeBucket bucket : VALUES) {
+            if (bytes < bucket.upperBound) {
+                return bucket;
+            }
+        }
+        return GE_10MB;
+    }
+}
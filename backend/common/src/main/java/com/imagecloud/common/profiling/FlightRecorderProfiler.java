@@ -0,0 +1,243 @@
+package com.imagecloud.common.profiling;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * In-process JDK Flight Recorder control, so a regression can be profiled where it happens.
+ *
+ * An always-on rolling recording with the JDK's "default" settings (about 1% overhead) keeps the last
+ * {@code profiling.continuous.max-age} on disk, bounded by size. On top of that, one on-demand recording
+ * at a time can be started with "default" or the more detailed "profile" settings; its duration and size
+ * are capped by configuration and it stops on its own.
+ *
+ * Recordings are summarised in process by {@link RecordingSummary}; the raw .jfr files never leave the pod.
+ */
+@Slf4j
+public class FlightRecorderProfiler {
+
+    @Value("${profiling.continuous.enabled:true}")
+    private boolean continuousEnabled;
+
+    @Value("${profiling.continuous.max-age:PT15M}")
+    private Duration continuousMaxAge;
+
+    @Value("${profiling.continuous.max-size-mb:64}")
+    private long continuousMaxSizeMb;
+
+    @Value("${profiling.on-demand.max-duration:PT5M}")
+    private Duration onDemandMaxDuration;
+
+    @Value("${profiling.on-demand.max-size-mb:128}")
+    private long onDemandMaxSizeMb;
+
+    @Value("${profiling.summary.top:20}")
+    private int top;
+
+    private Recording continuous;
+
+    // Guarded by lock; a ReentrantLock so a virtual thread dumping a recording does not pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private Recording onDemand;
+    private String onDemandSettings;
+    private Map<String, Object> lastOnDemandSummary;
+
+    @PostConstruct
+    void startContinuous() {
+        if (!continuousEnabled) {
+            return;
+        }
+        try {
+            continuous = new Recording(Configuration.getConfiguration("default"));
+            continuous.setName("imagecloud-continuous");
+            continuous.setToDisk(true);
+            continuous.setMaxAge(continuousMaxAge);
+            continuous.setMaxSize(continuousMaxSizeMb * 1024 * 1024);
+            continuous.start();
+            log.info("Continuous JFR recording started (max age {}, max size {} MB)",
+                    continuousMaxAge, continuousMaxSizeMb);
+        } catch (IOException | ParseException | IllegalStateException | SecurityException e) {
+            log.warn("Continuous JFR recording could not be started", e);
+            continuous = null;
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        lock.lock();
+        try {
+            if (continuous != null) {
+                continuous.close();
+            }
+            if (onDemand != null) {
+                onDemand.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> status() {
+        lock.lock();
+        try {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("continuous", describe(continuous, "default"));
+            status.put("onDemand", describe(onDemand, onDemandSettings));
+            return status;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts an on-demand recording, replacing a finished one. At most one runs at a time.
+     *
+     * @param duration requested length, capped at {@code profiling.on-demand.max-duration}
+     * @param settings "default" or "profile"
+     */
+    public Map<String, Object> start(Duration duration, String settings) {
+        lock.lock();
+        try {
+            if (onDemand != null && onDemand.getState() == RecordingState.RUNNING) {
+                throw new IllegalStateException("An on-demand recording is already running");
+            }
+            String name = settings != null ? settings : "profile";
+            if (!name.equals("default") && !name.equals("profile")) {
+                throw new IllegalArgumentException("settings must be 'default' or 'profile'");
+            }
+            Duration length = duration == null || duration.compareTo(onDemandMaxDuration) > 0
+                    ? onDemandMaxDuration : duration;
+
+            if (onDemand != null) {
+                onDemand.close();
+            }
+            try {
+                onDemand = new Recording(Configuration.getConfiguration(name));
+            } catch (IOException | ParseException e) {
+                throw new IllegalStateException("JFR settings '" + name + "' are not available", e);
+            }
+            onDemand.setName("imagecloud-on-demand");
+            onDemand.setToDisk(true);
+            onDemand.setDuration(length);
+            onDemand.setMaxSize(onDemandMaxSizeMb * 1024 * 1024);
+            onDemand.start();
+            onDemandSettings = name;
+            lastOnDemandSummary = null;
+            log.info("On-demand JFR recording started ({} settings, {})", name, length);
+            return describe(onDemand, onDemandSettings);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the on-demand recording if it is still running and returns its summary.
+     */
+    public Map<String, Object> stop() {
+        lock.lock();
+        try {
+            if (onDemand == null) {
+                throw new IllegalStateException("No on-demand recording has been started");
+            }
+            if (onDemand.getState() == RecordingState.RUNNING) {
+                onDemand.stop();
+                log.info("On-demand JFR recording stopped");
+            }
+            return onDemandSummary();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> continuousSummary() {
+        Recording recording = continuous;
+        if (recording == null) {
+            throw new IllegalStateException("Continuous recording is disabled");
+        }
+        return summarize(recording);
+    }
+
+    /**
+     * Summary of the current on-demand recording, so far if it is still running.
+     */
+    public Map<String, Object> onDemandSummary() {
+        lock.lock();
+        try {
+            if (onDemand == null) {
+                throw new IllegalStateException("No on-demand recording has been started");
+            }
+            if (onDemand.getState() == RecordingState.RUNNING) {
+                return summarize(onDemand);
+            }
+            if (lastOnDemandSummary == null) {
+                lastOnDemandSummary = summarize(onDemand);
+            }
+            return lastOnDemandSummary;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<String, Object> summarize(Recording recording) {
+        Path file = null;
+        try {
+            file = Files.createTempFile("imagecloud-profile-", ".jfr");
+            recording.dump(file);
+            return RecordingSummary.of(file, top);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read JFR recording", e);
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Could not delete JFR dump {}", file, e);
+                }
+            }
+        }
+    }
+
+    private static Map<String, Object> describe(Recording recording, String settings) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        if (recording == null) {
+            description.put("state", "NONE");
+            return description;
+        }
+        description.put("state", recording.getState().name());
+        description.put("settings", settings);
+        Instant startTime = recording.getStartTime();
+        if (startTime != null) {
+            description.put("startedAt", startTime.toString());
+        }
+        Instant stopTime = recording.getStopTime();
+        if (stopTime != null) {
+            description.put("stoppedAt", stopTime.toString());
+        }
+        if (recording.getDuration() != null) {
+            description.put("duration", recording.getDuration().toString());
+        }
+        if (recording.getMaxAge() != null) {
+            description.put("maxAge", recording.getMaxAge().toString());
+        }
+        description.put("maxSizeBytes", recording.getMaxSize());
+        description.put("sizeBytes", recording.getSize());
+        return description;
+    }
+}
@@ -0,0 +1,16 @@
+package com.imagecloud.common.profiling;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Registers the JFR profiler and its /actuator/profiling endpoint in any service with this jar and the
+ * actuator on its classpath; exposure is still controlled by {@code management.endpoints.web.exposure}.
+ */
+@AutoConfiguration
+@ConditionalOnClass(Endpoint.class)
+@Import({FlightRecorderProfiler.class, ProfilingEndpoint.class})
+public class ProfilingAutoConfiguration {
+}
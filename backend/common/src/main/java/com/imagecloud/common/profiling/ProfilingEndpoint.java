@@ -0,0 +1,66 @@
+package com.imagecloud.common.profiling;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * JFR control at /actuator/profiling:
+ * <ul>
+ *   <li>GET - state of the continuous and on-demand recordings</li>
+ *   <li>GET /continuous, GET /on-demand - JSON summary of that recording</li>
+ *   <li>POST {"durationSeconds": 60, "settings": "profile"} - start an on-demand recording</li>
+ *   <li>DELETE - stop the on-demand recording and return its summary</li>
+ * </ul>
+ */
+@Endpoint(id = "profiling")
+@RequiredArgsConstructor
+public class ProfilingEndpoint {
+
+    private final FlightRecorderProfiler profiler;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return profiler.status();
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<Map<String, Object>> summary(@Selector String recording) {
+        return respond(() -> switch (recording) {
+            case "continuous" -> profiler.continuousSummary();
+            case "on-demand" -> profiler.onDemandSummary();
+            default -> throw new IllegalArgumentException("Unknown recording '" + recording + "'");
+        });
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> start(@Nullable Integer durationSeconds,
+                                                          @Nullable String settings) {
+        Duration duration = durationSeconds != null ? Duration.ofSeconds(durationSeconds) : null;
+        return respond(() -> profiler.start(duration, settings));
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Map<String, Object>> stop() {
+        return respond(profiler::stop);
+    }
+
+    private WebEndpointResponse<Map<String, Object>> respond(Supplier<Map<String, Object>> action) {
+        try {
+            return new WebEndpointResponse<>(action.get());
+        } catch (IllegalArgumentException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), WebEndpointResponse.STATUS_BAD_REQUEST);
+        } catch (IllegalStateException e) {
+            return new WebEndpointResponse<>(Map.of("error", e.getMessage()), 409);
+        }
+    }
+}
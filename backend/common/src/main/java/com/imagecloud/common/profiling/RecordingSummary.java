@@ -0,0 +1,192 @@
+package com.imagecloud.common.profiling;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Condenses a .jfr file into the three views we look at first when latency regresses:
+ * hot methods (execution samples by top frame), allocation sites (sampled allocation weight by top frame and
+ * class) and lock contention (monitor enter time by monitor class and blocked frame).
+ *
+ * Execution samples are also attributed to the libraries on their stack, so one number answers whether
+ * time goes into ImageIO codecs, Jackson, Base64, Hibernate and so on. A sample counts toward every
+ * library on its stack, so those percentages overlap.
+ */
+final class RecordingSummary {
+
+    private static final Map<String, String[]> LIBRARIES = new LinkedHashMap<>();
+
+    static {
+        LIBRARIES.put("imageio", new String[]{"javax.imageio.", "com.sun.imageio.", "sun.awt.image.", "java.awt.image."});
+        LIBRARIES.put("compression", new String[]{"java.util.zip."});
+        LIBRARIES.put("base64", new String[]{"java.util.Base64", "com.fasterxml.jackson.core.Base64Variant"});
+        LIBRARIES.put("jackson", new String[]{"com.fasterxml.jackson."});
+        LIBRARIES.put("hibernate", new String[]{"org.hibernate."});
+        LIBRARIES.put("jdbc", new String[]{"org.postgresql.", "com.zaxxer.hikari."});
+        LIBRARIES.put("amqp", new String[]{"com.rabbitmq.", "org.springframework.amqp."});
+        LIBRARIES.put("application", new String[]{"com.imagecloud."});
+    }
+
+    private static final class Tally {
+        long count;
+        long amount;
+    }
+
+    private RecordingSummary() {
+    }
+
+    static Map<String, Object> of(Path file, int top) throws IOException {
+        Map<String, Tally> hotMethods = new HashMap<>();
+        Map<String, Tally> allocationSites = new HashMap<>();
+        Map<String, Tally> allocatedClasses = new HashMap<>();
+        Map<String, Tally> contention = new HashMap<>();
+        long[] librarySamples = new long[LIBRARIES.size()];
+        long executionSamples = 0;
+        Instant first = null;
+        Instant last = null;
+
+        try (RecordingFile recording = new RecordingFile(file)) {
+            while (recording.hasMoreEvents()) {
+                RecordedEvent event = recording.readEvent();
+                String type = event.getEventType().getName();
+                switch (type) {
+                    case "jdk.ExecutionSample" -> {
+                        executionSamples++;
+                        RecordedStackTrace stack = event.getStackTrace();
+                        add(hotMethods, topFrame(stack), 0);
+                        attributeLibraries(stack, librarySamples);
+                    }
+                    case "jdk.ObjectAllocationSample" -> {
+                        long weight = event.getLong("weight");
+                        RecordedClass objectClass = event.getClass("objectClass");
+                        add(allocationSites, topFrame(event.getStackTrace()), weight);
+                        add(allocatedClasses, objectClass != null ? objectClass.getName() : "unknown", weight);
+                    }
+                    case "jdk.JavaMonitorEnter" -> {
+                        RecordedClass monitorClass = event.getClass("monitorClass");
+                        String key = (monitorClass != null ? monitorClass.getName() : "unknown")
+                                + " at " + topFrame(event.getStackTrace());
+                        add(contention, key, event.getDuration().toNanos());
+                    }
+                    default -> {
+                        continue;
+                    }
+                }
+                Instant start = event.getStartTime();
+                if (first == null || start.isBefore(first)) {
+                    first = start;
+                }
+                if (last == null || start.isAfter(last)) {
+                    last = start;
+                }
+            }
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("from", first != null ? first.toString() : null);
+        summary.put("to", last != null ? last.toString() : null);
+        summary.put("executionSamples", executionSamples);
+
+        Map<String, Object> libraries = new LinkedHashMap<>();
+        int index = 0;
+        for (String library : LIBRARIES.keySet()) {
+            libraries.put(library, percent(librarySamples[index++], executionSamples));
+        }
+        summary.put("librariesOnStackPercent", libraries);
+
+        summary.put("hotMethods", ranked(hotMethods, top, false, "method", "samples", null, 1, executionSamples));
+        summary.put("allocationSites", ranked(allocationSites, top, true, "frame", "sampledEvents", "bytes", 1, 0));
+        summary.put("allocatedClasses", ranked(allocatedClasses, top, true, "class", "sampledEvents", "bytes", 1, 0));
+        // Contention amounts are summed in nanoseconds
+        summary.put("lockContention", ranked(contention, top, true, "monitor", "events", "blockedMillis",
+                1_000_000, 0));
+        return summary;
+    }
+
+    private static void add(Map<String, Tally> tallies, String key, long amount) {
+        Tally tally = tallies.computeIfAbsent(key, k -> new Tally());
+        tally.count++;
+        tally.amount += amount;
+    }
+
+    private static String topFrame(RecordedStackTrace stack) {
+        if (stack == null || stack.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        return format(stack.getFrames().get(0).getMethod());
+    }
+
+    private static String format(RecordedMethod method) {
+        return method.getType().getName() + "." + method.getName();
+    }
+
+    private static void attributeLibraries(RecordedStackTrace stack, long[] librarySamples) {
+        if (stack == null) {
+            return;
+        }
+        boolean[] seen = new boolean[librarySamples.length];
+        for (RecordedFrame frame : stack.getFrames()) {
+            String className = frame.getMethod().getType().getName();
+            int index = 0;
+            for (String[] prefixes : LIBRARIES.values()) {
+                if (!seen[index]) {
+                    for (String prefix : prefixes) {
+                        if (className.startsWith(prefix)) {
+                            seen[index] = true;
+                            librarySamples[index]++;
+                            break;
+                        }
+                    }
+                }
+                index++;
+            }
+        }
+    }
+
+    /**
+     * @param byAmount rank by summed amount rather than by event count
+     * @param amountField JSON name for the amount, or null to omit it
+     * @param amountDivisor unit conversion applied to the amount on output
+     * @param total when > 0, a percentage of this total is added for each entry
+     */
+    private static List<Map<String, Object>> ranked(Map<String, Tally> tallies, int top, boolean byAmount,
+                                                    String keyField, String countField, String amountField,
+                                                    long amountDivisor, long total) {
+        List<Map.Entry<String, Tally>> entries = new ArrayList<>(tallies.entrySet());
+        entries.sort((a, b) -> byAmount
+                ? Long.compare(b.getValue().amount, a.getValue().amount)
+                : Long.compare(b.getValue().count, a.getValue().count));
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, Tally> entry : entries.subList(0, Math.min(top, entries.size()))) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put(keyField, entry.getKey());
+            row.put(countField, entry.getValue().count);
+            if (amountField != null) {
+                row.put(amountField, entry.getValue().amount / amountDivisor);
+            }
+            if (total > 0) {
+                row.put("percent", percent(entry.getValue().count, total));
+            }
+            result.add(row);
+        }
+        return result;
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0.0 : Math.round(part * 1000.0 / total) / 10.0;
+    }
+}
@@ -0,0 +1,90 @@
+package com.imagecloud.common.image;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImageFormatsTest {
+
+    @ParameterizedTest
+    @CsvSource({"png,png", "jpeg,jpeg", "gif,gif", "bmp,bmp", "tiff,tiff"})
+    void detectsFormatsWrittenByImageIO(String writerFormat, String expected) throws IOException {
+        assertThat(ImageFormats.detect(encode(new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB), writerFormat)))
+                .isEqualTo(expected);
+    }
+
+    @Test
+    void detectsBothTiffByteOrders() {
+        assertThat(ImageFormats.detect(bytes('I', 'I', 0x2A, 0x00, 8, 0))).isEqualTo("tiff");
+        assertThat(ImageFormats.detect(bytes('M', 'M', 0x00, 0x2A, 0, 8))).isEqualTo("tiff");
+    }
+
+    @Test
+    void detectsWebpOnlyInsideRiff() {
+        assertThat(ImageFormats.detect(bytes('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P', 'V', 'P', '8')))
+                .isEqualTo("webp");
+        // RIFF is a generic container: WAVE audio must not pass as an image
+        assertThat(ImageFormats.detect(bytes('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'A', 'V', 'E'))).isNull();
+        assertThat(ImageFormats.detect(bytes('R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E'))).isNull();
+    }
+
+    @Test
+    void ignoresTheFileNameAndTrustsOnlyTheBytes() throws IOException {
+        byte[] png = encode(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), "png");
+        assertThat(ImageFormats.detect(png)).isEqualTo("png");
+        assertThat(ImageFormats.detect(Arrays.copyOfRange(png, 1, png.length))).isNull();
+    }
+
+    @Test
+    void returnsNullForUnknownOrTooShortData() {
+        assertThat(ImageFormats.detect(null)).isNull();
+        assertThat(ImageFormats.detect(new byte[0])).isNull();
+        assertThat(ImageFormats.detect(bytes(0xFF, 0xD8, 0xFF))).isNull();
+        assertThat(ImageFormats.detect("%PDF-1.7".getBytes())).isNull();
+        // A truncated PNG signature is not a PNG
+        assertThat(ImageFormats.detect(bytes(0x89, 'P', 'N', 'G', 0x0D, 0x0A))).isNull();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"jpg,jpeg", "JPEG,jpeg", ".jpe,jpeg", "jfif,jpeg", " tif ,tiff", "PNG,png", "webp,webp"})
+    void normalizesUserSuppliedNames(String input, String expected) {
+        assertThat(ImageFormats.normalize(input)).isEqualTo(expected);
+    }
+
+    @Test
+    void onlyJpegAndBmpLoseAlpha() {
+        assertThat(ImageFormats.supportsAlpha("png")).isTrue();
+        assertThat(ImageFormats.supportsAlpha("webp")).isTrue();
+        assertThat(ImageFormats.supportsAlpha("jpeg")).isFalse();
+        assertThat(ImageFormats.supportsAlpha("bmp")).isFalse();
+    }
+
+    @Test
+    void readsPixelCountFromTheHeader() throws IOException {
+        assertThat(ImageFormats.pixelCount(encode(new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB), "png")))
+                .isEqualTo(640L * 480);
+        assertThat(ImageFormats.pixelCount(bytes(0x89, 'P', 'N', 'G'))).isEqualTo(-1);
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThat(ImageIO.write(image, format, out)).isTrue();
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] data = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            data[i] = (byte) values[i];
+        }
+        return data;
+    }
+}
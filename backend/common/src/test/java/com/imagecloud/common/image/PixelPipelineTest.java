@@ -0,0 +1,177 @@
+package com.imagecloud.common.image;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PixelPipelineTest {
+
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+
+    // Forks at any size and cuts strips of a few rows, so every image below goes through the parallel path
+    private final PixelPipeline parallel = new PixelPipeline(new ForkJoinPool(4), 0, WIDTH * 3);
+
+    @AfterEach
+    void tearDown() {
+        parallel.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {
+            BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_4BYTE_ABGR,
+            BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_INT_BGR,
+            BufferedImage.TYPE_USHORT_GRAY,
+            BufferedImage.TYPE_BYTE_GRAY
+    })
+    void keepingAlphaMatchesGetRgb(int type) {
+        BufferedImage source = randomImage(type);
+
+        for (PixelPipeline pipeline : new PixelPipeline[] {PixelPipeline.serial(), parallel}) {
+            BufferedImage prepared = pipeline.prepare(source, true, PixelPipeline.WHITE);
+
+            assertThat(prepared.getType()).isEqualTo(source.getColorModel().hasAlpha()
+                    ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            assertSameArgb(prepared, source, 0);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_INT_ARGB})
+    void droppingAlphaMatchesCompositingOverTheBackground(int type) {
+        BufferedImage source = randomImage(type);
+        int background = 0x3366CC;
+        BufferedImage reference = flattened(source, background);
+
+        for (PixelPipeline pipeline : new PixelPipeline[] {PixelPipeline.serial(), parallel}) {
+            BufferedImage prepared = pipeline.prepare(source, false, background);
+
+            assertThat(prepared.getType()).isEqualTo(BufferedImage.TYPE_INT_RGB);
+            // Java2D may round the blend differently by one step
+            assertSameArgb(prepared, reference, 1);
+        }
+    }
+
+    @Test
+    void flattensFullyTransparentPixelsToTheBackgroundExactly() {
+        BufferedImage source = new BufferedImage(4, 4, BufferedImage.TYPE_4BYTE_ABGR);
+        source.setRGB(1, 1, 0xFF102030);
+
+        BufferedImage prepared = PixelPipeline.serial().prepare(source, false, PixelPipeline.WHITE);
+
+        assertThat(prepared.getRGB(0, 0)).isEqualTo(0xFFFFFFFF);
+        assertThat(prepared.getRGB(1, 1)).isEqualTo(0xFF102030);
+    }
+
+    @Test
+    void indexedImagesUseThePaletteIncludingTheTransparentEntry() {
+        byte[] reds = {0, (byte) 200, 10};
+        byte[] greens = {0, 100, 20};
+        byte[] blues = {0, 50, 30};
+        IndexColorModel palette = new IndexColorModel(8, 3, reds, greens, blues, 0);
+        BufferedImage source = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_INDEXED, palette);
+        Random random = new Random(7);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                source.getRaster().setSample(x, y, 0, random.nextInt(3));
+            }
+        }
+
+        assertSameArgb(parallel.prepare(source, true, PixelPipeline.WHITE), source, 0);
+        BufferedImage flattened = parallel.prepare(source, false, PixelPipeline.WHITE);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int expected = source.getRaster().getSample(x, y, 0) == 0 ? 0xFFFFFFFF : source.getRGB(x, y);
+                assertThat(flattened.getRGB(x, y)).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void subImagesAreReadFromTheirOwnRegion() {
+        BufferedImage parent = randomImage(BufferedImage.TYPE_3BYTE_BGR);
+        BufferedImage source = parent.getSubimage(5, 3, 20, 11);
+
+        BufferedImage prepared = parallel.prepare(source, false, PixelPipeline.WHITE);
+
+        assertThat(prepared.getWidth()).isEqualTo(20);
+        assertThat(prepared.getHeight()).isEqualTo(11);
+        assertSameArgb(prepared, source, 0);
+    }
+
+    @Test
+    void imagesAlreadyInTheTargetLayoutAreReturnedAsIs() {
+        BufferedImage rgb = randomImage(BufferedImage.TYPE_INT_RGB);
+        BufferedImage argb = randomImage(BufferedImage.TYPE_INT_ARGB);
+
+        assertThat(parallel.prepare(rgb, false, PixelPipeline.WHITE)).isSameAs(rgb);
+        assertThat(parallel.prepare(rgb, true, PixelPipeline.WHITE)).isSameAs(rgb);
+        assertThat(parallel.prepare(argb, true, PixelPipeline.WHITE)).isSameAs(argb);
+        assertThat(parallel.prepare(argb, false, PixelPipeline.WHITE)).isNotSameAs(argb);
+    }
+
+    @Test
+    void serialPipelineReportsOneThreadAndClosesQuietly() {
+        PixelPipeline serial = PixelPipeline.serial();
+
+        assertThat(serial.parallelism()).isEqualTo(1);
+        serial.close();
+    }
+
+    private static BufferedImage randomImage(int type) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, type);
+        Random random = new Random(type);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int argb = random.nextInt();
+                // Exercise the blend's shortcuts as well as partial alpha
+                switch (random.nextInt(4)) {
+                    case 0 -> argb &= 0x00FFFFFF;
+                    case 1 -> argb |= 0xFF000000;
+                    default -> { }
+                }
+                image.setRGB(x, y, argb);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage flattened(BufferedImage source, int background) {
+        BufferedImage reference = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = reference.createGraphics();
+        graphics.setColor(new Color(background));
+        graphics.fillRect(0, 0, source.getWidth(), source.getHeight());
+        graphics.setComposite(AlphaComposite.SrcOver);
+        graphics.drawImage(source, 0, 0, null);
+        graphics.dispose();
+        return reference;
+    }
+
+    private static void assertSameArgb(BufferedImage actual, BufferedImage expected, int tolerance) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int a = actual.getRGB(x, y);
+                int e = expected.getRGB(x, y);
+                for (int shift = 0; shift <= 24; shift += 8) {
+                    assertThat((a >>> shift) & 0xFF)
+                            .as("pixel (%d, %d): %08x vs %08x", x, y, a, e)
+                            .isCloseTo((e >>> shift) & 0xFF, within(tolerance));
+                }
+            }
+        }
+    }
+}
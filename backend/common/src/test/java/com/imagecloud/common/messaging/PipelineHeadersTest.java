@@ -0,0 +1,30 @@
+package com.imagecloud.common.messaging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PipelineHeadersTest {
+
+    @Test
+    void readsNumbersAndNumericStrings() {
+        Map<String, Object> headers = Map.of(
+                PipelineHeaders.UPLOADED_AT, 1_700_000_000_000L,
+                PipelineHeaders.SOURCE_BYTES, 2048,
+                PipelineHeaders.ENQUEUED_AT, "1700000000500");
+
+        assertThat(PipelineHeaders.longValue(headers, PipelineHeaders.UPLOADED_AT)).isEqualTo(1_700_000_000_000L);
+        assertThat(PipelineHeaders.longValue(headers, PipelineHeaders.SOURCE_BYTES)).isEqualTo(2048L);
+        assertThat(PipelineHeaders.longValue(headers, PipelineHeaders.ENQUEUED_AT)).isEqualTo(1_700_000_000_500L);
+    }
+
+    @Test
+    void missingOrMalformedHeadersHaveNoValue() {
+        Map<String, Object> headers = Map.of(PipelineHeaders.DEQUEUED_AT, "soon");
+
+        assertThat(PipelineHeaders.longValue(headers, PipelineHeaders.DEQUEUED_AT)).isNull();
+        assertThat(PipelineHeaders.longValue(headers, PipelineHeaders.CONVERSION_STARTED_AT)).isNull();
+    }
+}
@@ -2,8 +2,10 @@ package main.java.com.imagecloud.conversion;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class ConversionServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(ConversionServiceApplication.class, args);
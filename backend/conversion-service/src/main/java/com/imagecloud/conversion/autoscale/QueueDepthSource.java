@@ -0,0 +1,16 @@
+package main.java.com.imagecloud.conversion.autoscale;
+
+/**
+ * Supplies broker-side queue state to the worker demand estimator.
+ * Kept as an interface so the estimator can be driven by a stand-in instead of a live broker.
+ */
+public interface QueueDepthSource {
+
+    /**
+     * @return current queue state, or null if the broker could not be queried
+     */
+    QueueSnapshot sample();
+
+    record QueueSnapshot(long messageCount, int consumerCount) {
+    }
+}
@@ -0,0 +1,36 @@
+package main.java.com.imagecloud.conversion.autoscale;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads depth and consumer count of the conversion request queue with a passive declare.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RabbitQueueDepthSource implements QueueDepthSource {
+
+    private final AmqpAdmin amqpAdmin;
+
+    @Value("${rabbitmq.queue.conversion-request}")
+    private String conversionRequestQueue;
+
+    @Override
+    public QueueSnapshot sample() {
+        try {
+            QueueInformation info = amqpAdmin.getQueueInfo(conversionRequestQueue);
+            if (info == null) {
+                return null;
+            }
+            return new QueueSnapshot(info.getMessageCount(), info.getConsumerCount());
+        } catch (RuntimeException e) {
+            log.warn("Could not read queue depth for {}: {}", conversionRequestQueue, e.getMessage());
+            return null;
+        }
+    }
+}
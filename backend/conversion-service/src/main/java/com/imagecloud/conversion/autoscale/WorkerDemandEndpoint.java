@@ -0,0 +1,24 @@
+package main.java.com.imagecloud.conversion.autoscale;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes the current worker estimate and its inputs at /actuator/workerdemand.
+ */
+@Component
+@Endpoint(id = "workerdemand")
+@RequiredArgsConstructor
+public class WorkerDemandEndpoint {
+
+    private final WorkerDemandEstimator estimator;
+
+    @ReadOperation
+    public Map<String, Object> workerDemand() {
+        return estimator.snapshot();
+    }
+}
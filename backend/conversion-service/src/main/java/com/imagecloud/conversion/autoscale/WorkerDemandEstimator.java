@@ -0,0 +1,141 @@
+package main.java.com.imagecloud.conversion.autoscale;
+
+import com.imagecloud.conversion.autoscale.QueueDepthSource.QueueSnapshot;
+import com.imagecloud.conversion.metrics.ConversionMetrics;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estimates how many conversion workers the cluster needs, so the HPA can scale on demand
+ * instead of waiting for the queue to explode.
+ *
+ * Little's law gives the steady-state concurrency as arrival rate x service time. On top of that,
+ * the backlog already in the queue has to be drained within {@code drain-seconds}:
+ *
+ *   required = ceil(lambda * S / targetUtilization + depth * S / drainSeconds)
+ *
+ * Arrivals are inferred from the change in queue depth plus the messages consumed in the interval.
+ * Cluster-wide consumption is extrapolated from this instance's completions and the broker's consumer count.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WorkerDemandEstimator {
+
+    private final QueueDepthSource queueDepthSource;
+    private final ConversionMetrics conversionMetrics;
+
+    @Value("${autoscaling.sample-interval-ms:5000}")
+    private long sampleIntervalMs;
+
+    @Value("${autoscaling.smoothing:0.3}")
+    private double alpha;
+
+    @Value("${autoscaling.target-utilization:0.75}")
+    private double targetUtilization;
+
+    @Value("${autoscaling.drain-seconds:60}")
+    private double drainSeconds;
+
+    @Value("${autoscaling.min-workers:1}")
+    private int minWorkers;
+
+    @Value("${spring.rabbitmq.listener.simple.concurrency:1}")
+    private int localConsumers;
+
+    private final LongAdder completedJobs = new LongAdder();
+    private final LongAdder serviceMicros = new LongAdder();
+
+    // Written only by the scheduler thread, read by gauges and the actuator endpoint
+    private volatile double arrivalRate;
+    private volatile double serviceSeconds;
+    private volatile long queueDepth;
+    private volatile int requiredWorkers;
+    private volatile long lastDepth = -1;
+    private boolean serviceTimeSeeded;
+    private boolean arrivalRateSeeded;
+
+    @PostConstruct
+    void registerGauges() {
+        requiredWorkers = minWorkers;
+        Gauge.builder("imagecloud.conversion.workers.required", this, e -> e.requiredWorkers)
+                .description("Estimated conversion workers needed to keep up with the queue")
+                .register(conversionMetrics.registry());
+        Gauge.builder("imagecloud.conversion.arrival.rate", this, e -> e.arrivalRate)
+                .description("Smoothed arrival rate of conversion requests per second")
+                .register(conversionMetrics.registry());
+        Gauge.builder("imagecloud.conversion.service.time.avg", this, e -> e.serviceSeconds)
+                .description("Smoothed per-job service time in seconds")
+                .baseUnit("seconds")
+                .register(conversionMetrics.registry());
+        Gauge.builder("imagecloud.conversion.queue.depth", this, e -> e.queueDepth)
+                .description("Messages waiting in the conversion request queue")
+                .register(conversionMetrics.registry());
+    }
+
+    public void recordCompletion(long serviceMillis) {
+        completedJobs.increment();
+        serviceMicros.add(serviceMillis * 1000);
+    }
+
+    @Scheduled(fixedRateString = "${autoscaling.sample-interval-ms:5000}")
+    public void sample() {
+        long completed = completedJobs.sumThenReset();
+        long micros = serviceMicros.sumThenReset();
+        if (completed > 0) {
+            double sampleSeconds = micros / 1_000_000.0 / completed;
+            serviceSeconds = serviceTimeSeeded ? smooth(serviceSeconds, sampleSeconds) : sampleSeconds;
+            serviceTimeSeeded = true;
+        }
+
+        QueueSnapshot snapshot = queueDepthSource.sample();
+        if (snapshot == null) {
+            return;
+        }
+        queueDepth = snapshot.messageCount();
+
+        double intervalSeconds = sampleIntervalMs / 1000.0;
+        if (lastDepth >= 0) {
+            double clusterCompleted = snapshot.consumerCount() > 0
+                    ? completed * (double) snapshot.consumerCount() / Math.max(1, localConsumers)
+                    : 0;
+            double arrivals = Math.max(0, snapshot.messageCount() - lastDepth + clusterCompleted);
+            arrivalRate = arrivalRateSeeded ? smooth(arrivalRate, arrivals / intervalSeconds) : arrivals / intervalSeconds;
+            arrivalRateSeeded = true;
+        }
+        lastDepth = snapshot.messageCount();
+
+        requiredWorkers = estimate(arrivalRate, serviceSeconds, queueDepth);
+        log.debug("Worker demand: lambda={}/s S={}s depth={} -> {}", arrivalRate, serviceSeconds, queueDepth, requiredWorkers);
+    }
+
+    int estimate(double lambda, double s, long depth) {
+        double steady = lambda * s / targetUtilization;
+        double backlog = depth * s / drainSeconds;
+        return Math.max(minWorkers, (int) Math.ceil(steady + backlog));
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("requiredWorkers", requiredWorkers);
+        view.put("arrivalRatePerSecond", arrivalRate);
+        view.put("serviceTimeSeconds", serviceSeconds);
+        view.put("queueDepth", queueDepth);
+        view.put("targetUtilization", targetUtilization);
+        view.put("drainSeconds", drainSeconds);
+        return view;
+    }
+
+    private double smooth(double previous, double sample) {
+        return alpha * sample + (1 - alpha) * previous;
+    }
+}
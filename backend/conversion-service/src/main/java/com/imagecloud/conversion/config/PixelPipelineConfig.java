@@ -0,0 +1,32 @@
+package main.java.com.imagecloud.conversion.config;
+
+import com.imagecloud.common.image.PixelPipeline;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class PixelPipelineConfig {
+
+    // 0 means one thread per available core
+    @Value("${conversion.pipeline.parallelism:0}")
+    private int parallelism;
+
+    @Value("${conversion.pipeline.min-parallel-pixels:2000000}")
+    private long minParallelPixels;
+
+    @Value("${conversion.pipeline.strip-pixels:262144}")
+    private int stripPixels;
+
+    /**
+     * One pool for the whole worker, shared by all listener threads, so concurrent large conversions
+     * split the cores between them rather than each claiming all of them.
+     */
+    @Bean(destroyMethod = "close")
+    public PixelPipeline pixelPipeline() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new PixelPipeline(new ForkJoinPool(threads), minParallelPixels, stripPixels);
+    }
+}
@@ -0,0 +1,18 @@
+package main.java.com.imagecloud.conversion.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversionPreview implements Serializable {
+    private Long imageId;
+    // Small JPEG decoded from a subsampled read of the source, sent ahead of the full result
+    private byte[] previewData;
+    private int width;
+    private int height;
+}
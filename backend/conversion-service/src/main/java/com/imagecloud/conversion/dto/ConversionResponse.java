@@ -14,4 +14,6 @@ public class ConversionResponse implements Serializable {
     private byte[] convertedImageData;
     private boolean success;
     private String errorMessage;
+    // Set when the job was dropped unprocessed because its deadline had passed
+    private boolean expired;
 }
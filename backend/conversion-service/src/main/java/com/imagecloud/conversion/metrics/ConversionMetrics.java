@@ -0,0 +1,226 @@
+package main.java.com.imagecloud.conversion.metrics;
+
+import com.imagecloud.common.metrics.MeterSlots;
+import com.imagecloud.common.metrics.MetricFormat;
+import com.imagecloud.common.metrics.SizeBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single entry point for conversion-service meters.
+ * Meters are resolved once per tag combination and cached in index-addressed slots, so the
+ * per-message path never allocates builders or tag lists or hits the registry's concurrent map.
+ * Every tag value comes from a bounded enum, which caps cardinality for user supplied formats.
+ */
+@Component
+public class ConversionMetrics {
+
+    public enum ConversionStatus {
+        SUCCESS("success"),
+        FAILED("failed"),
+        PASSTHROUGH("passthrough");
+
+        private final String tag;
+
+        ConversionStatus(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final MetricFormat[] FORMATS = MetricFormat.values();
+    private static final SizeBucket[] SIZES = SizeBucket.values();
+    private static final ConversionStatus[] STATUSES = ConversionStatus.values();
+
+    private final MeterRegistry meterRegistry;
+
+    private final MeterSlots<Timer> conversionDuration;
+    private final MeterSlots<Counter> conversionPath;
+    private final MeterSlots<Timer> serviceDuration;
+    private final Timer queueWait;
+    private final Timer messageProcessing;
+    private final Counter expiredJobs;
+    private final DistributionSummary expiredBytes;
+    private final Timer expiredLateness;
+    private final Counter coalesced;
+    private final Timer warmup;
+    private final Timer previewSuccess;
+    private final Timer previewFailed;
+
+    private final AtomicLong passthroughCount = new AtomicLong();
+    private final AtomicLong totalCount = new AtomicLong();
+    // Milliseconds from JVM start to the first completed conversion, -1 until then
+    private final AtomicLong firstConversionMillis = new AtomicLong(-1);
+
+    public ConversionMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        // source_format x target_format x status
+        this.conversionDuration = new MeterSlots<>(FORMATS.length * FORMATS.length * STATUSES.length,
+                this::buildConversionTimer);
+        // path(transcode|passthrough) x detected_format x target_format
+        this.conversionPath = new MeterSlots<>(2 * FORMATS.length * FORMATS.length, this::buildPathCounter);
+        // target_format x size_bucket x outcome(success|failed)
+        this.serviceDuration = new MeterSlots<>(FORMATS.length * SIZES.length * 2, this::buildServiceTimer);
+
+        this.queueWait = Timer.builder("imagecloud.queue.wait.duration")
+                .tag("queue", "conversion-request")
+                .description("Time a message waited in the broker before being consumed")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.messageProcessing = Timer.builder("imagecloud.queue.message.processing.duration")
+                .tag("queue", "conversion-request")
+                .description("Message handling time from dequeue to response publish")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        this.expiredJobs = Counter.builder("imagecloud.conversion.expired.total")
+                .description("Jobs dropped before decoding because their deadline had passed")
+                .register(meterRegistry);
+        this.expiredBytes = DistributionSummary.builder("imagecloud.conversion.expired.bytes")
+                .baseUnit("bytes")
+                .description("Source bytes of expired jobs, i.e. decode work avoided")
+                .register(meterRegistry);
+        this.expiredLateness = Timer.builder("imagecloud.conversion.expired.lateness")
+                .description("How far past its deadline an expired job was when dequeued")
+                .register(meterRegistry);
+
+        this.coalesced = Counter.builder("imagecloud.conversion.coalesced.total")
+                .tag("stage", "worker")
+                .description("Conversions that attached to an identical in-flight conversion instead of running")
+                .register(meterRegistry);
+
+        this.warmup = Timer.builder("imagecloud.conversion.startup.warmup.duration")
+                .description("Time spent on synthetic conversions before listeners were started")
+                .register(meterRegistry);
+        this.previewSuccess = previewTimer("success");
+        this.previewFailed = previewTimer("failed");
+
+        TimeGauge.builder("imagecloud.conversion.startup.first_conversion.time", firstConversionMillis,
+                        TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Time from JVM start to the first completed conversion, -1 until one completes")
+                .register(meterRegistry);
+
+        Gauge.builder("imagecloud.image.conversion.passthrough.ratio", this, ConversionMetrics::passthroughRatio)
+                .description("Share of conversions served without decoding because the source already matched the target")
+                .register(meterRegistry);
+    }
+
+    public MeterRegistry registry() {
+        return meterRegistry;
+    }
+
+    public void recordConversion(String sourceFormat, String targetFormat, ConversionStatus status, long nanos) {
+        int index = (MetricFormat.of(sourceFormat).ordinal() * FORMATS.length + MetricFormat.of(targetFormat).ordinal())
+                * STATUSES.length + status.ordinal();
+        conversionDuration.get(index).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void countPath(boolean passthrough, String detectedFormat, String targetFormat) {
+        totalCount.incrementAndGet();
+        if (passthrough) {
+            passthroughCount.incrementAndGet();
+        }
+        int index = ((passthrough ? 1 : 0) * FORMATS.length + MetricFormat.of(detectedFormat).ordinal()) * FORMATS.length
+                + MetricFormat.of(targetFormat).ordinal();
+        conversionPath.get(index).increment();
+    }
+
+    public void recordQueueWait(long millis) {
+        queueWait.record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordServiceTime(String targetFormat, long sourceBytes, boolean success, long millis) {
+        int index = (MetricFormat.of(targetFormat).ordinal() * SIZES.length + SizeBucket.of(sourceBytes).ordinal()) * 2
+                + (success ? 0 : 1);
+        serviceDuration.get(index).record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordMessageProcessing(long millis) {
+        messageProcessing.record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordExpired(long sourceBytes, long lateMillis) {
+        expiredJobs.increment();
+        expiredBytes.record(sourceBytes);
+        expiredLateness.record(Math.max(0, lateMillis), TimeUnit.MILLISECONDS);
+    }
+
+    public void countCoalesced() {
+        coalesced.increment();
+    }
+
+    public void recordWarmup(long nanos) {
+        warmup.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPreview(boolean success, long nanos) {
+        (success ? previewSuccess : previewFailed).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return true for the first conversion since JVM start, which callers log as time-to-first-conversion
+     */
+    public boolean recordConversionCompleted() {
+        if (firstConversionMillis.get() >= 0) {
+            return false;
+        }
+        return firstConversionMillis.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    public long firstConversionMillis() {
+        return firstConversionMillis.get();
+    }
+
+    private double passthroughRatio() {
+        long total = totalCount.get();
+        return total == 0 ? 0.0 : (double) passthroughCount.get() / total;
+    }
+
+    private Timer previewTimer(String outcome) {
+        return Timer.builder("imagecloud.conversion.preview.duration")
+                .tag("outcome", outcome)
+                .description("Time to render a progressive preview from a subsampled decode")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Timer buildConversionTimer(int index) {
+        int formats = index / STATUSES.length;
+        return Timer.builder("imagecloud.image.conversion.duration")
+                .tag("source_format", FORMATS[formats / FORMATS.length].tag())
+                .tag("target_format", FORMATS[formats % FORMATS.length].tag())
+                .tag("status", STATUSES[index % STATUSES.length].tag)
+                .description("Image conversion processing time")
+                .register(meterRegistry);
+    }
+
+    private Counter buildPathCounter(int index) {
+        int pathAndDetected = index / FORMATS.length;
+        return Counter.builder("imagecloud.image.conversion.path.total")
+                .tag("path", pathAndDetected / FORMATS.length == 1 ? "passthrough" : "transcode")
+                .tag("detected_format", FORMATS[pathAndDetected % FORMATS.length].tag())
+                .tag("target_format", FORMATS[index % FORMATS.length].tag())
+                .description("Conversions by execution path (passthrough or transcode)")
+                .register(meterRegistry);
+    }
+
+    private Timer buildServiceTimer(int index) {
+        int formatAndSize = index / 2;
+        return Timer.builder("imagecloud.conversion.service.duration")
+                .tag("target_format", FORMATS[formatAndSize / SIZES.length].tag())
+                .tag("size_bucket", SIZES[formatAndSize % SIZES.length].tag())
+                .tag("outcome", index % 2 == 0 ? "success" : "failed")
+                .description("Worker service time from conversion start to end")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,68 @@
+package main.java.com.imagecloud.conversion.service;
+
+import com.imagecloud.conversion.metrics.ConversionMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process single-flight for conversions.
+ * Listener threads converting the same source bytes to the same target at the same time share one
+ * execution: the first caller does the work, later callers block on its result (or its failure).
+ * Nothing is cached once the leader finishes.
+ *
+ * Keyed by the source hash main-service computed, so the worker never hashes payloads itself. Only useful
+ * with more than one listener thread, or in all-in-one mode where upload threads convert in process.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConversionSingleFlight {
+
+    @FunctionalInterface
+    public interface Conversion {
+        byte[] run() throws IOException;
+    }
+
+    private final ConversionMetrics conversionMetrics;
+
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    public byte[] execute(String key, Conversion conversion) throws IOException {
+        CompletableFuture<byte[]> flight = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            conversionMetrics.countCoalesced();
+            return await(running);
+        }
+
+        try {
+            byte[] result = conversion.run();
+            flight.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private byte[] await(CompletableFuture<byte[]> running) throws IOException {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+}
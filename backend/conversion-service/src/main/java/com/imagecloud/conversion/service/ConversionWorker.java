@@ -0,0 +1,139 @@
+package main.java.com.imagecloud.conversion.service;
+
+import com.imagecloud.common.image.ImageFormats;
+import com.imagecloud.conversion.dto.ConversionPreview;
+import com.imagecloud.conversion.dto.ConversionRequest;
+import com.imagecloud.conversion.dto.ConversionResponse;
+import com.imagecloud.conversion.metrics.ConversionMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Runs one conversion request to a response, independent of how it arrived: sheds it when its deadline
+ * has passed, otherwise converts it, sharing the work with an identical request already running here.
+ * Large images first get a low-resolution preview, handed to the caller before the full conversion starts.
+ *
+ * Used by the RabbitMQ listener and, in all-in-one deployments, directly by main-service's in-process bus.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversionWorker {
+
+    /**
+     * @param startedAt epoch millis the conversion started, null if the request was shed
+     * @param finishedAt epoch millis the conversion finished, null if the request was shed
+     */
+    public record Outcome(ConversionResponse response, Long startedAt, Long finishedAt) {
+    }
+
+    private final ImageConversionService conversionService;
+    private final ConversionMetrics conversionMetrics;
+    private final ConversionSingleFlight singleFlight;
+    private final PreviewRenderer previewRenderer;
+
+    /**
+     * @param previews receives the preview if one is rendered; null to skip previews
+     */
+    public Outcome process(ConversionRequest request, long dequeuedAt, Consumer<ConversionPreview> previews) {
+        int sourceBytes = request.getImageData() != null ? request.getImageData().length : 0;
+        String targetFormat = request.getTargetFormat() != null ? request.getTargetFormat() : "unknown";
+
+        ConversionResponse response = new ConversionResponse();
+        response.setImageId(request.getImageId());
+
+        // Shed work nobody is waiting for any more, before spending CPU on decoding it
+        Long deadline = request.getDeadline();
+        if (deadline != null && dequeuedAt > deadline) {
+            log.warn("Dropping expired conversion request for image ID: {} ({} ms past deadline)",
+                    request.getImageId(), dequeuedAt - deadline);
+            conversionMetrics.recordExpired(sourceBytes, dequeuedAt - deadline);
+            response.setSuccess(false);
+            response.setExpired(true);
+            response.setErrorMessage("Conversion deadline exceeded before processing started");
+            return new Outcome(response, null, null);
+        }
+
+        long conversionStartedAt = System.currentTimeMillis();
+        // Sniffed once here; the preview, the passthrough check and the conversion all use it
+        String detectedFormat = request.getImageData() != null ? ImageFormats.detect(request.getImageData()) : null;
+        boolean passthrough = ImageConversionService.isPassthrough(detectedFormat, request.getTargetFormat());
+        // A passthrough result is ready immediately, so a preview would only delay it
+        if (previews != null && !passthrough) {
+            emitPreview(request, previews);
+        }
+        try {
+            // Perform image conversion, sharing the work with any identical request already running here.
+            // A passthrough costs nothing to repeat, so it never goes through the single-flight
+            ConversionSingleFlight.Conversion conversion = () -> conversionService.convertImage(
+                    request.getImageData(),
+                    detectedFormat,
+                    request.getOriginalFormat(),
+                    request.getTargetFormat()
+            );
+            String key = passthrough ? null : coalescingKey(request);
+            byte[] convertedData = key != null ? singleFlight.execute(key, conversion) : conversion.run();
+
+            response.setConvertedImageData(convertedData);
+            response.setSuccess(true);
+            log.info("Successfully converted image ID: {}", request.getImageId());
+
+        } catch (Exception e) {
+            log.error("Error converting image ID: {}", request.getImageId(), e);
+            response.setSuccess(false);
+            response.setErrorMessage("Conversion failed: " + e.getMessage());
+        }
+        long conversionFinishedAt = System.currentTimeMillis();
+
+        conversionMetrics.recordServiceTime(targetFormat, sourceBytes, response.isSuccess(),
+                conversionFinishedAt - conversionStartedAt);
+        if (conversionMetrics.recordConversionCompleted()) {
+            log.info("First conversion completed {} ms after JVM start", conversionMetrics.firstConversionMillis());
+        }
+        return new Outcome(response, conversionStartedAt, conversionFinishedAt);
+    }
+
+    /**
+     * Preview failures are logged and otherwise ignored; the full conversion still runs.
+     */
+    private void emitPreview(ConversionRequest request, Consumer<ConversionPreview> previews) {
+        if (!previewRenderer.enabled() || request.getImageData() == null) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        ConversionPreview preview;
+        try {
+            preview = previewRenderer.render(request.getImageId(), request.getImageData());
+        } catch (IOException | RuntimeException e) {
+            conversionMetrics.recordPreview(false, System.nanoTime() - startedAt);
+            log.warn("Could not render preview for image ID: {}: {}", request.getImageId(), e.getMessage());
+            return;
+        }
+        if (preview == null) {
+            return;
+        }
+        conversionMetrics.recordPreview(true, System.nanoTime() - startedAt);
+
+        try {
+            previews.accept(preview);
+        } catch (RuntimeException e) {
+            log.warn("Could not deliver preview for image ID: {}: {}", request.getImageId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Built from the hash main-service sent along rather than hashing the payload again here. Without one
+     * (coalescing disabled upstream, or an older sender) the request simply runs on its own.
+     */
+    private String coalescingKey(ConversionRequest request) {
+        if (request.getSourceHash() == null) {
+            return null;
+        }
+        return request.getSourceHash() + ":" + ImageFormats.normalize(request.getTargetFormat());
+    }
+}
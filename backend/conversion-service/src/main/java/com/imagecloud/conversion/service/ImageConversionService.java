@@ -1,66 +1,67 @@
 package main.java.com.imagecloud.conversion.service;
 
-import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
-import lombok.RequiredArgsConstructor;
+import com.imagecloud.common.image.ImageFormats;
+import com.imagecloud.common.image.ImageTranscoder;
+import com.imagecloud.common.image.PixelPipeline;
+import com.imagecloud.conversion.metrics.ConversionMetrics.ConversionStatus;
+import com.imagecloud.conversion.metrics.ConversionMetrics;
 import lombok.extern.slf4j.Slf4j;
-import net.coobird.thumbnailator.Thumbnails;
 import org.springframework.stereotype.Service;
 
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class ImageConversionService {
 
-    private final MeterRegistry meterRegistry;
+    private final ConversionMetrics conversionMetrics;
+    private final ImageTranscoder transcoder;
 
-    public byte[] convertImage(byte[] imageData, String sourceFormat, String targetFormat) throws IOException {
+    public ImageConversionService(ConversionMetrics conversionMetrics, PixelPipeline pixelPipeline) {
+        this.conversionMetrics = conversionMetrics;
+        this.transcoder = new ImageTranscoder(pixelPipeline);
+    }
+
+    /**
+     * True when the bytes already are the requested format, so the conversion returns them unchanged.
+     */
+    public static boolean isPassthrough(String detectedFormat, String targetFormat) {
+        return detectedFormat != null && detectedFormat.equals(ImageFormats.normalize(targetFormat));
+    }
+
+    /**
+     * @param detectedFormat format sniffed from {@code imageData} by the caller, or null if unrecognised
+     */
+    public byte[] convertImage(byte[] imageData, String detectedFormat, String sourceFormat, String targetFormat)
+            throws IOException {
         log.info("Converting image from {} to {}", sourceFormat, targetFormat);
         
-        Timer.Sample sample = Timer.start(meterRegistry);
-        try {
-            // Read the input image
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(imageData);
-            BufferedImage bufferedImage = ImageIO.read(inputStream);
+        long startedAt = System.nanoTime();
 
-            if (bufferedImage == null) {
-                throw new IOException("Failed to read image data");
-            }
-
-            // Convert using Thumbnailator (maintains quality, handles transparency)
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            
-            Thumbnails.of(bufferedImage)
-                    .scale(1.0) // Keep original size
-                    .outputFormat(targetFormat)
-                    .toOutputStream(outputStream);
+        // Fast path: the bytes already are the requested format, so skip the decode/encode round trip
+        if (isPassthrough(detectedFormat, targetFormat)) {
+            conversionMetrics.countPath(true, detectedFormat, targetFormat);
+            conversionMetrics.recordConversion(sourceFormat, targetFormat, ConversionStatus.PASSTHROUGH,
+                    System.nanoTime() - startedAt);
+            log.info("Source already {}; returning original {} bytes unchanged", detectedFormat, imageData.length);
+            return imageData;
+        }
+        conversionMetrics.countPath(false, detectedFormat, targetFormat);
 
-            byte[] result = outputStream.toByteArray();
+        try {
+            // Same transcoder as main-service's inline path, so both produce identical output
+            byte[] result = transcoder.transcode(imageData, targetFormat);
             log.info("Image conversion successful. Output size: {} bytes", result.length);
             
             // Record successful conversion time
-            sample.stop(Timer.builder("imagecloud.image.conversion.duration")
-                    .tag("source_format", sourceFormat)
-                    .tag("target_format", targetFormat)
-                    .tag("status", "success")
-                    .description("Image conversion processing time")
-                    .register(meterRegistry));
+            conversionMetrics.recordConversion(sourceFormat, targetFormat, ConversionStatus.SUCCESS,
+                    System.nanoTime() - startedAt);
 
             return result;
         } catch (IOException e) {
             // Record failed conversion time
-            sample.stop(Timer.builder("imagecloud.image.conversion.duration")
-                    .tag("source_format", sourceFormat)
-                    .tag("target_format", targetFormat)
-                    .tag("status", "failed")
-                    .description("Image conversion processing time")
-                    .register(meterRegistry));
+            conversionMetrics.recordConversion(sourceFormat, targetFormat, ConversionStatus.FAILED,
+                    System.nanoTime() - startedAt);
             throw e;
         }
     }
@@ -1,21 +1,31 @@
 package main.java.com.imagecloud.conversion.service;
 
+import com.imagecloud.common.messaging.PipelineHeaders;
+import com.imagecloud.conversion.dto.ConversionPreview;
 import com.imagecloud.conversion.dto.ConversionRequest;
+import com.imagecloud.conversion.autoscale.WorkerDemandEstimator;
 import com.imagecloud.conversion.dto.ConversionResponse;
+import com.imagecloud.conversion.metrics.ConversionMetrics;
+import com.imagecloud.conversion.service.ConversionWorker.Outcome;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MessageConsumer {
 
-    private final ImageConversionService conversionService;
+    private final ConversionWorker conversionWorker;
     private final RabbitTemplate rabbitTemplate;
+    private final ConversionMetrics conversionMetrics;
+    private final WorkerDemandEstimator workerDemandEstimator;
 
     @Value("${rabbitmq.exchange.image}")
     private String imageExchange;
@@ -23,33 +33,74 @@ public class MessageConsumer {
     @Value("${rabbitmq.routing-key.conversion-response}")
     private String conversionResponseRoutingKey;
 
+    @Value("${rabbitmq.routing-key.conversion-preview}")
+    private String conversionPreviewRoutingKey;
+
     @RabbitListener(queues = "${rabbitmq.queue.conversion-request}")
-    public void consumeConversionRequest(ConversionRequest request) {
+    public void consumeConversionRequest(ConversionRequest request, @Headers Map<String, Object> headers) {
+        long dequeuedAt = System.currentTimeMillis();
         log.info("Received conversion request for image ID: {}", request.getImageId());
 
-        ConversionResponse response = new ConversionResponse();
-        response.setImageId(request.getImageId());
-
-        try {
-            // Perform image conversion
-            byte[] convertedData = conversionService.convertImage(
-                    request.getImageData(),
-                    request.getOriginalFormat(),
-                    request.getTargetFormat()
-            );
-
-            response.setConvertedImageData(convertedData);
-            response.setSuccess(true);
-            log.info("Successfully converted image ID: {}", request.getImageId());
-
-        } catch (Exception e) {
-            log.error("Error converting image ID: {}", request.getImageId(), e);
-            response.setSuccess(false);
-            response.setErrorMessage("Conversion failed: " + e.getMessage());
+        int sourceBytes = request.getImageData() != null ? request.getImageData().length : 0;
+
+        // Time spent in image.conversion.request before this worker picked it up
+        Long enqueuedAt = PipelineHeaders.longValue(headers, PipelineHeaders.ENQUEUED_AT);
+        if (enqueuedAt != null) {
+            conversionMetrics.recordQueueWait(dequeuedAt - enqueuedAt);
         }
 
-        // Send response back via RabbitMQ
-        rabbitTemplate.convertAndSend(imageExchange, conversionResponseRoutingKey, response);
-        log.info("Sent conversion response for image ID: {}", request.getImageId());
+        Outcome outcome = conversionWorker.process(request, dequeuedAt,
+                preview -> sendPreview(preview, headers, sourceBytes));
+        if (outcome.startedAt() != null) {
+            workerDemandEstimator.recordCompletion(outcome.finishedAt() - outcome.startedAt());
+        }
+
+        sendResponse(outcome.response(), headers, sourceBytes, dequeuedAt, outcome.startedAt(), outcome.finishedAt());
+        conversionMetrics.recordMessageProcessing(System.currentTimeMillis() - dequeuedAt);
+    }
+
+    /**
+     * Send response back via RabbitMQ, forwarding upstream timestamps and adding this hop's.
+     * Conversion timestamps are null when the job was never started.
+     */
+    private void sendResponse(ConversionResponse response, Map<String, Object> headers, int sourceBytes,
+                              long dequeuedAt, Long conversionStartedAt, Long conversionFinishedAt) {
+        rabbitTemplate.convertAndSend(imageExchange, conversionResponseRoutingKey, response, message -> {
+            Map<String, Object> out = message.getMessageProperties().getHeaders();
+            copyHeader(headers, out, PipelineHeaders.UPLOADED_AT);
+            copyHeader(headers, out, PipelineHeaders.ENQUEUED_AT);
+            out.put(PipelineHeaders.SOURCE_BYTES, (long) sourceBytes);
+            out.put(PipelineHeaders.DEQUEUED_AT, dequeuedAt);
+            if (conversionStartedAt != null) {
+                out.put(PipelineHeaders.CONVERSION_STARTED_AT, conversionStartedAt);
+                out.put(PipelineHeaders.CONVERSION_FINISHED_AT, conversionFinishedAt);
+            }
+            out.put(PipelineHeaders.RESPONSE_ENQUEUED_AT, System.currentTimeMillis());
+            return message;
+        });
+        log.info("Sent conversion response for image ID: {}", response.getImageId());
+    }
+
+    /**
+     * Publishes a preview ahead of the full result. It carries the upload timestamp, so main-service can
+     * measure time to first pixel.
+     */
+    private void sendPreview(ConversionPreview preview, Map<String, Object> headers, int sourceBytes) {
+        rabbitTemplate.convertAndSend(imageExchange, conversionPreviewRoutingKey, preview, message -> {
+            Map<String, Object> out = message.getMessageProperties().getHeaders();
+            copyHeader(headers, out, PipelineHeaders.UPLOADED_AT);
+            out.put(PipelineHeaders.SOURCE_BYTES, (long) sourceBytes);
+            out.put(PipelineHeaders.RESPONSE_ENQUEUED_AT, System.currentTimeMillis());
+            return message;
+        });
+        log.info("Sent preview for image ID: {} ({}x{}, {} bytes)", preview.getImageId(), preview.getWidth(),
+                preview.getHeight(), preview.getPreviewData().length);
+    }
+
+    private void copyHeader(Map<String, Object> from, Map<String, Object> to, String name) {
+        Long value = PipelineHeaders.longValue(from, name);
+        if (value != null) {
+            to.put(name, value);
+        }
     }
 }
@@ -0,0 +1,99 @@
+package main.java.com.imagecloud.conversion.service;
+
+import com.imagecloud.common.image.PixelPipeline;
+import com.imagecloud.conversion.dto.ConversionPreview;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Renders a small JPEG of a large source image, cheap enough to send before the full conversion starts.
+ *
+ * The decoder is asked for every n-th pixel of every n-th row ({@link ImageReadParam#setSourceSubsampling}),
+ * so the full-resolution raster is never allocated and colour conversion only touches the sampled pixels.
+ * Dimensions are read from the header first; images below {@code min-pixels} get no preview, as their
+ * full conversion is about as fast.
+ */
+@Service
+@RequiredArgsConstructor
+public class PreviewRenderer {
+
+    private final PixelPipeline pixelPipeline;
+
+    @Value("${conversion.preview.enabled:true}")
+    private boolean enabled;
+
+    @Value("${conversion.preview.min-pixels:4000000}")
+    private long minPixels;
+
+    @Value("${conversion.preview.max-dimension:512}")
+    private int maxDimension;
+
+    @Value("${conversion.preview.quality:0.7}")
+    private float quality;
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the preview, or null if the image is too small for one or its format cannot be read
+     */
+    public ConversionPreview render(Long imageId, byte[] imageData) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(imageData))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height < minPixels) {
+                    return null;
+                }
+
+                int step = Math.max(1, (int) Math.ceil(Math.max(width, height) / (double) maxDimension));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage sampled = reader.read(0, param);
+
+                // JPEG has no alpha channel
+                BufferedImage rgb = pixelPipeline.prepare(sampled, false, PixelPipeline.WHITE);
+                return new ConversionPreview(imageId, encodeJpeg(rgb), rgb.getWidth(), rgb.getHeight());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
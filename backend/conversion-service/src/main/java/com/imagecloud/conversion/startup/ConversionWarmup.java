@@ -0,0 +1,159 @@
+package main.java.com.imagecloud.conversion.startup;
+
+import com.imagecloud.common.image.ImageFormats;
+import com.imagecloud.common.image.PixelPipeline;
+import com.imagecloud.conversion.metrics.ConversionMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Runs synthetic conversions before the worker takes traffic, so the first real jobs after a scale-out
+ * do not pay for ImageIO plugin registration, codec class loading and interpreted pixel loops.
+ *
+ * Listener containers are created stopped ({@code spring.rabbitmq.listener.simple.auto-startup: false})
+ * and started here once warm-up is done. Spring Boot reports readiness only after application runners
+ * return, so the readiness probe stays down for the same period.
+ *
+ * With {@code conversion.warmup.exit-after-warmup} the application exits instead of consuming. The
+ * fast-startup build uses this for its class-data-sharing training run, so the archive also covers the
+ * codec and pipeline classes the warm-up loaded.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConversionWarmup implements ApplicationRunner {
+
+    private final PixelPipeline pixelPipeline;
+    private final ConversionMetrics conversionMetrics;
+    private final RabbitListenerEndpointRegistry listenerRegistry;
+    private final ConfigurableApplicationContext context;
+
+    @Value("${conversion.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${conversion.warmup.iterations:5}")
+    private int iterations;
+
+    @Value("${conversion.warmup.formats:png,jpeg,gif,bmp,tiff}")
+    private List<String> formats;
+
+    @Value("${conversion.warmup.exit-after-warmup:false}")
+    private boolean exitAfterWarmup;
+
+    @Value("${conversion.pipeline.min-parallel-pixels:2000000}")
+    private long minParallelPixels;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (enabled) {
+            long startedAt = System.nanoTime();
+            warmCodecs();
+            warmConversions();
+            long nanos = System.nanoTime() - startedAt;
+            conversionMetrics.recordWarmup(nanos);
+            log.info("Conversion warm-up finished in {} ms ({} formats, {} iterations)",
+                    nanos / 1_000_000, formats.size(), iterations);
+        }
+
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (exitAfterWarmup) {
+            log.info("Exiting after warm-up as requested, {} ms after JVM start", uptime);
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+
+        listenerRegistry.start();
+        log.info("Conversion listeners started {} ms after JVM start", uptime);
+    }
+
+    /**
+     * Looks up a reader and a writer for every format once; the first lookup scans the classpath for
+     * ImageIO plugins and loads the codec classes.
+     */
+    private void warmCodecs() {
+        for (String format : formats) {
+            Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName(format);
+            if (readers.hasNext()) {
+                readers.next().dispose();
+            }
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+            if (writers.hasNext()) {
+                writers.next().dispose();
+            } else {
+                log.warn("No ImageIO writer for warm-up format {}", format);
+            }
+        }
+    }
+
+    /**
+     * Decodes and re-encodes a small image between every pair of formats, enough times for the JIT to
+     * compile the pixel loops, then converts one image large enough to go through the parallel strip path.
+     * Calls the pipeline directly rather than the conversion service so warm-up stays out of the
+     * conversion metrics.
+     */
+    private void warmConversions() throws IOException {
+        BufferedImage small = syntheticImage(256, 256);
+        for (String source : formats) {
+            byte[] encoded = encode(small, source);
+            if (encoded == null) {
+                continue;
+            }
+            for (int i = 0; i < iterations; i++) {
+                for (String target : formats) {
+                    convert(encoded, target);
+                }
+            }
+        }
+
+        int width = 2048;
+        int height = (int) Math.max(1, minParallelPixels / width + 1);
+        byte[] large = encode(syntheticImage(width, height), "png");
+        if (large != null) {
+            convert(large, "jpeg");
+        }
+    }
+
+    private void convert(byte[] data, String targetFormat) throws IOException {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(data));
+        if (decoded == null) {
+            return;
+        }
+        encode(decoded, targetFormat);
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        BufferedImage prepared = pixelPipeline.prepare(image,
+                ImageFormats.supportsAlpha(ImageFormats.normalize(format)), PixelPipeline.WHITE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        return ImageIO.write(prepared, format, out) ? out.toByteArray() : null;
+    }
+
+    // Gradient with a transparent corner, so both the alpha-keeping and the flattening branches run
+    private static BufferedImage syntheticImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int alpha = x < width / 4 && y < height / 4 ? 0x40 : 0xFF;
+                image.setRGB(x, y, alpha << 24 | (x * 255 / width) << 16 | (y * 255 / height) << 8 | (x ^ y) & 0xFF);
+            }
+        }
+        return image;
+    }
+}
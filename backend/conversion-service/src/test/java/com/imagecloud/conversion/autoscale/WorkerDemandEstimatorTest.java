@@ -0,0 +1,102 @@
+package com.imagecloud.conversion.autoscale;
+
+import com.imagecloud.conversion.autoscale.QueueDepthSource.QueueSnapshot;
+import com.imagecloud.conversion.metrics.ConversionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class WorkerDemandEstimatorTest {
+
+    private final Deque<QueueSnapshot> snapshots = new ArrayDeque<>();
+    private WorkerDemandEstimator estimator;
+
+    @BeforeEach
+    void setUp() {
+        estimator = new WorkerDemandEstimator(snapshots::poll, new ConversionMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(estimator, "sampleIntervalMs", 5000L);
+        ReflectionTestUtils.setField(estimator, "alpha", 0.5);
+        ReflectionTestUtils.setField(estimator, "targetUtilization", 0.75);
+        ReflectionTestUtils.setField(estimator, "drainSeconds", 60.0);
+        ReflectionTestUtils.setField(estimator, "minWorkers", 1);
+        ReflectionTestUtils.setField(estimator, "localConsumers", 2);
+        estimator.registerGauges();
+    }
+
+    @Test
+    void steadyStateFollowsLittlesLawAtTargetUtilization() {
+        // 6 jobs/s x 0.5 s = 3 busy workers, 4 at 75% utilization
+        assertThat(estimator.estimate(6, 0.5, 0)).isEqualTo(4);
+    }
+
+    @Test
+    void backlogAddsWorkersToDrainItInTime() {
+        // 240 queued x 0.5 s over 60 s = 2 more workers
+        assertThat(estimator.estimate(6, 0.5, 240)).isEqualTo(6);
+        assertThat(estimator.estimate(0, 0.5, 240)).isEqualTo(2);
+    }
+
+    @Test
+    void roundsUpPartialWorkers() {
+        assertThat(estimator.estimate(1, 1.0, 0)).isEqualTo(2);
+        assertThat(estimator.estimate(0.75, 1.0, 0)).isEqualTo(1);
+    }
+
+    @Test
+    void neverDropsBelowTheMinimum() {
+        ReflectionTestUtils.setField(estimator, "minWorkers", 3);
+
+        assertThat(estimator.estimate(0, 0, 0)).isEqualTo(3);
+        assertThat(estimator.estimate(0, 2.0, 0)).isEqualTo(3);
+    }
+
+    @Test
+    void infersArrivalsFromDepthChangeAndClusterWideCompletions() {
+        snapshots.add(new QueueSnapshot(100, 4));
+        estimator.sample();
+
+        // This instance ran 10 jobs of 200 ms on 2 of the 4 consumers: 20 cluster-wide, while depth grew by 30
+        for (int i = 0; i < 10; i++) {
+            estimator.recordCompletion(200);
+        }
+        snapshots.add(new QueueSnapshot(130, 4));
+        estimator.sample();
+
+        assertThat((double) estimator.snapshot().get("arrivalRatePerSecond")).isCloseTo(10.0, within(1e-9));
+        assertThat((double) estimator.snapshot().get("serviceTimeSeconds")).isCloseTo(0.2, within(1e-9));
+        // 10/s x 0.2 s / 0.75 = 2.67, plus 130 x 0.2 s / 60 s = 0.43
+        assertThat(estimator.snapshot().get("requiredWorkers")).isEqualTo(4);
+    }
+
+    @Test
+    void smoothsLaterSamples() {
+        snapshots.add(new QueueSnapshot(0, 1));
+        estimator.sample();
+        snapshots.add(new QueueSnapshot(50, 1));
+        estimator.sample();
+        snapshots.add(new QueueSnapshot(50, 1));
+        estimator.sample();
+
+        // First rate seeds at 10/s, the next sample (0/s) is blended in with alpha 0.5
+        assertThat((double) estimator.snapshot().get("arrivalRatePerSecond")).isCloseTo(5.0, within(1e-9));
+    }
+
+    @Test
+    void keepsTheLastEstimateWhenTheBrokerCannotBeQueried() {
+        snapshots.add(new QueueSnapshot(600, 1));
+        estimator.recordCompletion(1000);
+        estimator.sample();
+        Object before = estimator.snapshot().get("requiredWorkers");
+
+        estimator.sample();
+
+        assertThat(estimator.snapshot().get("requiredWorkers")).isEqualTo(before).isEqualTo(10);
+    }
+}
@@ -0,0 +1,128 @@
+package com.imagecloud.conversion.service;
+
+import com.imagecloud.conversion.metrics.ConversionMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConversionSingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ConversionSingleFlight singleFlight = new ConversionSingleFlight(new ConversionMetrics(registry));
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersWithTheSameKeyShareOneConversion() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        byte[] result = {1, 2, 3};
+
+        Future<byte[]> leader = executor.submit(() -> singleFlight.execute("a:jpeg", () -> {
+            runs.incrementAndGet();
+            leaderStarted.countDown();
+            hold(release);
+            return result;
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<byte[]> follower = executor.submit(() -> singleFlight.execute("a:jpeg", () -> {
+            runs.incrementAndGet();
+            return new byte[0];
+        }));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void followersReceiveTheLeadersFailure() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<byte[]> leader = executor.submit(() -> singleFlight.execute("b:png", () -> {
+            leaderStarted.countDown();
+            hold(release);
+            throw new IOException("corrupt image");
+        }));
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<byte[]> follower = executor.submit(() -> singleFlight.execute("b:png", () -> new byte[0]));
+        awaitCoalesced(1);
+        release.countDown();
+
+        for (Future<byte[]> caller : List.of(leader, follower)) {
+            assertThatThrownBy(() -> caller.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IOException.class)
+                    .hasRootCauseMessage("corrupt image");
+        }
+    }
+
+    @Test
+    void differentKeysRunIndependently() throws IOException {
+        assertThat(singleFlight.execute("c:jpeg", () -> new byte[] {1})).containsExactly(1);
+        assertThat(singleFlight.execute("c:png", () -> new byte[] {2})).containsExactly(2);
+        assertThat(coalesced()).isZero();
+    }
+
+    @Test
+    void nothingIsCachedOnceTheLeaderFinishes() throws IOException {
+        AtomicInteger runs = new AtomicInteger();
+
+        singleFlight.execute("d:jpeg", () -> new byte[] {(byte) runs.incrementAndGet()});
+        byte[] second = singleFlight.execute("d:jpeg", () -> new byte[] {(byte) runs.incrementAndGet()});
+
+        assertThat(second).containsExactly(2);
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    void aFailedFlightDoesNotPoisonTheKey() throws IOException {
+        assertThatThrownBy(() -> singleFlight.execute("e:jpeg", () -> {
+            throw new IllegalStateException("decoder crashed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(singleFlight.execute("e:jpeg", () -> new byte[] {9})).containsExactly(9);
+    }
+
+    // Conversions may only throw IOException, so the latch wait rethrows interruption unchecked
+    private static void hold(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void awaitCoalesced(double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(coalesced()).isEqualTo(expected);
+    }
+
+    private double coalesced() {
+        return registry.get("imagecloud.conversion.coalesced.total").counter().count();
+    }
+}
@@ -0,0 +1,12 @@
+package com.imagecloud.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class LoadTestApplication {
+    public static void main(String[] args) {
+        // The exit code reports whether the run met its latency budget, so CI can gate on it
+        System.exit(SpringApplication.exit(SpringApplication.run(LoadTestApplication.class, args)));
+    }
+}
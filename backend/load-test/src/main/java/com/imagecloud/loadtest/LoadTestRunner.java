@@ -0,0 +1,234 @@
+package com.imagecloud.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.imagecloud.loadtest.infra.EmbeddedBroker;
+import com.imagecloud.loadtest.infra.EmbeddedDatabase;
+import com.imagecloud.loadtest.infra.ServiceProcess;
+import com.imagecloud.loadtest.load.ImageMix;
+import com.imagecloud.loadtest.load.LatencyRecorder.Percentiles;
+import com.imagecloud.loadtest.load.OpenLoopDriver;
+import com.imagecloud.loadtest.report.JvmStatsCollector;
+import com.imagecloud.loadtest.report.JvmStatsCollector.JvmStats;
+import com.imagecloud.loadtest.report.LoadTestReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.stereotype.Component;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Starts the stand-ins and both services (unless pointed at running ones), drives the configured load,
+ * and writes the report. Exits non-zero when {@code load.max-p99-ms} is set and end-to-end p99 exceeds it,
+ * or when jobs time out, so a capacity regression fails the build that runs it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LoadTestRunner implements CommandLineRunner, ExitCodeGenerator {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${load.start-services:true}")
+    private boolean startServices;
+
+    @Value("${load.main-service-jar:../main-service/target/main-service-1.0.0-exec.jar}")
+    private Path mainServiceJar;
+
+    @Value("${load.conversion-service-jar:../conversion-service/target/conversion-service-1.0.0-exec.jar}")
+    private Path conversionServiceJar;
+
+    @Value("${load.service-jvm-args:-Xms512m -Xmx512m}")
+    private String serviceJvmArgs;
+
+    @Value("${load.conversion-concurrency:2}")
+    private int conversionConcurrency;
+
+    @Value("${load.main-service-url:http://localhost:8081}")
+    private String mainServiceUrl;
+
+    @Value("${load.conversion-service-url:http://localhost:8082}")
+    private String conversionServiceUrl;
+
+    @Value("${load.rate-per-second:10}")
+    private double ratePerSecond;
+
+    @Value("${load.warmup-seconds:15}")
+    private long warmupSeconds;
+
+    @Value("${load.duration-seconds:60}")
+    private long durationSeconds;
+
+    @Value("${load.mix:png:1920x1080:jpg:2,jpg:1280x720:png:3,png:320x240:jpg:5}")
+    private String mixSpec;
+
+    @Value("${load.users:10}")
+    private int users;
+
+    @Value("${load.poll-interval-ms:100}")
+    private long pollIntervalMs;
+
+    @Value("${load.completion-timeout-seconds:120}")
+    private long completionTimeoutSeconds;
+
+    @Value("${load.report-file:target/load-test-report.json}")
+    private Path reportFile;
+
+    @Value("${load.max-p99-ms:0}")
+    private double maxP99Ms;
+
+    @Value("${load.seed:42}")
+    private long seed;
+
+    private int exitCode;
+
+    @Override
+    public void run(String... args) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        Deque<AutoCloseable> resources = new ArrayDeque<>();
+        try {
+            Map<String, String> services = new LinkedHashMap<>();
+            if (startServices) {
+                startStack(httpClient, resources, services);
+            } else {
+                services.put("main-service", mainServiceUrl);
+                services.put("conversion-service", conversionServiceUrl);
+            }
+
+            ImageMix mix = ImageMix.parse(mixSpec, seed);
+            mix.entries().forEach(entry -> log.info("Mix entry {}: {} KB, weight {}",
+                    entry.name(), entry.data().length / 1024, entry.weight()));
+
+            Map<String, JvmStatsCollector> collectors = new LinkedHashMap<>();
+            services.forEach((name, url) -> collectors.put(name, new JvmStatsCollector(httpClient, objectMapper, url)));
+
+            OpenLoopDriver driver = new OpenLoopDriver(httpClient, services.get("main-service"), mix, users,
+                    Duration.ofMillis(pollIntervalMs), Duration.ofSeconds(completionTimeoutSeconds), seed);
+
+            Instant startedAt = Instant.now();
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            // JVM counters start after warm-up, so JIT compilation and class loading are not billed to the run
+            sampler.schedule(() -> collectors.values().forEach(JvmStatsCollector::begin), warmupSeconds, TimeUnit.SECONDS);
+            sampler.scheduleAtFixedRate(() -> collectors.values().forEach(JvmStatsCollector::sample),
+                    warmupSeconds + 1, 1, TimeUnit.SECONDS);
+            log.info("Driving {} uploads/s for {} s after {} s warm-up", ratePerSecond, durationSeconds, warmupSeconds);
+            driver.run(ratePerSecond, Duration.ofSeconds(warmupSeconds), Duration.ofSeconds(durationSeconds));
+            sampler.shutdownNow();
+
+            Map<String, JvmStats> jvmStats = new LinkedHashMap<>();
+            collectors.forEach((name, collector) -> jvmStats.put(name, collector.end()));
+            writeReport(driver, jvmStats, startedAt);
+        } finally {
+            while (!resources.isEmpty()) {
+                try {
+                    resources.pop().close();
+                } catch (Exception e) {
+                    log.warn("Failed to stop a stand-in: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    private void startStack(HttpClient httpClient, Deque<AutoCloseable> resources, Map<String, String> services)
+            throws Exception {
+        Path workDirectory = Files.createTempDirectory("imagecloud-load-test");
+        log.info("Stand-in data and service logs in {}", workDirectory);
+
+        EmbeddedDatabase database = EmbeddedDatabase.start("imagecloud_main");
+        resources.push(database);
+        EmbeddedBroker broker = EmbeddedBroker.start(workDirectory.resolve("broker"));
+        resources.push(broker);
+
+        List<String> jvmArgs = Arrays.asList(serviceJvmArgs.trim().split("\\s+"));
+        List<String> brokerArgs = List.of(
+                "--spring.rabbitmq.host=localhost",
+                "--spring.rabbitmq.port=" + broker.port(),
+                "--management.tracing.enabled=false");
+
+        // main-service declares the queues, so it has to be up before the workers subscribe
+        ServiceProcess main = ServiceProcess.start("main-service", mainServiceJar, jvmArgs, concat(brokerArgs, List.of(
+                "--spring.datasource.url=" + database.jdbcUrl(),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.jpa.show-sql=false",
+                // Capacity, not per-user fairness, is what is being measured
+                "--image.quota.enabled=false")), workDirectory);
+        resources.push(main);
+        main.awaitHealthy(httpClient, Duration.ofMinutes(2));
+
+        ServiceProcess conversion = ServiceProcess.start("conversion-service", conversionServiceJar, jvmArgs,
+                concat(brokerArgs, List.of("--spring.rabbitmq.listener.simple.concurrency=" + conversionConcurrency)),
+                workDirectory);
+        resources.push(conversion);
+        conversion.awaitHealthy(httpClient, Duration.ofMinutes(2));
+
+        services.put(main.name(), main.baseUrl());
+        services.put(conversion.name(), conversion.baseUrl());
+    }
+
+    private void writeReport(OpenLoopDriver driver, Map<String, JvmStats> jvmStats, Instant startedAt)
+            throws Exception {
+        OpenLoopDriver.Outcome outcome = driver.outcome();
+        Percentiles endToEnd = driver.endToEnd().percentiles();
+        Map<String, Percentiles> byMix = new TreeMap<>();
+        driver.endToEndByEntry().forEach((name, recorder) -> byMix.put(name, recorder.percentiles()));
+
+        boolean withinBudget = maxP99Ms <= 0 || endToEnd.p99Ms() <= maxP99Ms;
+        boolean passed = withinBudget && outcome.timedOut() == 0;
+        exitCode = passed ? 0 : 1;
+
+        LoadTestReport report = new LoadTestReport(
+                startedAt,
+                new LoadTestReport.Settings(ratePerSecond, warmupSeconds, durationSeconds, mixSpec, users,
+                        pollIntervalMs, serviceJvmArgs, conversionConcurrency, startServices),
+                outcome,
+                outcome.scheduled() / (double) durationSeconds,
+                outcome.completed() / (double) durationSeconds,
+                driver.uploadLatency().percentiles(),
+                endToEnd,
+                byMix,
+                jvmStats,
+                maxP99Ms > 0 ? maxP99Ms : null,
+                passed);
+
+        Path parent = reportFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile.toFile(), report);
+
+        log.info("Completed {}/{} jobs ({} rejected, {} failed, {} expired, {} timed out), {}/s",
+                outcome.completed(), outcome.scheduled(), outcome.rejected(), outcome.failed(), outcome.expired(),
+                outcome.timedOut(), String.format("%.1f", report.completedPerSecond()));
+        log.info("End-to-end ms: p50 {} p90 {} p99 {} max {}",
+                endToEnd.p50Ms(), endToEnd.p90Ms(), endToEnd.p99Ms(), endToEnd.maxMs());
+        log.info("Report written to {}{}", reportFile.toAbsolutePath(), passed ? "" : " (FAILED)");
+    }
+
+    private static List<String> concat(List<String> first, List<String> second) {
+        return Stream.concat(first.stream(), second.stream()).toList();
+    }
+}
@@ -0,0 +1,51 @@
+package com.imagecloud.loadtest.infra;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.qpid.server.SystemLauncher;
+import org.apache.qpid.server.model.SystemConfig;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stand-in for RabbitMQ: an in-memory Qpid Broker-J speaking AMQP 0-9-1 with a guest/guest account.
+ * Queues and bindings are declared by the services themselves, exactly as against RabbitMQ.
+ */
+@Slf4j
+public class EmbeddedBroker implements AutoCloseable {
+
+    private final SystemLauncher launcher;
+    private final int port;
+
+    private EmbeddedBroker(SystemLauncher launcher, int port) {
+        this.launcher = launcher;
+        this.port = port;
+    }
+
+    public static EmbeddedBroker start(Path workDirectory) throws Exception {
+        int port = Ports.free();
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(SystemConfig.TYPE, "Memory");
+        attributes.put(SystemConfig.INITIAL_CONFIGURATION_LOCATION,
+                EmbeddedBroker.class.getResource("/qpid-initial-config.json").toExternalForm());
+        attributes.put(SystemConfig.STARTUP_LOGGED_TO_SYSTEM_OUT, false);
+        attributes.put(SystemConfig.CONTEXT, Map.of(
+                "qpid.amqp_port", String.valueOf(port),
+                "qpid.work_dir", workDirectory.toString()));
+
+        SystemLauncher launcher = new SystemLauncher();
+        launcher.startup(attributes);
+        log.info("Embedded AMQP broker listening on port {}", port);
+        return new EmbeddedBroker(launcher, port);
+    }
+
+    public int port() {
+        return port;
+    }
+
+    @Override
+    public void close() {
+        launcher.shutdown();
+    }
+}
@@ -0,0 +1,48 @@
+package com.imagecloud.loadtest.infra;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Stand-in for the Postgres instance. It is a real server unpacked from a bundled binary rather than H2,
+ * because main-service depends on Postgres-only features (large objects, UPDATE ... FROM, DO blocks).
+ * Local connections are trusted, so any password works.
+ */
+@Slf4j
+public class EmbeddedDatabase implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final String databaseName;
+
+    private EmbeddedDatabase(EmbeddedPostgres postgres, String databaseName) {
+        this.postgres = postgres;
+        this.databaseName = databaseName;
+    }
+
+    public static EmbeddedDatabase start(String databaseName) throws IOException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().setPort(Ports.free()).start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("create database " + databaseName);
+        } catch (SQLException e) {
+            postgres.close();
+            throw new IOException("Could not create database " + databaseName, e);
+        }
+        log.info("Embedded Postgres listening on port {}", postgres.getPort());
+        return new EmbeddedDatabase(postgres, databaseName);
+    }
+
+    public String jdbcUrl() {
+        return "jdbc:postgresql://localhost:" + postgres.getPort() + "/" + databaseName + "?reWriteBatchedInserts=true";
+    }
+
+    @Override
+    public void close() throws IOException {
+        postgres.close();
+    }
+}
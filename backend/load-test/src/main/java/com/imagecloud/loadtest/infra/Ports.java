@@ -0,0 +1,23 @@
+package com.imagecloud.loadtest.infra;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+public final class Ports {
+
+    private Ports() {
+    }
+
+    /**
+     * A port that was free a moment ago. Good enough for a single harness on one machine.
+     */
+    public static int free() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            socket.setReuseAddress(true);
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.imagecloud.loadtest.load;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Weighted mix of upload shapes, e.g. {@code png:1920x1080:jpg:5,jpg:640x480:png:3}
+ * (source format, dimensions, target format, weight). Each shape is rendered once at startup as a
+ * gradient with noise, so it compresses roughly like a photo rather than like a flat fill.
+ */
+public class ImageMix {
+
+    public record Entry(String name, String sourceFormat, String targetFormat, int weight, byte[] data) {
+    }
+
+    private final List<Entry> entries;
+    private final int totalWeight;
+
+    private ImageMix(List<Entry> entries) {
+        this.entries = entries;
+        this.totalWeight = entries.stream().mapToInt(Entry::weight).sum();
+    }
+
+    public static ImageMix parse(String spec, long seed) {
+        Random random = new Random(seed);
+        List<Entry> entries = new ArrayList<>();
+        for (String item : spec.split(",")) {
+            String[] parts = item.trim().split(":");
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Expected format:WxH:target:weight, got " + item);
+            }
+            String[] size = parts[1].split("x");
+            int width = Integer.parseInt(size[0]);
+            int height = Integer.parseInt(size[1]);
+            int weight = Integer.parseInt(parts[3]);
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Weight must be positive in " + item);
+            }
+            entries.add(new Entry(parts[0] + "-" + parts[1] + "-to-" + parts[2], parts[0], parts[2], weight,
+                    render(parts[0], width, height, random)));
+        }
+        return new ImageMix(entries);
+    }
+
+    public Entry pick(Random random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Entry entry : entries) {
+            ticket -= entry.weight();
+            if (ticket < 0) {
+                return entry;
+            }
+        }
+        return entries.get(entries.size() - 1);
+    }
+
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    private static BufferedImage draw(int width, int height, Random random) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setPaint(new GradientPaint(0, 0, new Color(random.nextInt(0xFFFFFF)),
+                    width, height, new Color(random.nextInt(0xFFFFFF))));
+            graphics.fillRect(0, 0, width, height);
+        } finally {
+            graphics.dispose();
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(32) - 16;
+                int rgb = image.getRGB(x, y);
+                int r = clamp(((rgb >> 16) & 0xFF) + noise);
+                int g = clamp(((rgb >> 8) & 0xFF) + noise);
+                int b = clamp((rgb & 0xFF) + noise);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] render(String format, int width, int height, Random random) {
+        String writerName = format.equalsIgnoreCase("jpg") ? "jpeg" : format.toLowerCase();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            if (!ImageIO.write(draw(width, height, random), writerName, out)) {
+                throw new IllegalArgumentException("No ImageIO writer for " + format);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,40 @@
+package com.imagecloud.loadtest.load;
+
+import java.util.Arrays;
+
+/**
+ * Collects every sample and sorts once at the end. A run produces at most a few hundred thousand samples,
+ * so exact percentiles are cheaper to reason about than a histogram's bucket error.
+ */
+public class LatencyRecorder {
+
+    public record Percentiles(long count, double meanMs, double p50Ms, double p90Ms, double p99Ms,
+                              double p999Ms, double maxMs) {
+    }
+
+    private long[] micros = new long[1024];
+    private int size;
+
+    public synchronized void record(long nanos) {
+        if (size == micros.length) {
+            micros = Arrays.copyOf(micros, size * 2);
+        }
+        micros[size++] = nanos / 1000;
+    }
+
+    public synchronized Percentiles percentiles() {
+        if (size == 0) {
+            return new Percentiles(0, 0, 0, 0, 0, 0, 0);
+        }
+        long[] sorted = Arrays.copyOf(micros, size);
+        Arrays.sort(sorted);
+        double mean = Arrays.stream(sorted).average().orElse(0) / 1000.0;
+        return new Percentiles(size, mean, at(sorted, 0.50), at(sorted, 0.90), at(sorted, 0.99),
+                at(sorted, 0.999), sorted[size - 1] / 1000.0);
+    }
+
+    private static double at(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000.0;
+    }
+}
@@ -0,0 +1,276 @@
+package com.imagecloud.loadtest.load;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.imagecloud.loadtest.load.ImageMix.Entry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load: uploads are fired on a Poisson schedule that does not wait for earlier requests,
+ * so a slow system sees a growing backlog instead of a politely slowed-down client.
+ * Latencies are measured from the scheduled send time, not the actual one, which keeps stalls in the
+ * generator or the HTTP client from hiding queueing delay (coordinated omission).
+ *
+ * A job ends when the upload returns COMPLETED (inline conversion) or when polling the status endpoint,
+ * as the frontend does, sees a terminal status. End-to-end times are therefore accurate to one poll interval.
+ */
+@Slf4j
+public class OpenLoopDriver {
+
+    public record Outcome(long scheduled, long accepted, long rejected, long errors, long completed, long failed,
+                          long expired, long timedOut, long inline) {
+    }
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final HttpClient httpClient;
+    private final String baseUrl;
+    private final ImageMix mix;
+    private final int users;
+    private final Duration pollInterval;
+    private final Duration completionTimeout;
+    private final Random random;
+
+    private final ScheduledExecutorService poller = Executors.newScheduledThreadPool(2);
+    private final LatencyRecorder uploadLatency = new LatencyRecorder();
+    private final LatencyRecorder endToEnd = new LatencyRecorder();
+    private final Map<String, LatencyRecorder> endToEndByEntry = new ConcurrentHashMap<>();
+
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong scheduled = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong inline = new AtomicLong();
+
+    public OpenLoopDriver(HttpClient httpClient, String baseUrl, ImageMix mix, int users,
+                          Duration pollInterval, Duration completionTimeout, long seed) {
+        this.httpClient = httpClient;
+        this.baseUrl = baseUrl;
+        this.mix = mix;
+        this.users = users;
+        this.pollInterval = pollInterval;
+        this.completionTimeout = completionTimeout;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Runs warm-up then the measured phase at {@code ratePerSecond}, and waits for measured jobs to finish.
+     * Only jobs scheduled after warm-up are counted.
+     */
+    public void run(double ratePerSecond, Duration warmup, Duration measured) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + measured.toNanos();
+        long next = start;
+        long sequence = 0;
+
+        while (true) {
+            // Exponential gaps give Poisson arrivals at the target rate
+            next += (long) (-Math.log(1 - random.nextDouble()) / ratePerSecond * 1e9);
+            if (next >= end) {
+                break;
+            }
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Entry entry = mix.pick(random);
+            String userId = "load-user-" + (sequence++ % users);
+            fire(entry, userId, next, next >= measureFrom);
+        }
+
+        long drainDeadline = System.nanoTime() + completionTimeout.toNanos() + pollInterval.toNanos();
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(100);
+        }
+        poller.shutdownNow();
+    }
+
+    public Outcome outcome() {
+        return new Outcome(scheduled.get(), accepted.get(), rejected.get(), errors.get(), completed.get(),
+                failed.get(), expired.get(), timedOut.get(), inline.get());
+    }
+
+    public LatencyRecorder uploadLatency() {
+        return uploadLatency;
+    }
+
+    public LatencyRecorder endToEnd() {
+        return endToEnd;
+    }
+
+    public Map<String, LatencyRecorder> endToEndByEntry() {
+        return endToEndByEntry;
+    }
+
+    private void fire(Entry entry, String userId, long scheduledAt, boolean measured) {
+        if (measured) {
+            scheduled.incrementAndGet();
+            outstanding.incrementAndGet();
+        }
+        String boundary = UUID.randomUUID().toString();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/images/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .header("X-User-Id", userId)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(multipart(boundary, entry)))
+                .build();
+
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()).whenComplete((response, error) -> {
+            if (!measured) {
+                if (response != null) {
+                    closeQuietly(response.body());
+                }
+                return;
+            }
+            if (error != null) {
+                finish(errors);
+                return;
+            }
+            uploadLatency.record(System.nanoTime() - scheduledAt);
+            if (response.statusCode() == 429) {
+                closeQuietly(response.body());
+                finish(rejected);
+                return;
+            }
+            if (response.statusCode() != 200) {
+                closeQuietly(response.body());
+                finish(errors);
+                return;
+            }
+            accepted.incrementAndGet();
+            Map<String, String> fields = fields(response.body(), "imageId", "status");
+            if ("COMPLETED".equals(fields.get("status"))) {
+                inline.incrementAndGet();
+                completeJob(entry, scheduledAt);
+            } else if (fields.get("imageId") == null) {
+                finish(errors);
+            } else {
+                schedulePoll(entry, userId, fields.get("imageId"), scheduledAt);
+            }
+        });
+    }
+
+    private void schedulePoll(Entry entry, String userId, String imageId, long scheduledAt) {
+        poller.schedule(() -> poll(entry, userId, imageId, scheduledAt), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(Entry entry, String userId, String imageId, long scheduledAt) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/images/" + imageId + "/status"))
+                .header("X-User-Id", userId)
+                .GET()
+                .build();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()).whenComplete((response, error) -> {
+            String status = null;
+            if (error == null && response.statusCode() == 200) {
+                status = fields(response.body(), "status").get("status");
+            } else if (response != null) {
+                closeQuietly(response.body());
+            }
+            if ("COMPLETED".equals(status)) {
+                completeJob(entry, scheduledAt);
+            } else if ("FAILED".equals(status)) {
+                finish(failed);
+            } else if ("EXPIRED".equals(status)) {
+                finish(expired);
+            } else if (System.nanoTime() - scheduledAt > completionTimeout.toNanos()) {
+                finish(timedOut);
+            } else {
+                schedulePoll(entry, userId, imageId, scheduledAt);
+            }
+        });
+    }
+
+    private void completeJob(Entry entry, long scheduledAt) {
+        long nanos = System.nanoTime() - scheduledAt;
+        endToEnd.record(nanos);
+        endToEndByEntry.computeIfAbsent(entry.name(), name -> new LatencyRecorder()).record(nanos);
+        finish(completed);
+    }
+
+    private void finish(AtomicLong counter) {
+        counter.incrementAndGet();
+        outstanding.decrementAndGet();
+    }
+
+    private byte[] multipart(String boundary, Entry entry) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(entry.data().length + 512);
+        String filePart = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"load." + entry.sourceFormat() + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n";
+        String formatPart = "\r\n--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"targetFormat\"\r\n\r\n"
+                + entry.targetFormat()
+                + "\r\n--" + boundary + "--\r\n";
+        body.writeBytes(filePart.getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(entry.data());
+        body.writeBytes(formatPart.getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    /**
+     * Pulls top-level scalar fields out of a response without materialising it. Status responses carry
+     * the image blobs as base64, which would otherwise dominate the generator's own CPU and heap.
+     */
+    private static Map<String, String> fields(InputStream body, String... names) {
+        Map<String, String> found = new ConcurrentHashMap<>();
+        try (InputStream in = body; JsonParser parser = JSON.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return found;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME && found.size() < names.length) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value.isScalarValue() && value != JsonToken.VALUE_NULL && contains(names, field)) {
+                    found.put(field, parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Unreadable response body: {}", e.getMessage());
+        }
+        return found;
+    }
+
+    private static boolean contains(String[] names, String name) {
+        for (String candidate : names) {
+            if (candidate.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // Nothing to do
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.imagecloud.loadtest.report;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Heap and GC figures of one service, read from its actuator metrics endpoint.
+ * Counters are captured before and after the measured phase and reported as deltas; heap usage is sampled
+ * during the run so the report shows the peak rather than whatever was live at the end.
+ */
+@Slf4j
+public class JvmStatsCollector {
+
+    public record JvmStats(double heapUsedPeakMb, double heapUsedAvgMb, double heapMaxMb, long gcPauses,
+                           double gcPauseTotalMs, double gcPauseMaxMs, double allocatedMb, double cpuUsageAvg) {
+    }
+
+    private static final double MB = 1024.0 * 1024.0;
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+
+    private double startPauses;
+    private double startPauseSeconds;
+    private double startAllocated;
+    private double heapPeak;
+    private double heapSum;
+    private double cpuSum;
+    private int samples;
+
+    public JvmStatsCollector(HttpClient httpClient, ObjectMapper objectMapper, String baseUrl) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+    }
+
+    public void begin() {
+        startPauses = metric("jvm.gc.pause", "COUNT", null);
+        startPauseSeconds = metric("jvm.gc.pause", "TOTAL_TIME", null);
+        startAllocated = metric("jvm.gc.memory.allocated", "COUNT", null);
+    }
+
+    public synchronized void sample() {
+        double heap = metric("jvm.memory.used", "VALUE", "area:heap");
+        heapPeak = Math.max(heapPeak, heap);
+        heapSum += heap;
+        cpuSum += metric("process.cpu.usage", "VALUE", null);
+        samples++;
+    }
+
+    public synchronized JvmStats end() {
+        sample();
+        return new JvmStats(
+                heapPeak / MB,
+                heapSum / samples / MB,
+                metric("jvm.memory.max", "VALUE", "area:heap") / MB,
+                (long) (metric("jvm.gc.pause", "COUNT", null) - startPauses),
+                (metric("jvm.gc.pause", "TOTAL_TIME", null) - startPauseSeconds) * 1000,
+                // MAX is a decaying window maximum, so it reflects the end of the run rather than all of it
+                metric("jvm.gc.pause", "MAX", null) * 1000,
+                (metric("jvm.gc.memory.allocated", "COUNT", null) - startAllocated) / MB,
+                cpuSum / samples);
+    }
+
+    private double metric(String name, String statistic, String tag) {
+        String url = baseUrl + "/actuator/metrics/" + name
+                + (tag != null ? "?tag=" + URLEncoder.encode(tag, StandardCharsets.UTF_8) : "");
+        try {
+            HttpResponse<String> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(5)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return 0;
+            }
+            for (JsonNode measurement : objectMapper.readTree(response.body()).path("measurements")) {
+                if (statistic.equals(measurement.path("statistic").asText())) {
+                    return measurement.path("value").asDouble();
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Could not read {} from {}: {}", name, baseUrl, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+}
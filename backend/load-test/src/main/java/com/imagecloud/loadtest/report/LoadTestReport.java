@@ -0,0 +1,30 @@
+package com.imagecloud.loadtest.report;
+
+import com.imagecloud.loadtest.load.LatencyRecorder.Percentiles;
+import com.imagecloud.loadtest.load.OpenLoopDriver.Outcome;
+import com.imagecloud.loadtest.report.JvmStatsCollector.JvmStats;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Machine-readable result of one run, written as JSON so successive runs can be diffed or charted.
+ */
+public record LoadTestReport(
+        Instant startedAt,
+        Settings settings,
+        Outcome outcome,
+        double offeredPerSecond,
+        double completedPerSecond,
+        Percentiles uploadLatency,
+        Percentiles endToEnd,
+        Map<String, Percentiles> endToEndByMix,
+        Map<String, JvmStats> services,
+        Double maxP99Ms,
+        boolean passed) {
+
+    public record Settings(double ratePerSecond, long warmupSeconds, long durationSeconds, String mix, int users,
+                           long pollIntervalMs, String serviceJvmArgs, int conversionConcurrency,
+                           boolean embeddedStandIns) {
+    }
+}
@@ -0,0 +1,102 @@
+package main.java.com.imagecloud.main.config;
+
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.repository.ImageRepository;
+import com.imagecloud.main.storage.ByteaImageBlobStore;
+import com.imagecloud.main.storage.ColdBlobStore;
+import com.imagecloud.main.storage.FileSystemColdBlobStore;
+import com.imagecloud.main.storage.HotImageCache;
+import com.imagecloud.main.storage.ImageBlobStore;
+import com.imagecloud.main.storage.LargeObjectImageBlobStore;
+import com.imagecloud.main.storage.TieredImageBlobStore;
+import io.micrometer.core.instrument.Gauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Paths;
+
+@Configuration
+@Slf4j
+public class ImageStorageConfig {
+
+    @Value("${image.storage.mode:bytea}")
+    private String storageMode;
+
+    @Value("${image.storage.large-object.spool-threshold-bytes:8388608}")
+    private long spoolThresholdBytes;
+
+    @Value("${image.storage.tiering.enabled:false}")
+    private boolean tieringEnabled;
+
+    @Value("${image.storage.tiering.cold-directory:/var/lib/imagecloud/cold}")
+    private String coldDirectory;
+
+    @Value("${image.storage.tiering.hot-cache-max-bytes:67108864}")
+    private long hotCacheMaxBytes;
+
+    @Value("${image.storage.tiering.hot-cache-max-entry-bytes:4194304}")
+    private long hotCacheMaxEntryBytes;
+
+    /**
+     * The Postgres layout on its own, without tiering.
+     */
+    @Bean
+    public ImageBlobStore databaseBlobStore(ImageRepository imageRepository,
+                                            JdbcTemplate jdbcTemplate,
+                                            PlatformTransactionManager transactionManager) {
+        return switch (storageMode) {
+            case "bytea", "bytea-external" -> new ByteaImageBlobStore(imageRepository);
+            case "large-object" -> new LargeObjectImageBlobStore(imageRepository, jdbcTemplate,
+                    new TransactionTemplate(transactionManager), spoolThresholdBytes);
+            default -> throw new IllegalStateException("Unknown image.storage.mode: " + storageMode);
+        };
+    }
+
+    /**
+     * What the services use: the database layout, fronted by the hot and cold tiers when tiering is enabled.
+     */
+    @Bean
+    @Primary
+    public ImageBlobStore imageBlobStore(@Qualifier("databaseBlobStore") ImageBlobStore databaseBlobStore,
+                                         ColdBlobStore coldBlobStore,
+                                         ImageMetrics imageMetrics) {
+        if (!tieringEnabled) {
+            return databaseBlobStore;
+        }
+        HotImageCache hotCache = new HotImageCache(hotCacheMaxBytes, hotCacheMaxEntryBytes);
+        Gauge.builder("imagecloud.storage.hot_cache.bytes", hotCache, HotImageCache::totalBytes)
+                .baseUnit("bytes")
+                .description("Bytes held by the hot converted-image cache")
+                .register(imageMetrics.registry());
+        return new TieredImageBlobStore(databaseBlobStore, hotCache, coldBlobStore, imageMetrics);
+    }
+
+    @Bean
+    public ColdBlobStore coldBlobStore() {
+        return new FileSystemColdBlobStore(Paths.get(coldDirectory));
+    }
+
+    /**
+     * bytea-external: stop Postgres from pglz-compressing JPEG/PNG data that never shrinks and store it out of
+     * line uncompressed. Only values written afterwards are affected.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void applyColumnStorage(ApplicationReadyEvent event) {
+        if (!"bytea-external".equals(storageMode)) {
+            return;
+        }
+        event.getApplicationContext().getBean(JdbcTemplate.class).execute(
+                "alter table images alter column original_image set storage external, "
+                        + "alter column converted_image set storage external");
+        log.info("Image blob columns set to STORAGE EXTERNAL");
+    }
+}
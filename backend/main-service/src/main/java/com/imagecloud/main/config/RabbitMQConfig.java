@@ -6,10 +6,12 @@ import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
+@ConditionalOnProperty(name = "image.conversion.transport", havingValue = "rabbitmq", matchIfMissing = true)
 public class RabbitMQConfig {
 
     @Value("${rabbitmq.queue.conversion-request}")
@@ -18,6 +20,9 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.queue.conversion-response}")
     private String conversionResponseQueue;
 
+    @Value("${rabbitmq.queue.conversion-preview}")
+    private String conversionPreviewQueue;
+
     @Value("${rabbitmq.exchange.image}")
     private String imageExchange;
 
@@ -27,6 +32,9 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.routing-key.conversion-response}")
     private String conversionResponseRoutingKey;
 
+    @Value("${rabbitmq.routing-key.conversion-preview}")
+    private String conversionPreviewRoutingKey;
+
     @Bean
     public Queue conversionRequestQueue() {
         return new Queue(conversionRequestQueue, true);
@@ -37,6 +45,12 @@ public class RabbitMQConfig {
         return new Queue(conversionResponseQueue, true);
     }
 
+    // Previews are disposable: a preview lost with a broker restart is simply superseded by the full result
+    @Bean
+    public Queue conversionPreviewQueue() {
+        return new Queue(conversionPreviewQueue, false);
+    }
+
     @Bean
     public TopicExchange imageExchange() {
         return new TopicExchange(imageExchange);
@@ -58,6 +72,14 @@ public class RabbitMQConfig {
                 .with(conversionResponseRoutingKey);
     }
 
+    @Bean
+    public Binding conversionPreviewBinding() {
+        return BindingBuilder
+                .bind(conversionPreviewQueue())
+                .to(imageExchange())
+                .with(conversionPreviewRoutingKey);
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
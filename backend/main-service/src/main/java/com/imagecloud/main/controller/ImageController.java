@@ -1,18 +1,30 @@
 package main.java.com.imagecloud.main.controller;
 
+import com.imagecloud.common.util.ContentHash;
+import com.imagecloud.main.dto.BatchStatusResponse;
+import com.imagecloud.main.dto.BatchUploadResponse;
 import com.imagecloud.main.dto.ImageHistoryResponse;
 import com.imagecloud.main.dto.ImageUploadResponse;
 import com.imagecloud.main.model.Image;
+import com.imagecloud.main.repository.ImageRepository.ConvertedImageView;
+import com.imagecloud.main.repository.ImageRepository.DownloadView;
+import com.imagecloud.main.service.BatchUploadService;
+import com.imagecloud.main.service.ImageExportService;
 import com.imagecloud.main.service.ImageService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/images")
@@ -21,6 +33,8 @@ import java.util.List;
 public class ImageController {
 
     private final ImageService imageService;
+    private final BatchUploadService batchUploadService;
+    private final ImageExportService imageExportService;
 
     @PostMapping("/upload")
     public ResponseEntity<ImageUploadResponse> uploadImage(
@@ -37,6 +51,51 @@ public class ImageController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping(value = "/upload/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<BatchUploadResponse> uploadBatch(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam("targetFormat") String targetFormat,
+            @RequestHeader("X-User-Id") String userId) {
+
+        if (files.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(new BatchUploadResponse(null, 0, 0, List.of(), "ERROR", "No files provided"));
+        }
+
+        try {
+            return ResponseEntity.ok(batchUploadService.uploadFiles(files, targetFormat, userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new BatchUploadResponse(null, 0, 0, List.of(), "ERROR", e.getMessage()));
+        }
+    }
+
+    @PostMapping(value = "/upload/batch", consumes = "application/zip")
+    public ResponseEntity<BatchUploadResponse> uploadBatchZip(
+            HttpServletRequest request,
+            @RequestParam("targetFormat") String targetFormat,
+            @RequestHeader("X-User-Id") String userId) throws IOException {
+
+        try {
+            return ResponseEntity.ok(batchUploadService.uploadZip(request.getInputStream(), targetFormat, userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new BatchUploadResponse(null, 0, 0, List.of(), "ERROR", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/batch/{batchId}")
+    public ResponseEntity<BatchStatusResponse> getBatchStatus(
+            @PathVariable String batchId,
+            @RequestHeader("X-User-Id") String userId) {
+
+        try {
+            return ResponseEntity.ok(batchUploadService.getBatchStatus(batchId, userId));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+    }
+
     @GetMapping("/history")
     public ResponseEntity<List<ImageHistoryResponse>> getHistory(
             @RequestHeader("X-User-Id") String userId) {
@@ -57,13 +116,32 @@ public class ImageController {
     @GetMapping("/{imageId}/download")
     public ResponseEntity<byte[]> downloadConvertedImage(
             @PathVariable Long imageId,
-            @RequestHeader("X-User-Id") String userId) {
+            @RequestHeader("X-User-Id") String userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
         try {
-            byte[] imageData = imageService.getConvertedImage(imageId, userId);
-            Image image = imageService.getImageStatus(imageId, userId);
-
+            DownloadView image = imageService.getDownload(imageId, userId);
+            byte[] imageData = null;
+            String hash = image.getConvertedHash();
+            if (hash == null) {
+                // Converted before the hash was stored with the result
+                imageData = imageService.loadConverted(imageId);
+                hash = ContentHash.sha256Hex(imageData);
+            }
+
+            // A completed conversion never changes, so its content hash is a strong validator
+            // and the gateway may cache it by image ID and ETag. A match is answered without reading the blob
+            String etag = "\"" + hash + "\"";
             HttpHeaders headers = new HttpHeaders();
+            headers.setETag(etag);
+            headers.setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable());
+            if (etag.equals(ifNoneMatch)) {
+                return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+            }
+            if (imageData == null) {
+                imageData = imageService.loadConverted(imageId);
+            }
+
             headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
             String filename = image.getOriginalFileName().replaceFirst("[.][^.]+$", "") 
                     + "." + image.getTargetFormat();
@@ -75,4 +153,43 @@ public class ImageController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
         }
     }
+
+    /**
+     * Low-resolution JPEG of an image still being converted; 404 once the full result replaces it.
+     */
+    @GetMapping("/{imageId}/preview")
+    public ResponseEntity<byte[]> getPreview(
+            @PathVariable Long imageId,
+            @RequestHeader("X-User-Id") String userId) {
+
+        try {
+            byte[] preview = imageService.getPreview(imageId, userId);
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.IMAGE_JPEG);
+            headers.setCacheControl(CacheControl.maxAge(60, TimeUnit.SECONDS).cachePrivate());
+            return new ResponseEntity<>(preview, headers, HttpStatus.OK);
+
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+    }
+
+    @GetMapping("/download/zip")
+    public ResponseEntity<StreamingResponseBody> downloadZip(
+            @RequestParam(value = "ids", required = false) List<Long> imageIds,
+            @RequestParam(value = "batchId", required = false) String batchId,
+            @RequestHeader("X-User-Id") String userId) {
+
+        List<ConvertedImageView> images = imageExportService.listExportable(userId, imageIds, batchId);
+        if (images.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDispositionFormData("attachment", "imagecloud-export.zip");
+
+        StreamingResponseBody body = out -> imageExportService.writeZip(images, out);
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
 }
@@ -0,0 +1,120 @@
+package main.java.com.imagecloud.main.controller;
+
+import com.imagecloud.main.dto.ImageUploadResponse;
+import com.imagecloud.main.dto.UploadSessionResponse;
+import com.imagecloud.main.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * Resumable uploads: POST creates a session, PATCH appends a raw chunk at {@code offset}, POST .../complete
+ * turns the upload into an image. GET returns the offset to resume from after a failed chunk.
+ */
+@RestController
+@RequestMapping("/api/images/uploads")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ResumableUploadController {
+
+    private final ResumableUploadService resumableUploadService;
+
+    @PostMapping
+    public ResponseEntity<UploadSessionResponse> createUpload(
+            @RequestParam("fileName") String fileName,
+            @RequestParam("targetFormat") String targetFormat,
+            @RequestParam("length") long length,
+            @RequestParam(value = "sha256", required = false) String sha256,
+            @RequestHeader("X-User-Id") String userId) {
+
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(resumableUploadService.create(fileName, targetFormat, length, sha256, userId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionResponse> getUpload(
+            @PathVariable String uploadId,
+            @RequestHeader("X-User-Id") String userId) {
+
+        try {
+            return ResponseEntity.ok(resumableUploadService.status(uploadId, userId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+    }
+
+    /**
+     * Appends the request body. A 409 carries the session with the offset the client must continue from.
+     */
+    @PatchMapping(value = "/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionResponse> appendChunk(
+            @PathVariable String uploadId,
+            @RequestParam("offset") long offset,
+            @RequestHeader(value = "X-Chunk-SHA256", required = false) String chunkSha256,
+            @RequestHeader("X-User-Id") String userId,
+            HttpServletRequest request) throws IOException {
+
+        try {
+            return ResponseEntity.ok(resumableUploadService.appendChunk(uploadId, userId, offset,
+                    request.getInputStream(), request.getContentLengthLong(), chunkSha256));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(null);
+        } catch (IllegalStateException e) {
+            return conflict(uploadId, userId);
+        }
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<ImageUploadResponse> completeUpload(
+            @PathVariable String uploadId,
+            @RequestHeader("X-User-Id") String userId) {
+
+        try {
+            return ResponseEntity.ok(resumableUploadService.complete(uploadId, userId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ImageUploadResponse(null, "ERROR", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ImageUploadResponse(null, "ERROR", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ImageUploadResponse(null, "ERROR", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abortUpload(
+            @PathVariable String uploadId,
+            @RequestHeader("X-User-Id") String userId) {
+
+        try {
+            resumableUploadService.abort(uploadId, userId);
+            return ResponseEntity.noContent().build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    private ResponseEntity<UploadSessionResponse> conflict(String uploadId, String userId) {
+        try {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(resumableUploadService.status(uploadId, userId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package main.java.com.imagecloud.main.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchStatusResponse {
+    private String batchId;
+    private long total;
+    private long pending;
+    private long processing;
+    private long completed;
+    private long failed;
+    private long expired;
+    private boolean finished;
+}
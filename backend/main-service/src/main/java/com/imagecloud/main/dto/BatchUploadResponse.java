@@ -0,0 +1,19 @@
+package main.java.com.imagecloud.main.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUploadResponse {
+    private String batchId;
+    private int accepted;
+    private int skipped;
+    private List<Long> imageIds;
+    private String status;
+    private String message;
+}
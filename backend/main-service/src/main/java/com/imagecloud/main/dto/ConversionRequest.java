@@ -14,4 +14,8 @@ public class ConversionRequest implements Serializable {
     private byte[] imageData;
     private String originalFormat;
     private String targetFormat;
+    // Epoch millis after which the result is no longer wanted; null means no deadline
+    private Long deadline;
+    // SHA-256 (hex) of imageData as main-service computed it, or null; keys the worker's single-flight
+    private String sourceHash;
 }
@@ -1,5 +1,6 @@
 package main.java.com.imagecloud.main.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,4 +12,12 @@ public class ImageUploadResponse {
     private Long imageId;
     private String status;
     private String message;
+
+    // Only populated when the image was converted inline during the upload request
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private byte[] convertedImageData;
+
+    public ImageUploadResponse(Long imageId, String status, String message) {
+        this(imageId, status, message, null);
+    }
 }
@@ -0,0 +1,21 @@
+package main.java.com.imagecloud.main.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionResponse {
+    private String uploadId;
+    private String fileName;
+    private String targetFormat;
+    private long length;
+    // Bytes stored so far; the next chunk must start here
+    private long offset;
+    private long maxChunkBytes;
+    private LocalDateTime expiresAt;
+}
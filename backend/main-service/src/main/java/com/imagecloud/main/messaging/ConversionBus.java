@@ -0,0 +1,29 @@
+package main.java.com.imagecloud.main.messaging;
+
+import com.imagecloud.main.dto.ConversionRequest;
+
+import java.util.List;
+
+/**
+ * Hands conversion requests to the conversion engine. Results come back asynchronously through
+ * {@code ImageService.handleConversionResponse}.
+ *
+ * {@code image.conversion.transport} selects the implementation: {@code rabbitmq} (default) publishes to the
+ * request queue consumed by conversion-service, {@code in-process} queues the request object in memory for a
+ * conversion engine running in the same JVM.
+ */
+public interface ConversionBus {
+
+    /**
+     * @param uploadedAt epoch millis the upload started, carried along for end-to-end latency
+     * @throws RuntimeException if the request could not be accepted
+     */
+    void send(ConversionRequest request, long uploadedAt);
+
+    /**
+     * Sends a batch as one unit: when this returns, every request has been accepted.
+     *
+     * @throws RuntimeException if the batch could not be accepted; some requests may still have been delivered
+     */
+    void sendAll(List<ConversionRequest> requests, long uploadedAt);
+}
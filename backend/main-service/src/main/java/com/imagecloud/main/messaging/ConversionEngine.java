@@ -0,0 +1,22 @@
+package main.java.com.imagecloud.main.messaging;
+
+import com.imagecloud.main.dto.ConversionPreview;
+import com.imagecloud.main.dto.ConversionRequest;
+import com.imagecloud.main.dto.ConversionResponse;
+
+import java.util.function.Consumer;
+
+/**
+ * A conversion engine running in this JVM, used by {@link InProcessConversionBus}.
+ * main-service does not ship one; the all-in-one application adapts conversion-service's worker to it.
+ */
+public interface ConversionEngine {
+
+    /**
+     * Converts synchronously on the calling thread. Failures are reported in the response, not thrown.
+     *
+     * @param dequeuedAt epoch millis the request left the in-memory queue, for deadline shedding
+     * @param previews receives a low-resolution preview, on the calling thread, before the full conversion
+     */
+    ConversionResponse convert(ConversionRequest request, long dequeuedAt, Consumer<ConversionPreview> previews);
+}
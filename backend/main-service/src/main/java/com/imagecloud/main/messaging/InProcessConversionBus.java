@@ -0,0 +1,156 @@
+package main.java.com.imagecloud.main.messaging;
+
+import com.imagecloud.main.dto.ConversionPreview;
+import com.imagecloud.main.dto.ConversionRequest;
+import com.imagecloud.main.dto.ConversionResponse;
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.repository.ImageRepository.ConversionTargetView;
+import com.imagecloud.main.service.ImageService;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * All-in-one transport: requests wait in a bounded in-memory queue and are converted by a
+ * {@link ConversionEngine} in this JVM, whose response goes straight to {@link ImageService}.
+ *
+ * Request and response objects are passed by reference, so neither image is copied or serialised on the
+ * way. Capacity is a semaphore over the queue, which lets a batch be admitted all or nothing; a producer
+ * waits up to {@code offer-timeout-ms} for room and then fails like a broker outage would.
+ *
+ * Jobs still queued when the JVM stops are lost and their rows stay PROCESSING, as with a lost message.
+ */
+@Component
+@ConditionalOnProperty(name = "image.conversion.transport", havingValue = "in-process")
+@RequiredArgsConstructor
+@Slf4j
+public class InProcessConversionBus implements ConversionBus {
+
+    private record Job(ConversionRequest request, long uploadedAt) {
+    }
+
+    private final ConversionEngine conversionEngine;
+    private final ImageMetrics imageMetrics;
+    // ImageService sends through this bus, so it is resolved lazily by the worker threads
+    private final ObjectProvider<ImageService> imageService;
+
+    @Value("${image.conversion.in-process.queue-capacity:256}")
+    private int queueCapacity;
+
+    // 0 means one worker per available core
+    @Value("${image.conversion.in-process.workers:0}")
+    private int workers;
+
+    @Value("${image.conversion.in-process.offer-timeout-ms:1000}")
+    private long offerTimeoutMs;
+
+    private final BlockingQueue<Job> queue = new LinkedBlockingQueue<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private Semaphore capacity;
+
+    @PostConstruct
+    void start() {
+        capacity = new Semaphore(queueCapacity);
+        int count = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i <= count; i++) {
+            Thread thread = new Thread(this::work, "in-process-conversion-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        Gauge.builder("imagecloud.conversion.in_process.queued", queue, BlockingQueue::size)
+                .description("Conversion requests waiting in the in-process queue")
+                .register(imageMetrics.registry());
+        log.info("In-process conversion bus started: {} workers, capacity {}", count, queueCapacity);
+    }
+
+    @PreDestroy
+    void stop() {
+        threads.forEach(Thread::interrupt);
+        if (!queue.isEmpty()) {
+            log.warn("Discarding {} queued in-process conversion requests", queue.size());
+        }
+    }
+
+    @Override
+    public void send(ConversionRequest request, long uploadedAt) {
+        sendAll(List.of(request), uploadedAt);
+    }
+
+    @Override
+    public void sendAll(List<ConversionRequest> requests, long uploadedAt) {
+        try {
+            if (!capacity.tryAcquire(requests.size(), offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("In-process conversion queue is full (capacity "
+                        + queueCapacity + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the in-process conversion queue", e);
+        }
+        for (ConversionRequest request : requests) {
+            queue.add(new Job(request, uploadedAt));
+        }
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Job job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            capacity.release();
+            process(job);
+        }
+    }
+
+    private void process(Job job) {
+        ConversionRequest request = job.request();
+        ConversionResponse response;
+        try {
+            response = conversionEngine.convert(request, System.currentTimeMillis(),
+                    preview -> storePreview(job, preview));
+        } catch (RuntimeException e) {
+            log.error("Conversion engine failed for image ID: {}", request.getImageId(), e);
+            response = new ConversionResponse(request.getImageId(), null, false,
+                    "Conversion failed: " + e.getMessage(), false);
+        }
+
+        try {
+            ConversionTargetView image = imageService.getObject().handleConversionResponse(response);
+            long elapsed = System.currentTimeMillis() - job.uploadedAt();
+            imageMetrics.recordEndToEnd(image.getTargetFormat(), request.getImageData().length,
+                    response.isSuccess(), false, elapsed);
+            if (response.isSuccess() && image.getPreviewAt() == null) {
+                imageMetrics.recordTimeToFirstPixel(image.getTargetFormat(), request.getImageData().length,
+                        false, elapsed);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to store conversion result for image ID: {}", request.getImageId(), e);
+        }
+    }
+
+    private void storePreview(Job job, ConversionPreview preview) {
+        ConversionTargetView image = imageService.getObject().handleConversionPreview(preview);
+        if (image != null) {
+            imageMetrics.recordTimeToFirstPixel(image.getTargetFormat(), job.request().getImageData().length,
+                    true, System.currentTimeMillis() - job.uploadedAt());
+        }
+    }
+}
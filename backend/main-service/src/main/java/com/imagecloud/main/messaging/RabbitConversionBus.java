@@ -0,0 +1,62 @@
+package main.java.com.imagecloud.main.messaging;
+
+import com.imagecloud.common.messaging.PipelineHeaders;
+import com.imagecloud.main.dto.ConversionRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Publishes conversion requests to the image exchange as JSON, stamped with the pipeline timing headers.
+ * Batches go out on one channel with a single publisher-confirm wait.
+ */
+@Component
+@ConditionalOnProperty(name = "image.conversion.transport", havingValue = "rabbitmq", matchIfMissing = true)
+@RequiredArgsConstructor
+public class RabbitConversionBus implements ConversionBus {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    @Value("${rabbitmq.exchange.image}")
+    private String imageExchange;
+
+    @Value("${rabbitmq.routing-key.conversion-request}")
+    private String conversionRequestRoutingKey;
+
+    @Value("${image.batch.confirm-timeout-ms:10000}")
+    private long confirmTimeoutMs;
+
+    @Override
+    public void send(ConversionRequest request, long uploadedAt) {
+        rabbitTemplate.convertAndSend(imageExchange, conversionRequestRoutingKey, request,
+                timingHeaders(request, uploadedAt));
+    }
+
+    @Override
+    public void sendAll(List<ConversionRequest> requests, long uploadedAt) {
+        rabbitTemplate.invoke(operations -> {
+            for (ConversionRequest request : requests) {
+                operations.convertAndSend(imageExchange, conversionRequestRoutingKey, request,
+                        timingHeaders(request, uploadedAt));
+            }
+            operations.waitForConfirmsOrDie(confirmTimeoutMs);
+            return null;
+        });
+    }
+
+    private static MessagePostProcessor timingHeaders(ConversionRequest request, long uploadedAt) {
+        return message -> {
+            Map<String, Object> headers = message.getMessageProperties().getHeaders();
+            headers.put(PipelineHeaders.UPLOADED_AT, uploadedAt);
+            headers.put(PipelineHeaders.SOURCE_BYTES, (long) request.getImageData().length);
+            headers.put(PipelineHeaders.ENQUEUED_AT, System.currentTimeMillis());
+            return message;
+        };
+    }
+}
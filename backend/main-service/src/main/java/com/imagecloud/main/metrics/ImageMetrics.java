@@ -0,0 +1,357 @@
+package main.java.com.imagecloud.main.metrics;
+
+import com.imagecloud.common.metrics.MeterSlots;
+import com.imagecloud.common.metrics.MetricFormat;
+import com.imagecloud.common.metrics.SizeBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single entry point for main-service meters.
+ * Meters are resolved once per tag combination and cached in index-addressed slots, so hot paths
+ * never allocate builders or tag lists or hit the registry's concurrent map. Every tag value comes
+ * from a bounded enum, which caps cardinality even though formats originate from user input.
+ */
+@Component
+public class ImageMetrics {
+
+    public enum RequestStatus {
+        INITIATED("initiated"),
+        SUCCESS("success"),
+        FAILED("failed"),
+        UPLOAD_FAILED("upload_failed"),
+        EXPIRED("expired");
+
+        private final String tag;
+
+        RequestStatus(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public enum DbOperation {
+        SAVE("save"),
+        FIND("find"),
+        FIND_BY_USER("findByUser"),
+        BATCH_INSERT("batchInsert");
+
+        private final String tag;
+
+        DbOperation(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public enum InlineOutcome {
+        COMPLETED("completed"),
+        INELIGIBLE("ineligible"),
+        REJECTED("rejected"),
+        TIMEOUT("timeout"),
+        FAILED("failed");
+
+        private final String tag;
+
+        InlineOutcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public enum StorageTier {
+        HOT("hot"),
+        DATABASE("database"),
+        COLD("cold"),
+        MISS("miss");
+
+        private final String tag;
+
+        StorageTier(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    public enum UploadSessionOutcome {
+        CREATED("created"),
+        COMPLETED("completed"),
+        ABORTED("aborted"),
+        EXPIRED("expired"),
+        CHECKSUM_MISMATCH("checksum_mismatch");
+
+        private final String tag;
+
+        UploadSessionOutcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final MetricFormat[] FORMATS = MetricFormat.values();
+    private static final SizeBucket[] SIZES = SizeBucket.values();
+    private static final RequestStatus[] STATUSES = RequestStatus.values();
+
+    private final MeterRegistry meterRegistry;
+
+    private final MeterSlots<Counter> requests;
+    private final MeterSlots<Timer> inlineDuration;
+    private final MeterSlots<Timer> endToEnd;
+    private final MeterSlots<Timer> timeToFirstPixel;
+    private final Timer[] dbQuery;
+    private final Counter[] inlineOutcomes;
+    private final Timer queueSend;
+    private final Timer queueSendBatch;
+    private final Timer responseQueueWait;
+    private final Timer responseProcessing;
+    private final Timer exportDuration;
+    private final Counter exportImages;
+    private final Counter rejectedInFlight;
+    private final Counter rejectedBytes;
+    private final Counter rejectedPixels;
+    private final Counter coalesced;
+    private final Counter[] storageReads;
+    private final Counter archivedOriginals;
+    private final Counter archivedConverted;
+    private final Counter archivedBytes;
+    private final Counter[] uploadSessions;
+    private final Counter uploadChunkBytes;
+    private final Counter uploadChunkConflicts;
+
+    public ImageMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        this.requests = new MeterSlots<>(STATUSES.length * FORMATS.length, this::buildRequestCounter);
+        this.inlineDuration = new MeterSlots<>(FORMATS.length * FORMATS.length, this::buildInlineTimer);
+        // target_format x size_bucket x outcome(success|failed) x path(queued|inline)
+        this.endToEnd = new MeterSlots<>(FORMATS.length * SIZES.length * 2 * 2, this::buildEndToEndTimer);
+        // target_format x size_bucket x first(preview|full)
+        this.timeToFirstPixel = new MeterSlots<>(FORMATS.length * SIZES.length * 2, this::buildTimeToFirstPixelTimer);
+
+        DbOperation[] operations = DbOperation.values();
+        this.dbQuery = new Timer[operations.length];
+        for (DbOperation operation : operations) {
+            dbQuery[operation.ordinal()] = Timer.builder("imagecloud.database.query.duration")
+                    .tag("operation", operation.tag)
+                    .tag("entity", "image")
+                    .description("Database query execution time")
+                    .register(meterRegistry);
+        }
+
+        InlineOutcome[] outcomes = InlineOutcome.values();
+        this.inlineOutcomes = new Counter[outcomes.length];
+        for (InlineOutcome outcome : outcomes) {
+            inlineOutcomes[outcome.ordinal()] = Counter.builder("imagecloud.conversion.inline.total")
+                    .tag("outcome", outcome.tag)
+                    .description("Inline conversion attempts by outcome")
+                    .register(meterRegistry);
+        }
+
+        this.queueSend = queueSendTimer("conversion-request");
+        this.queueSendBatch = queueSendTimer("conversion-request-batch");
+        this.responseQueueWait = Timer.builder("imagecloud.queue.wait.duration")
+                .tag("queue", "conversion-response")
+                .description("Time a message waited in the broker before being consumed")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.responseProcessing = Timer.builder("imagecloud.queue.message.processing.duration")
+                .tag("queue", "conversion-response")
+                .description("Message handling time from dequeue to response persistence")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.exportDuration = Timer.builder("imagecloud.export.zip.duration")
+                .description("Time to stream a ZIP export")
+                .register(meterRegistry);
+        this.exportImages = Counter.builder("imagecloud.export.images.total")
+                .description("Images written to ZIP exports")
+                .register(meterRegistry);
+        this.rejectedInFlight = admissionCounter("in_flight");
+        this.rejectedBytes = admissionCounter("bytes");
+        this.rejectedPixels = admissionCounter("pixels");
+        StorageTier[] tiers = StorageTier.values();
+        this.storageReads = new Counter[tiers.length];
+        for (StorageTier tier : tiers) {
+            storageReads[tier.ordinal()] = Counter.builder("imagecloud.storage.reads.total")
+                    .tag("tier", tier.tag)
+                    .description("Converted image reads by the tier that served them")
+                    .register(meterRegistry);
+        }
+        this.archivedOriginals = archiveCounter("original");
+        this.archivedConverted = archiveCounter("converted");
+        this.archivedBytes = Counter.builder("imagecloud.storage.archived.bytes")
+                .baseUnit("bytes")
+                .description("Bytes moved from Postgres to the cold tier")
+                .register(meterRegistry);
+        UploadSessionOutcome[] sessionOutcomes = UploadSessionOutcome.values();
+        this.uploadSessions = new Counter[sessionOutcomes.length];
+        for (UploadSessionOutcome outcome : sessionOutcomes) {
+            uploadSessions[outcome.ordinal()] = Counter.builder("imagecloud.upload.resumable.sessions.total")
+                    .tag("outcome", outcome.tag)
+                    .description("Resumable upload sessions by lifecycle event")
+                    .register(meterRegistry);
+        }
+        this.uploadChunkBytes = Counter.builder("imagecloud.upload.resumable.chunk.bytes")
+                .baseUnit("bytes")
+                .description("Bytes stored by resumable upload chunks")
+                .register(meterRegistry);
+        this.uploadChunkConflicts = Counter.builder("imagecloud.upload.resumable.chunk.conflicts.total")
+                .description("Chunks rejected because they did not start at the upload's current offset")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("imagecloud.conversion.coalesced.total")
+                .tag("stage", "upload")
+                .description("Uploads attached to an identical in-flight conversion instead of being queued")
+                .register(meterRegistry);
+    }
+
+    public MeterRegistry registry() {
+        return meterRegistry;
+    }
+
+    public void countRequest(RequestStatus status, String targetFormat) {
+        countRequests(status, targetFormat, 1);
+    }
+
+    public void countRequests(RequestStatus status, String targetFormat, int amount) {
+        requests.get(status.ordinal() * FORMATS.length + MetricFormat.of(targetFormat).ordinal()).increment(amount);
+    }
+
+    public Timer dbQuery(DbOperation operation) {
+        return dbQuery[operation.ordinal()];
+    }
+
+    public Timer queueSend(boolean batch) {
+        return batch ? queueSendBatch : queueSend;
+    }
+
+    public void recordResponseQueueWait(long millis) {
+        responseQueueWait.record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordResponseProcessing(long millis) {
+        responseProcessing.record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    public void countInline(InlineOutcome outcome) {
+        inlineOutcomes[outcome.ordinal()].increment();
+    }
+
+    public void recordInlineDuration(String sourceFormat, String targetFormat, long nanos) {
+        int index = MetricFormat.of(sourceFormat).ordinal() * FORMATS.length + MetricFormat.of(targetFormat).ordinal();
+        inlineDuration.get(index).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordEndToEnd(String targetFormat, long sourceBytes, boolean success, boolean inline, long millis) {
+        int index = ((MetricFormat.of(targetFormat).ordinal() * SIZES.length + SizeBucket.of(sourceBytes).ordinal()) * 2
+                + (success ? 0 : 1)) * 2 + (inline ? 1 : 0);
+        endToEnd.get(index).record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Upload to the first stored image the user can see: the preview when one arrived before the full
+     * result, otherwise the full result itself.
+     */
+    public void recordTimeToFirstPixel(String targetFormat, long sourceBytes, boolean preview, long millis) {
+        int index = (MetricFormat.of(targetFormat).ordinal() * SIZES.length + SizeBucket.of(sourceBytes).ordinal()) * 2
+                + (preview ? 1 : 0);
+        timeToFirstPixel.get(index).record(Math.max(0, millis), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordExport(int images, long nanos) {
+        exportDuration.record(nanos, TimeUnit.NANOSECONDS);
+        exportImages.increment(images);
+    }
+
+    public void countAdmissionRejected(String reason) {
+        switch (reason) {
+            case "in_flight" -> rejectedInFlight.increment();
+            case "bytes" -> rejectedBytes.increment();
+            default -> rejectedPixels.increment();
+        }
+    }
+
+    public void countCoalesced(int amount) {
+        coalesced.increment(amount);
+    }
+
+    public void countStorageRead(StorageTier tier) {
+        storageReads[tier.ordinal()].increment();
+    }
+
+    public void countArchived(boolean original, long bytes) {
+        (original ? archivedOriginals : archivedConverted).increment();
+        archivedBytes.increment(bytes);
+    }
+
+    public void countUploadSession(UploadSessionOutcome outcome) {
+        uploadSessions[outcome.ordinal()].increment();
+    }
+
+    public void countUploadChunk(long bytes) {
+        uploadChunkBytes.increment(bytes);
+    }
+
+    public void countUploadChunkConflict() {
+        uploadChunkConflicts.increment();
+    }
+
+    private Counter archiveCounter(String slot) {
+        return Counter.builder("imagecloud.storage.archived.total")
+                .tag("slot", slot)
+                .description("Blobs moved from Postgres to the cold tier")
+                .register(meterRegistry);
+    }
+
+    private Counter admissionCounter(String reason) {
+        return Counter.builder("imagecloud.admission.rejected.total")
+                .tag("reason", reason)
+                .description("Uploads rejected by per-user quotas")
+                .register(meterRegistry);
+    }
+
+    private Timer queueSendTimer(String queue) {
+        return Timer.builder("imagecloud.queue.send.duration")
+                .tag("queue", queue)
+                .description("Time to send message to RabbitMQ")
+                .register(meterRegistry);
+    }
+
+    private Counter buildRequestCounter(int index) {
+        return Counter.builder("imagecloud.conversion.requests.total")
+                .tag("status", STATUSES[index / FORMATS.length].tag)
+                .tag("target_format", FORMATS[index % FORMATS.length].tag())
+                .description("Total conversion requests initiated")
+                .register(meterRegistry);
+    }
+
+    private Timer buildInlineTimer(int index) {
+        return Timer.builder("imagecloud.conversion.inline.duration")
+                .tag("source_format", FORMATS[index / FORMATS.length].tag())
+                .tag("target_format", FORMATS[index % FORMATS.length].tag())
+                .description("Inline image conversion processing time")
+                .register(meterRegistry);
+    }
+
+    private Timer buildEndToEndTimer(int index) {
+        boolean inline = index % 2 == 1;
+        boolean success = (index / 2) % 2 == 0;
+        int formatAndSize = index / 4;
+        return Timer.builder("imagecloud.conversion.end_to_end.duration")
+                .tag("target_format", FORMATS[formatAndSize / SIZES.length].tag())
+                .tag("size_bucket", SIZES[formatAndSize % SIZES.length].tag())
+                .tag("outcome", success ? "success" : "failed")
+                .tag("path", inline ? "inline" : "queued")
+                .description("Time from upload to persisted conversion result")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Timer buildTimeToFirstPixelTimer(int index) {
+        int formatAndSize = index / 2;
+        return Timer.builder("imagecloud.conversion.time_to_first_pixel.duration")
+                .tag("target_format", FORMATS[formatAndSize / SIZES.length].tag())
+                .tag("size_bucket", SIZES[formatAndSize % SIZES.length].tag())
+                .tag("first", index % 2 == 1 ? "preview" : "full")
+                .description("Time from upload to the first stored preview or result")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -4,5 +4,6 @@ public enum ConversionStatus {
     PENDING,
     PROCESSING,
     COMPLETED,
-    FAILED
+    FAILED,
+    EXPIRED
 }
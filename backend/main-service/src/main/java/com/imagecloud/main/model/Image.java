@@ -1,5 +1,7 @@
 package main.java.com.imagecloud.main.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -7,13 +9,23 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "images")
+@Table(name = "images", indexes = {
+        @Index(name = "idx_images_source_hash", columnList = "source_hash, target_format"),
+        @Index(name = "idx_images_coalesced_with", columnList = "coalesced_with"),
+        @Index(name = "idx_images_user_status", columnList = "user_id, status")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Image {
+
+    /** Ids handed out per sequence call; images_id_seq increments by the same step (db/images-id-sequence.sql). */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // Pooled sequence rather than IDENTITY, so inserts need no round trip for the key and can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "images_id")
+    @SequenceGenerator(name = "images_id", sequenceName = "images_id_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false)
@@ -40,15 +52,60 @@ public class Image {
     @Column(columnDefinition = "bytea")
     private byte[] convertedImage;
 
+    // pg_largeobject OIDs used instead of the bytea columns when image.storage.mode=large-object
+    @Column
+    private Long originalOid;
+
+    @Column
+    private Long convertedOid;
+
+    // Set once the blob has moved to the cold tier and been dropped from Postgres
+    @Column
+    private LocalDateTime originalArchivedAt;
+
+    @Column
+    private LocalDateTime convertedArchivedAt;
+
     @Column(nullable = false)
     private LocalDateTime uploadedAt;
 
     @Column
     private LocalDateTime convertedAt;
 
+    // SHA-256 of the converted bytes, stored with them; the download ETag, checked before the blob is loaded
+    @Column(length = 64)
+    private String convertedHash;
+
     @Column
     private String errorMessage;
 
+    @Column
+    private String batchId;
+
+    @Column
+    private Long pixelCount;
+
+    // SHA-256 of originalImage; a user's identical uploads to the same target share one conversion.
+    // A content fingerprint, so never part of a response
+    @JsonIgnore
+    @Column(length = 64)
+    private String sourceHash;
+
+    // Set on rows that wait for another image's conversion instead of being queued themselves
+    @JsonIgnore
+    @Column
+    private Long coalescedWith;
+
+    // When a progressive preview was stored in image_previews; null if the image never got one
+    @Column
+    private LocalDateTime previewAt;
+
+    // Lets clients poll for the shared conversion's preview without learning which image it belongs to
+    @JsonProperty("coalesced")
+    public boolean isCoalesced() {
+        return coalescedWith != null;
+    }
+
     @PrePersist
     protected void onCreate() {
         uploadedAt = LocalDateTime.now();
@@ -0,0 +1,34 @@
+package main.java.com.imagecloud.main.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Low-resolution JPEG published by conversion-service ahead of the full result. Kept out of the images
+ * table so status reads and batch inserts never touch it.
+ */
+@Entity
+@Table(name = "image_previews")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImagePreview {
+    @Id
+    private Long imageId;
+
+    @Lob
+    @Column(columnDefinition = "bytea", nullable = false)
+    private byte[] previewImage;
+
+    @Column(nullable = false)
+    private int width;
+
+    @Column(nullable = false)
+    private int height;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
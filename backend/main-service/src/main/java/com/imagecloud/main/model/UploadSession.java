@@ -0,0 +1,56 @@
+package main.java.com.imagecloud.main.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * A resumable upload in progress. Chunks are appended to a staging large object at {@code receivedBytes};
+ * the row and the object are removed once the upload is completed, aborted or expired.
+ */
+@Entity
+@Table(name = "upload_sessions", indexes = {
+        @Index(name = "idx_upload_sessions_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private String originalFileName;
+
+    @Column(nullable = false)
+    private String targetFormat;
+
+    @Column(nullable = false)
+    private long totalBytes;
+
+    // Bytes stored so far; chunks are only accepted at exactly this offset
+    @Column(nullable = false)
+    private long receivedBytes;
+
+    @Column(nullable = false)
+    private long stagingOid;
+
+    // Optional SHA-256 (hex) of the whole file declared by the client, checked on completion
+    @Column
+    private String declaredSha256;
+
+    // Set while one request turns the upload into an image, so a second completion cannot run concurrently
+    @Column(nullable = false)
+    private boolean completing;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+}
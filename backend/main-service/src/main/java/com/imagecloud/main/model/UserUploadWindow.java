@@ -0,0 +1,30 @@
+package main.java.com.imagecloud.main.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Bytes a user has uploaded in the current fixed quota window. One row per user, shared by every replica.
+ */
+@Entity
+@Table(name = "user_upload_windows")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserUploadWindow {
+    @Id
+    private String userId;
+
+    @Column(nullable = false)
+    private long windowBytes;
+
+    // Epoch millis
+    @Column(nullable = false)
+    private long windowStartedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
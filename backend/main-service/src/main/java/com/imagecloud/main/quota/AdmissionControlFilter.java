@@ -0,0 +1,82 @@
+package main.java.com.imagecloud.main.quota;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Rejects over-quota uploads with 429 before the DispatcherServlet parses the multipart body,
+ * so an abusive client costs a header read instead of a buffered upload.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    private static final String RESUMABLE_UPLOADS_PATH = "/api/images/uploads";
+
+    // Requests that bring new bytes: single and batch uploads, and creating a resumable upload. Chunks and
+    // completion of a resumable upload are not listed, as its whole length was admitted when it was created
+    private static final Set<String> ADMISSION_PATHS = Set.of(
+            "/api/images/upload",
+            "/api/images/upload/batch",
+            RESUMABLE_UPLOADS_PATH
+    );
+
+    private final QuotaService quotaService;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !ADMISSION_PATHS.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String userId = request.getHeader("X-User-Id");
+        if (!StringUtils.hasText(userId)) {
+            // Let the controller produce its usual 400 for the missing header
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        AdmissionDecision decision = quotaService.admit(userId, declaredUploadBytes(request));
+        if (!decision.allowed()) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()));
+            response.setHeader(HttpHeaders.CONNECTION, "close");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"imageId\":null,\"status\":\"REJECTED\",\"message\":\"Upload quota exceeded ("
+                    + decision.reason() + ")\"}");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Creating a resumable upload reserves its whole declared length; its chunks are not filtered again.
+     */
+    private static long declaredUploadBytes(HttpServletRequest request) {
+        if (RESUMABLE_UPLOADS_PATH.equals(request.getRequestURI())) {
+            try {
+                return Long.parseLong(request.getParameter("length"));
+            } catch (NumberFormatException e) {
+                // Missing or malformed; the controller rejects it
+                return 0;
+            }
+        }
+        return request.getContentLengthLong();
+    }
+}
@@ -0,0 +1,17 @@
+package main.java.com.imagecloud.main.quota;
+
+/**
+ * Outcome of an admission check. Rejections carry the quota that tripped and a Retry-After hint.
+ */
+public record AdmissionDecision(boolean allowed, String reason, long retryAfterSeconds) {
+
+    private static final AdmissionDecision ALLOWED = new AdmissionDecision(true, null, 0);
+
+    public static AdmissionDecision allow() {
+        return ALLOWED;
+    }
+
+    public static AdmissionDecision reject(String reason, long retryAfterSeconds) {
+        return new AdmissionDecision(false, reason, Math.max(1, retryAfterSeconds));
+    }
+}
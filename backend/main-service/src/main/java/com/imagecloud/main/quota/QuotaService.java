@@ -0,0 +1,161 @@
+package main.java.com.imagecloud.main.quota;
+
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.model.ConversionStatus;
+import com.imagecloud.main.repository.ImageRepository;
+import com.imagecloud.main.repository.ImageRepository.PendingWorkView;
+import com.imagecloud.main.repository.UserUploadWindowRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user admission control for uploads.
+ * Limits in-flight conversion jobs, pending pixel work and bytes uploaded in a fixed window.
+ *
+ * All state is in Postgres, so every replica sees the same numbers no matter which one accepted an upload
+ * or consumed its response. In-flight jobs and pending pixels are summed from the user's PENDING/PROCESSING
+ * images; the byte window is one row per user, reserved with a single conditional update.
+ *
+ * The pending-work sum is an aggregate over the images table, so each instance keeps it per user for
+ * {@code pending-cache-ms} and counts the uploads it admits on top, rather than querying on every upload.
+ * Limits are soft: uploads admitted within that interval, or on other replicas, can overshoot the job and
+ * pixel limits slightly. The byte window is exact.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QuotaService {
+
+    public static final String REASON_IN_FLIGHT = "in_flight";
+    public static final String REASON_BYTES = "bytes";
+    public static final String REASON_PIXELS = "pixels";
+
+    private static final List<ConversionStatus> IN_FLIGHT = List.of(ConversionStatus.PENDING, ConversionStatus.PROCESSING);
+
+    private record PendingWork(long jobs, long pixels, long readAt) {
+    }
+
+    private final ImageRepository imageRepository;
+    private final UserUploadWindowRepository uploadWindowRepository;
+    private final ImageMetrics imageMetrics;
+
+    // Per-user pending work as last read from the database, plus uploads admitted here since
+    private final Map<String, PendingWork> pendingWork = new ConcurrentHashMap<>();
+
+    @Value("${image.quota.enabled:true}")
+    private boolean enabled;
+
+    @Value("${image.quota.max-in-flight:20}")
+    private long maxInFlight;
+
+    @Value("${image.quota.max-bytes-per-window:209715200}")
+    private long maxBytesPerWindow;
+
+    @Value("${image.quota.window-seconds:3600}")
+    private long windowSeconds;
+
+    @Value("${image.quota.max-pending-pixels:400000000}")
+    private long maxPendingPixels;
+
+    @Value("${image.quota.retry-after-seconds:5}")
+    private long retryAfterSeconds;
+
+    @Value("${image.quota.pending-cache-ms:1000}")
+    private long pendingCacheMs;
+
+    // Older unfinished rows are being shed as expired or were lost, and must not hold the quota forever
+    @Value("${image.conversion.deadline-ms:300000}")
+    private long deadlineMs;
+
+    /**
+     * Called before the request body is read. Reserves the declared bytes in the user's window when admitted.
+     *
+     * @param contentLength declared request size, or -1 if unknown
+     */
+    public AdmissionDecision admit(String userId, long contentLength) {
+        if (!enabled) {
+            return AdmissionDecision.allow();
+        }
+        long now = System.currentTimeMillis();
+
+        PendingWork pending = pendingWork(userId, now);
+        if (pending.jobs() >= maxInFlight) {
+            return reject(REASON_IN_FLIGHT, retryAfterSeconds);
+        }
+        if (pending.pixels() >= maxPendingPixels) {
+            return reject(REASON_PIXELS, retryAfterSeconds);
+        }
+
+        long bytes = Math.max(0, contentLength);
+        long windowMillis = windowSeconds * 1000;
+        if (bytes > maxBytesPerWindow) {
+            return reject(REASON_BYTES, windowSeconds);
+        }
+        if (!reserveBytes(userId, bytes, now, now - windowMillis)) {
+            long windowEndsIn = uploadWindowRepository.findById(userId)
+                    .map(window -> window.getWindowStartedAt() + windowMillis - now)
+                    .orElse(0L);
+            return reject(REASON_BYTES, Math.max(1, (windowEndsIn + 999) / 1000));
+        }
+        // Counted until the next read picks up its image row; its pixels are not known before the body is read
+        pendingWork.computeIfPresent(userId, (user, work) -> new PendingWork(work.jobs() + 1, work.pixels(),
+                work.readAt()));
+        return AdmissionDecision.allow();
+    }
+
+    /**
+     * Drops windows that have ended; a user's next upload starts a new one.
+     */
+    @Scheduled(fixedDelayString = "${image.quota.cleanup-interval-ms:600000}")
+    public void removeExpiredWindows() {
+        if (!enabled) {
+            return;
+        }
+        long staleBefore = System.currentTimeMillis() - pendingCacheMs;
+        pendingWork.values().removeIf(work -> work.readAt() < staleBefore);
+        try {
+            int removed = uploadWindowRepository.deleteExpired(System.currentTimeMillis() - windowSeconds * 1000);
+            if (removed > 0) {
+                log.info("Removed {} expired upload quota windows", removed);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to remove expired upload quota windows: {}", e.getMessage());
+        }
+    }
+
+    private PendingWork pendingWork(String userId, long now) {
+        PendingWork cached = pendingWork.get(userId);
+        if (cached != null && now - cached.readAt() < pendingCacheMs) {
+            return cached;
+        }
+        PendingWorkView view = imageRepository.sumPendingWork(userId, IN_FLIGHT,
+                LocalDateTime.now().minus(deadlineMs, ChronoUnit.MILLIS));
+        PendingWork fresh = new PendingWork(view.getJobs(), view.getPixels(), now);
+        pendingWork.put(userId, fresh);
+        return fresh;
+    }
+
+    private boolean reserveBytes(String userId, long bytes, long now, long expiredBefore) {
+        LocalDateTime updatedAt = LocalDateTime.now();
+        if (uploadWindowRepository.reserve(userId, bytes, maxBytesPerWindow, now, expiredBefore, updatedAt) > 0) {
+            return true;
+        }
+        // No row yet: create an empty window and try once more, whoever created it
+        uploadWindowRepository.createIfAbsent(userId, now, updatedAt);
+        return uploadWindowRepository.reserve(userId, bytes, maxBytesPerWindow, now, expiredBefore, updatedAt) > 0;
+    }
+
+    private AdmissionDecision reject(String reason, long retryAfter) {
+        imageMetrics.countAdmissionRejected(reason);
+        return AdmissionDecision.reject(reason, retryAfter);
+    }
+}
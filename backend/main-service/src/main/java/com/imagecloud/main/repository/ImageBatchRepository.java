@@ -0,0 +1,78 @@
+package main.java.com.imagecloud.main.repository;
+
+import com.imagecloud.main.model.Image;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk insert path for batch uploads.
+ * Ids are pre-allocated from images_id_seq so rows can reference each other before they exist,
+ * and all rows are written with a single JDBC batch.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ImageBatchRepository {
+
+    private static final String INSERT_SQL =
+            "insert into images (id, user_id, original_file_name, original_format, target_format, status, "
+                    + "original_image, uploaded_at, batch_id, pixel_count, source_hash, coalesced_with, original_oid) "
+                    + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Assigns ids from the images sequence, so rows can reference each other before they are inserted.
+     * Uses the same pooled scheme as Hibernate: each nextval value {@code hi} owns the ids
+     * {@code (hi - ID_ALLOCATION_SIZE, hi]}, so one call covers a whole block.
+     */
+    public void allocateIds(List<Image> images) {
+        if (images.isEmpty()) {
+            return;
+        }
+        int blocks = (images.size() + Image.ID_ALLOCATION_SIZE - 1) / Image.ID_ALLOCATION_SIZE;
+        List<Long> his = new ArrayList<>(jdbcTemplate.queryForList(
+                "select nextval('images_id_seq') from generate_series(1, ?)", Long.class, blocks));
+        // A fresh sequence starts at 1, below the first full block; Hibernate skips that value too
+        his.removeIf(hi -> hi < Image.ID_ALLOCATION_SIZE);
+        while (his.size() < blocks) {
+            his.add(jdbcTemplate.queryForObject("select nextval('images_id_seq')", Long.class));
+        }
+
+        int next = 0;
+        for (Long hi : his) {
+            for (long id = hi - Image.ID_ALLOCATION_SIZE + 1; id <= hi && next < images.size(); id++) {
+                images.get(next++).setId(id);
+            }
+        }
+    }
+
+    @Transactional
+    public void insertAll(List<Image> images) {
+        if (images.isEmpty()) {
+            return;
+        }
+        allocateIds(images.stream().filter(image -> image.getId() == null).toList());
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, images, images.size(), (ps, image) -> {
+            ps.setLong(1, image.getId());
+            ps.setString(2, image.getUserId());
+            ps.setString(3, image.getOriginalFileName());
+            ps.setString(4, image.getOriginalFormat());
+            ps.setString(5, image.getTargetFormat());
+            ps.setString(6, image.getStatus().name());
+            ps.setBytes(7, image.getOriginalImage());
+            ps.setTimestamp(8, Timestamp.valueOf(image.getUploadedAt()));
+            ps.setString(9, image.getBatchId());
+            ps.setObject(10, image.getPixelCount());
+            ps.setString(11, image.getSourceHash());
+            ps.setObject(12, image.getCoalescedWith());
+            ps.setObject(13, image.getOriginalOid());
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package main.java.com.imagecloud.main.repository;
+
+import com.imagecloud.main.model.ImagePreview;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public interface ImagePreviewRepository extends JpaRepository<ImagePreview, Long> {
+
+    // Single statement, without loading the preview first as deleteById would
+    @Modifying
+    @Transactional
+    @Query("delete from ImagePreview p where p.imageId = :imageId")
+    int deletePreview(@Param("imageId") Long imageId);
+}
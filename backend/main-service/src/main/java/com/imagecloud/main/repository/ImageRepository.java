@@ -1,11 +1,186 @@
 package main.java.com.imagecloud.main.repository;
 
+import com.imagecloud.main.model.ConversionStatus;
 import com.imagecloud.main.model.Image;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ImageRepository extends JpaRepository<Image, Long> {
     List<Image> findByUserIdOrderByUploadedAtDesc(String userId);
+
+    // Metadata-only projections used by exports, so listing never pulls blob columns
+    interface ConvertedImageView {
+        Long getId();
+        String getOriginalFileName();
+        String getTargetFormat();
+    }
+
+    List<ConvertedImageView> findByUserIdAndStatusOrderByIdAsc(String userId, ConversionStatus status);
+
+    List<ConvertedImageView> findByUserIdAndStatusAndIdInOrderByIdAsc(String userId, ConversionStatus status,
+                                                                       Collection<Long> ids);
+
+    List<ConvertedImageView> findByUserIdAndStatusAndBatchIdOrderByIdAsc(String userId, ConversionStatus status,
+                                                                          String batchId);
+
+    // Conversions a user is still waiting for, summed for admission control
+    interface PendingWorkView {
+        long getJobs();
+        long getPixels();
+    }
+
+    // Coalesced followers are left out: they ride on their leader's conversion and add no work
+    @Query("select count(i) as jobs, coalesce(sum(i.pixelCount), 0) as pixels from Image i "
+            + "where i.userId = :userId and i.status in :statuses and i.coalescedWith is null "
+            + "and i.uploadedAt >= :since")
+    PendingWorkView sumPendingWork(@Param("userId") String userId,
+                                   @Param("statuses") Collection<ConversionStatus> statuses,
+                                   @Param("since") LocalDateTime since);
+
+    // Just what response handling needs, so completing a conversion never loads either blob
+    interface ConversionTargetView {
+        Long getId();
+        String getUserId();
+        String getTargetFormat();
+        Long getPixelCount();
+        LocalDateTime getPreviewAt();
+    }
+
+    Optional<ConversionTargetView> findConversionTargetById(Long id);
+
+    // What a download needs to authorise it and answer If-None-Match before any blob is read
+    interface DownloadView {
+        Long getId();
+        String getUserId();
+        ConversionStatus getStatus();
+        String getOriginalFileName();
+        String getTargetFormat();
+        String getConvertedHash();
+    }
+
+    Optional<DownloadView> findDownloadById(Long id);
+
+    // Targeted writes for the upload and response paths: only the named columns are sent, where saving
+    // the detached entity would re-select the row and rewrite both blob columns
+    @Modifying
+    @Transactional
+    @Query("update Image i set i.status = :status where i.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") ConversionStatus status);
+
+    @Modifying
+    @Transactional
+    @Query("update Image i set i.status = :status, i.coalescedWith = :leaderId where i.id = :id")
+    int attachToLeader(@Param("id") Long id, @Param("leaderId") Long leaderId,
+                       @Param("status") ConversionStatus status);
+
+    @Modifying
+    @Transactional
+    @Query("update Image i set i.status = :status, i.convertedImage = :convertedImage, "
+            + "i.convertedOid = :convertedOid, i.convertedHash = :convertedHash, i.convertedAt = :convertedAt "
+            + "where i.id = :id")
+    int completeConversion(@Param("id") Long id,
+                           @Param("status") ConversionStatus status,
+                           @Param("convertedImage") byte[] convertedImage,
+                           @Param("convertedOid") Long convertedOid,
+                           @Param("convertedHash") String convertedHash,
+                           @Param("convertedAt") LocalDateTime convertedAt);
+
+    @Modifying
+    @Transactional
+    @Query("update Image i set i.status = :status, i.errorMessage = :errorMessage where i.id = :id")
+    int failConversion(@Param("id") Long id, @Param("status") ConversionStatus status,
+                       @Param("errorMessage") String errorMessage);
+
+    @Query("select i.convertedImage from Image i where i.id = :id")
+    byte[] findConvertedImageById(@Param("id") Long id);
+
+    @Query("select i.originalImage from Image i where i.id = :id")
+    byte[] findOriginalImageById(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("update Image i set i.originalImage = null where i.id = :id")
+    int clearOriginalImage(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("update Image i set i.convertedImage = null where i.id = :id")
+    int clearConvertedImage(@Param("id") Long id);
+
+    // Archival candidates, oldest first; ids only so the scan never reads blob columns
+    @Query("select i.id from Image i where i.status in :statuses and i.uploadedAt < :before "
+            + "and i.originalArchivedAt is null order by i.id asc")
+    List<Long> findOriginalsToArchive(@Param("statuses") Collection<ConversionStatus> statuses,
+                                      @Param("before") LocalDateTime before,
+                                      Pageable pageable);
+
+    @Query("select i.id from Image i where i.status = :status and i.convertedAt < :before "
+            + "and i.convertedArchivedAt is null order by i.id asc")
+    List<Long> findConvertedToArchive(@Param("status") ConversionStatus status,
+                                      @Param("before") LocalDateTime before,
+                                      Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("update Image i set i.originalArchivedAt = :at where i.id = :id")
+    int markOriginalArchived(@Param("id") Long id, @Param("at") LocalDateTime at);
+
+    @Modifying
+    @Transactional
+    @Query("update Image i set i.convertedArchivedAt = :at where i.id = :id")
+    int markConvertedArchived(@Param("id") Long id, @Param("at") LocalDateTime at);
+
+    // Returns [status, count] rows without touching the blob columns
+    @Query("select i.status, count(i) from Image i where i.batchId = :batchId and i.userId = :userId group by i.status")
+    List<Object[]> countByStatusForBatch(@Param("batchId") String batchId, @Param("userId") String userId);
+
+    interface CoalescingLeaderView {
+        Long getId();
+        String getSourceHash();
+    }
+
+    // The user's in-flight conversions of the same bytes to the same format; the oldest one is the one to attach to
+    Optional<CoalescingLeaderView> findFirstByUserIdAndSourceHashAndTargetFormatAndStatusAndCoalescedWithIsNullAndIdLessThanOrderByIdAsc(
+            String userId, String sourceHash, String targetFormat, ConversionStatus status, Long id);
+
+    List<CoalescingLeaderView> findByUserIdAndSourceHashInAndTargetFormatAndStatusAndCoalescedWithIsNull(
+            String userId, Collection<String> sourceHashes, String targetFormat, ConversionStatus status);
+
+    // Copies a finished leader's outcome onto its waiting followers inside Postgres, without loading the blob
+    @Modifying
+    @Transactional
+    // Large objects are shared rather than copied; images are never rewritten or deleted once converted
+    @Query(value = "update images f set converted_image = l.converted_image, converted_oid = l.converted_oid, "
+            + "converted_hash = l.converted_hash, status = l.status, "
+            + "converted_at = l.converted_at, error_message = l.error_message "
+            + "from images l where l.id = :leaderId and f.coalesced_with = l.id "
+            + "and f.status in ('PENDING', 'PROCESSING') and l.status in ('COMPLETED', 'FAILED', 'EXPIRED')",
+            nativeQuery = true)
+    int completeFollowers(@Param("leaderId") Long leaderId);
+
+    // A preview is only worth storing while the full result is still outstanding
+    @Modifying
+    @Transactional
+    @Query("update Image i set i.previewAt = :at where i.id = :id and i.previewAt is null "
+            + "and i.status in :statuses")
+    int markPreviewed(@Param("id") Long id, @Param("at") LocalDateTime at,
+                      @Param("statuses") Collection<ConversionStatus> statuses);
+
+    @Modifying
+    @Transactional
+    @Query("update Image i set i.status = :to where i.id in :ids and i.status = :from")
+    int transitionStatus(@Param("ids") Collection<Long> ids,
+                         @Param("from") ConversionStatus from,
+                         @Param("to") ConversionStatus to);
 }
@@ -0,0 +1,40 @@
+package main.java.com.imagecloud.main.repository;
+
+import com.imagecloud.main.model.UploadSession;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    Optional<UploadSession> findByIdAndUserId(String id, String userId);
+
+    List<UploadSession> findByExpiresAtBefore(LocalDateTime before, Pageable pageable);
+
+    // Only one request may turn a fully received upload into an image
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.completing = true "
+            + "where s.id = :id and s.completing = false and s.receivedBytes = s.totalBytes")
+    int claimForCompletion(@Param("id") String id);
+
+    // Same flag as a completion, so an abort cannot delete the staged bytes while a completion reads them
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.completing = true where s.id = :id and s.completing = false")
+    int claimForAbort(@Param("id") String id);
+
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.completing = false where s.id = :id")
+    int releaseCompletion(@Param("id") String id);
+}
@@ -0,0 +1,50 @@
+package main.java.com.imagecloud.main.repository;
+
+import com.imagecloud.main.model.UserUploadWindow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface UserUploadWindowRepository extends JpaRepository<UserUploadWindow, String> {
+
+    /**
+     * Adds {@code bytes} to the user's window, or starts a new window with them if the current one began at
+     * or before {@code expiredBefore}. A single statement, so concurrent uploads on any replica cannot both
+     * take the last of the allowance.
+     *
+     * @return 1 if the bytes were reserved, 0 if the window is full or the user has no row yet
+     */
+    @Modifying
+    @Transactional
+    @Query("update UserUploadWindow w set "
+            + "w.windowBytes = case when w.windowStartedAt <= :expiredBefore then :bytes else w.windowBytes + :bytes end, "
+            + "w.windowStartedAt = case when w.windowStartedAt <= :expiredBefore then :now else w.windowStartedAt end, "
+            + "w.updatedAt = :updatedAt "
+            + "where w.userId = :userId and (w.windowStartedAt <= :expiredBefore or w.windowBytes + :bytes <= :maxBytes)")
+    int reserve(@Param("userId") String userId,
+                @Param("bytes") long bytes,
+                @Param("maxBytes") long maxBytes,
+                @Param("now") long now,
+                @Param("expiredBefore") long expiredBefore,
+                @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Racing first uploads of a user both try this; the loser's insert is a no-op
+    @Modifying
+    @Transactional
+    @Query(value = "insert into user_upload_windows (user_id, window_bytes, window_started_at, updated_at) "
+            + "values (:userId, 0, :now, :updatedAt) on conflict (user_id) do nothing", nativeQuery = true)
+    int createIfAbsent(@Param("userId") String userId,
+                       @Param("now") long now,
+                       @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Transactional
+    @Query("delete from UserUploadWindow w where w.windowStartedAt <= :expiredBefore")
+    int deleteExpired(@Param("expiredBefore") long expiredBefore);
+}
@@ -0,0 +1,305 @@
+package main.java.com.imagecloud.main.service;
+
+import com.imagecloud.common.image.ImageFormats;
+import com.imagecloud.common.util.ContentHash;
+import com.imagecloud.main.dto.BatchStatusResponse;
+import com.imagecloud.main.dto.BatchUploadResponse;
+import com.imagecloud.main.dto.ConversionRequest;
+import com.imagecloud.main.messaging.ConversionBus;
+import com.imagecloud.main.model.ConversionStatus;
+import com.imagecloud.main.model.Image;
+import com.imagecloud.main.repository.ImageBatchRepository;
+import com.imagecloud.main.repository.ImageRepository;
+import com.imagecloud.main.storage.ImageBlobStore;
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.metrics.ImageMetrics.DbOperation;
+import com.imagecloud.main.metrics.ImageMetrics.RequestStatus;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.stream.Collectors;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Multi-file ingest: rows are inserted with one JDBC batch per chunk and the matching
+ * conversion requests are handed to the bus as one unit (one channel and a single publisher-confirm wait on RabbitMQ).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchUploadService {
+
+    private final ImageBatchRepository imageBatchRepository;
+    private final ImageRepository imageRepository;
+    private final ConversionBus conversionBus;
+    private final ImageMetrics imageMetrics;
+    private final ConversionCoalescer conversionCoalescer;
+    private final ImageBlobStore imageBlobStore;
+
+    @Value("${image.batch.max-files:200}")
+    private int maxFiles;
+
+    @Value("${image.batch.chunk-size:50}")
+    private int chunkSize;
+
+    @Value("${image.batch.max-entry-bytes:10485760}")
+    private long maxEntryBytes;
+
+    @Value("${image.conversion.deadline-ms:300000}")
+    private long deadlineMs;
+
+    public BatchUploadResponse uploadFiles(List<MultipartFile> files, String targetFormat, String userId) {
+        if (files.size() > maxFiles) {
+            throw new IllegalArgumentException("Batch exceeds the limit of " + maxFiles + " files");
+        }
+        BatchContext batch = new BatchContext(userId, targetFormat);
+        try {
+            for (MultipartFile file : files) {
+                if (file.isEmpty()) {
+                    batch.skipped++;
+                    continue;
+                }
+                batch.add(file.getOriginalFilename(), file.getBytes());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read batch upload: " + e.getMessage());
+        }
+        return batch.finish();
+    }
+
+    /**
+     * Ingest a ZIP archive from the raw request body, one entry at a time.
+     * Directories and entries that are not recognised images are skipped.
+     */
+    public BatchUploadResponse uploadZip(InputStream body, String targetFormat, String userId) {
+        BatchContext batch = new BatchContext(userId, targetFormat);
+        try (ZipInputStream zip = new ZipInputStream(body)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                if (batch.accepted() >= maxFiles) {
+                    throw new IllegalArgumentException("Batch exceeds the limit of " + maxFiles + " files");
+                }
+                byte[] data = readEntry(zip);
+                if (data == null || ImageFormats.detect(data) == null) {
+                    batch.skipped++;
+                    continue;
+                }
+                String name = entry.getName();
+                batch.add(name.substring(name.lastIndexOf('/') + 1), data);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read ZIP upload: " + e.getMessage());
+        }
+        return batch.finish();
+    }
+
+    public BatchStatusResponse getBatchStatus(String batchId, String userId) {
+        List<Object[]> rows = imageRepository.countByStatusForBatch(batchId, userId);
+        if (rows.isEmpty()) {
+            throw new RuntimeException("Batch not found");
+        }
+        BatchStatusResponse status = new BatchStatusResponse();
+        status.setBatchId(batchId);
+        for (Object[] row : rows) {
+            long count = (Long) row[1];
+            switch ((ConversionStatus) row[0]) {
+                case PENDING -> status.setPending(count);
+                case PROCESSING -> status.setProcessing(count);
+                case COMPLETED -> status.setCompleted(count);
+                case FAILED -> status.setFailed(count);
+                case EXPIRED -> status.setExpired(count);
+            }
+            status.setTotal(status.getTotal() + count);
+        }
+        status.setFinished(status.getPending() + status.getProcessing() == 0);
+        return status;
+    }
+
+    /**
+     * Returns null when the entry is larger than the per-entry limit.
+     */
+    private byte[] readEntry(ZipInputStream zip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while ((read = zip.read(buffer)) != -1) {
+            total += read;
+            if (total > maxEntryBytes) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private void persistAndEnqueue(List<Image> chunk, Map<String, Long> batchLeaders, long uploadedAt) {
+        imageBatchRepository.allocateIds(chunk);
+        List<Image> toQueue = coalesce(chunk, batchLeaders);
+        Set<Long> leaderIds = chunk.stream()
+                .map(Image::getCoalescedWith)
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+        int followers = chunk.size() - toQueue.size();
+
+        // Keep the bytes for publishing; the blob store may move them off the entity
+        Map<Long, byte[]> payloads = new HashMap<>();
+        for (Image image : chunk) {
+            payloads.put(image.getId(), image.getOriginalImage());
+            imageBlobStore.storeOriginal(image, image.getOriginalImage());
+        }
+
+        Timer.Sample dbSample = Timer.start();
+        imageBatchRepository.insertAll(chunk);
+        dbSample.stop(imageMetrics.dbQuery(DbOperation.BATCH_INSERT));
+
+        if (toQueue.isEmpty()) {
+            conversionCoalescer.followersAttached(leaderIds, followers);
+            return;
+        }
+
+        List<Long> ids = toQueue.stream().map(Image::getId).toList();
+        List<ConversionRequest> requests = new ArrayList<>(toQueue.size());
+        for (Image image : toQueue) {
+            requests.add(new ConversionRequest(
+                    image.getId(),
+                    payloads.get(image.getId()),
+                    image.getOriginalFormat(),
+                    image.getTargetFormat(),
+                    uploadedAt + deadlineMs,
+                    image.getSourceHash()));
+        }
+        Timer.Sample queueSample = Timer.start();
+        try {
+            conversionBus.sendAll(requests, uploadedAt);
+        } catch (RuntimeException e) {
+            log.error("Failed to enqueue batch chunk of {} images", toQueue.size(), e);
+            imageRepository.transitionStatus(ids, ConversionStatus.PENDING, ConversionStatus.FAILED);
+            imageMetrics.countRequests(RequestStatus.UPLOAD_FAILED, chunk.get(0).getTargetFormat(), toQueue.size());
+            conversionCoalescer.followersAttached(leaderIds, followers);
+            return;
+        }
+        queueSample.stop(imageMetrics.queueSend(true));
+
+        // Only move rows still PENDING so a fast response is never overwritten
+        imageRepository.transitionStatus(ids, ConversionStatus.PENDING, ConversionStatus.PROCESSING);
+        imageMetrics.countRequests(RequestStatus.INITIATED, chunk.get(0).getTargetFormat(), toQueue.size());
+        conversionCoalescer.followersAttached(leaderIds, followers);
+    }
+
+    /**
+     * Attaches images that duplicate an earlier image of this batch, or a conversion of the same user already
+     * in flight, to that leader instead of queueing them.
+     *
+     * @return the images that still need a conversion request
+     */
+    private List<Image> coalesce(List<Image> chunk, Map<String, Long> batchLeaders) {
+        if (!conversionCoalescer.enabled()) {
+            return chunk;
+        }
+        Set<String> newHashes = chunk.stream()
+                .map(Image::getSourceHash)
+                .filter(hash -> !batchLeaders.containsKey(hash))
+                .collect(Collectors.toSet());
+        Map<String, Long> inFlight = conversionCoalescer.findLeaders(chunk.get(0).getUserId(), newHashes,
+                chunk.get(0).getTargetFormat());
+
+        List<Image> toQueue = new ArrayList<>(chunk.size());
+        for (Image image : chunk) {
+            Long leaderId = batchLeaders.getOrDefault(image.getSourceHash(), inFlight.get(image.getSourceHash()));
+            if (leaderId != null) {
+                image.setCoalescedWith(leaderId);
+                image.setStatus(ConversionStatus.PROCESSING);
+            } else {
+                batchLeaders.put(image.getSourceHash(), image.getId());
+                toQueue.add(image);
+            }
+        }
+        return toQueue;
+    }
+
+    /**
+     * Accumulates images for one batch and flushes them in fixed-size chunks to bound memory.
+     */
+    private class BatchContext {
+        private final String batchId = UUID.randomUUID().toString();
+        private final long startedAt = System.currentTimeMillis();
+        private final String userId;
+        private final String targetFormat;
+        private final List<Image> chunk = new ArrayList<>();
+        private final List<Long> imageIds = new ArrayList<>();
+        // Source hash to the id of the first image carrying it, so duplicates in the batch convert once
+        private final Map<String, Long> leaders = new HashMap<>();
+        private int skipped;
+
+        BatchContext(String userId, String targetFormat) {
+            this.userId = userId;
+            this.targetFormat = targetFormat;
+        }
+
+        int accepted() {
+            return imageIds.size() + chunk.size();
+        }
+
+        void add(String fileName, byte[] data) {
+            String sniffed = ImageFormats.detect(data);
+            long pixelCount = ImageFormats.pixelCount(data);
+            Image image = new Image();
+            image.setUserId(userId);
+            image.setOriginalFileName(fileName != null ? fileName : "image");
+            image.setOriginalFormat(sniffed != null ? sniffed : ImageFormats.normalize(extension(fileName)));
+            image.setTargetFormat(targetFormat);
+            image.setStatus(ConversionStatus.PENDING);
+            image.setOriginalImage(data);
+            image.setUploadedAt(LocalDateTime.now());
+            image.setBatchId(batchId);
+            image.setPixelCount(pixelCount >= 0 ? pixelCount : null);
+            image.setSourceHash(conversionCoalescer.enabled() ? ContentHash.sha256Hex(data) : null);
+            chunk.add(image);
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            persistAndEnqueue(chunk, leaders, startedAt);
+            chunk.forEach(image -> imageIds.add(image.getId()));
+            chunk.clear();
+        }
+
+        BatchUploadResponse finish() {
+            flush();
+            log.info("Batch {} accepted {} images ({} skipped)", batchId, imageIds.size(), skipped);
+            return new BatchUploadResponse(batchId, imageIds.size(), skipped, imageIds,
+                    "PROCESSING", "Batch uploaded and conversion started");
+        }
+
+        private String extension(String fileName) {
+            if (fileName == null || !fileName.contains(".")) {
+                return "";
+            }
+            return fileName.substring(fileName.lastIndexOf('.') + 1);
+        }
+    }
+}
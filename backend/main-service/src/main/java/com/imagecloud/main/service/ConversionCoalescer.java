@@ -0,0 +1,86 @@
+package main.java.com.imagecloud.main.service;
+
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.model.ConversionStatus;
+import com.imagecloud.main.repository.ImageRepository;
+import com.imagecloud.main.repository.ImageRepository.CoalescingLeaderView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Cross-instance single-flight for conversions, using the images table as the lease.
+ *
+ * A PROCESSING row with a given source hash and target format is the leader. Later identical uploads by the
+ * same user are stored with {@code coalescedWith} pointing at it and are never queued; when the leader reaches
+ * a terminal state its result is copied onto them. Attaching only to older rows rules out cycles.
+ *
+ * Leaders are never shared across users: a follower sees its leader's preview and status, which would tell
+ * one user that another had uploaded the same bytes.
+ *
+ * Followers must be committed before {@link #followersAttached} is called: a leader that finished in between
+ * is caught there, and any leader that finishes later sees the follower rows.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ConversionCoalescer {
+
+    private final ImageRepository imageRepository;
+    private final ImageMetrics imageMetrics;
+
+    @Value("${image.conversion.coalescing.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * @return id of an older in-flight conversion of the same bytes to the same format by this user, or null
+     */
+    public Long findLeader(String userId, String sourceHash, String targetFormat, Long beforeId) {
+        if (!enabled || sourceHash == null) {
+            return null;
+        }
+        return imageRepository
+                .findFirstByUserIdAndSourceHashAndTargetFormatAndStatusAndCoalescedWithIsNullAndIdLessThanOrderByIdAsc(
+                        userId, sourceHash, targetFormat, ConversionStatus.PROCESSING, beforeId)
+                .map(CoalescingLeaderView::getId)
+                .orElse(null);
+    }
+
+    /**
+     * @return oldest in-flight leader id of this user per source hash, for hashes that have one
+     */
+    public Map<String, Long> findLeaders(String userId, Collection<String> sourceHashes, String targetFormat) {
+        if (!enabled || sourceHashes.isEmpty()) {
+            return Map.of();
+        }
+        return imageRepository
+                .findByUserIdAndSourceHashInAndTargetFormatAndStatusAndCoalescedWithIsNull(
+                        userId, sourceHashes, targetFormat, ConversionStatus.PROCESSING)
+                .stream()
+                .collect(Collectors.toMap(CoalescingLeaderView::getSourceHash, CoalescingLeaderView::getId, Math::min));
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public void followersAttached(Collection<Long> leaderIds, int followers) {
+        imageMetrics.countCoalesced(followers);
+        leaderIds.forEach(this::leaderFinished);
+    }
+
+    /**
+     * Copies the leader's outcome onto its followers. A no-op while the leader is still in flight.
+     */
+    public void leaderFinished(Long leaderId) {
+        int updated = imageRepository.completeFollowers(leaderId);
+        if (updated > 0) {
+            log.info("Completed {} coalesced images from image ID: {}", updated, leaderId);
+        }
+    }
+}
@@ -1,22 +1,33 @@
 package main.java.com.imagecloud.main.service;
 
+import com.imagecloud.common.image.ImageFormats;
+import com.imagecloud.common.util.ContentHash;
 import com.imagecloud.main.dto.*;
+import com.imagecloud.main.messaging.ConversionBus;
 import com.imagecloud.main.model.ConversionStatus;
 import com.imagecloud.main.model.Image;
+import com.imagecloud.main.model.ImagePreview;
+import com.imagecloud.main.repository.ImagePreviewRepository;
 import com.imagecloud.main.repository.ImageRepository;
-import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.MeterRegistry;
+import com.imagecloud.main.repository.ImageRepository.ConversionTargetView;
+import com.imagecloud.main.repository.ImageRepository.DownloadView;
+import com.imagecloud.main.service.InlineConversionService.InlineAttempt;
+import com.imagecloud.main.storage.ImageBlobStore;
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.metrics.ImageMetrics.DbOperation;
+import com.imagecloud.main.metrics.ImageMetrics.RequestStatus;
 import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,141 +36,279 @@ import java.util.stream.Collectors;
 public class ImageService {
 
     private final ImageRepository imageRepository;
-    private final RabbitTemplate rabbitTemplate;
-    private final MeterRegistry meterRegistry;
+    private final ConversionBus conversionBus;
+    private final ImageMetrics imageMetrics;
+    private final InlineConversionService inlineConversionService;
+    private final ConversionCoalescer conversionCoalescer;
+    private final ImageBlobStore imageBlobStore;
+    private final ImagePreviewRepository imagePreviewRepository;
 
-    @Value("${rabbitmq.exchange.image}")
-    private String imageExchange;
-
-    @Value("${rabbitmq.routing-key.conversion-request}")
-    private String conversionRequestRoutingKey;
+    @Value("${image.conversion.deadline-ms:300000}")
+    private long deadlineMs;
 
     public ImageUploadResponse uploadAndConvert(MultipartFile file, String targetFormat, String userId) {
-        Timer.Sample sample = Timer.start(meterRegistry);
+        byte[] imageData;
         try {
-            // Extract original format from filename
-            String originalFileName = file.getOriginalFilename();
-            String originalFormat = getFileExtension(originalFileName);
-
-            // Save image to database
-            Image image = new Image();
-            image.setUserId(userId);
-            image.setOriginalFileName(originalFileName);
-            image.setOriginalFormat(originalFormat);
-            image.setTargetFormat(targetFormat);
-            image.setStatus(ConversionStatus.PENDING);
-            image.setOriginalImage(file.getBytes());
-
-            // Measure database save operation
-            Timer.Sample dbSample = Timer.start(meterRegistry);
-            Image savedImage = imageRepository.save(image);
-            dbSample.stop(Timer.builder("imagecloud.database.query.duration")
-                    .tag("operation", "save")
-                    .tag("entity", "image")
-                    .description("Database query execution time")
-                    .register(meterRegistry));
-            
-            log.info("Image saved with ID: {}", savedImage.getId());
+            imageData = file.getBytes();
+        } catch (IOException e) {
+            log.error("Error uploading image", e);
+            // Track failed uploads
+            imageMetrics.countRequest(RequestStatus.UPLOAD_FAILED, targetFormat);
+            throw new RuntimeException("Failed to upload image: " + e.getMessage());
+        }
+        return uploadAndConvert(file.getOriginalFilename(), imageData, null, targetFormat, userId);
+    }
 
-            // Send to RabbitMQ for conversion
-            ConversionRequest request = new ConversionRequest(
+    /**
+     * Stores an upload that is already in memory and starts its conversion.
+     * <p>
+     * Throws only if the image could not be stored. Once it is, a failure to start the conversion marks the
+     * image FAILED and is returned as such, so a caller that retries on an exception never stores it twice.
+     *
+     * @param sourceHash SHA-256 (hex) of {@code imageData} if the caller already has it, otherwise null
+     */
+    public ImageUploadResponse uploadAndConvert(String originalFileName, byte[] imageData, String sourceHash,
+                                                String targetFormat, String userId) {
+        long uploadStartedAt = System.currentTimeMillis();
+        // Detect original format from magic bytes, falling back to the filename extension
+        String originalFormat = detectFormat(imageData, originalFileName);
+        long pixelCount = ImageFormats.pixelCount(imageData);
+
+        // Save image to database
+        Image image = new Image();
+        image.setUserId(userId);
+        image.setOriginalFileName(originalFileName);
+        image.setOriginalFormat(originalFormat);
+        image.setTargetFormat(targetFormat);
+        image.setStatus(ConversionStatus.PENDING);
+        imageBlobStore.storeOriginal(image, imageData);
+        image.setPixelCount(pixelCount >= 0 ? pixelCount : null);
+        if (conversionCoalescer.enabled()) {
+            image.setSourceHash(sourceHash != null ? sourceHash : ContentHash.sha256Hex(imageData));
+        }
+
+        // Measure database save operation
+        Timer.Sample dbSample = Timer.start();
+        Image savedImage = imageRepository.save(image);
+        dbSample.stop(imageMetrics.dbQuery(DbOperation.SAVE));
+        
+        log.info("Image saved with ID: {}", savedImage.getId());
+
+        try {
+            return startConversion(savedImage, imageData, pixelCount, uploadStartedAt);
+        } catch (RuntimeException e) {
+            failToStart(savedImage, e);
+            return new ImageUploadResponse(
                     savedImage.getId(),
-                    savedImage.getOriginalImage(),
-                    originalFormat,
-                    targetFormat
+                    "FAILED",
+                    "Image uploaded but its conversion could not be started"
             );
+        }
+    }
 
-            // Measure queue send time
-            Timer.Sample queueSample = Timer.start(meterRegistry);
-            rabbitTemplate.convertAndSend(imageExchange, conversionRequestRoutingKey, request);
-            queueSample.stop(Timer.builder("imagecloud.queue.send.duration")
-                    .tag("queue", "conversion-request")
-                    .description("Time to send message to RabbitMQ")
-                    .register(meterRegistry));
-            
-            log.info("Conversion request sent for image ID: {}", savedImage.getId());
+    private ImageUploadResponse startConversion(Image savedImage, byte[] imageData, long pixelCount,
+                                                long uploadStartedAt) {
+        String originalFormat = savedImage.getOriginalFormat();
+        String targetFormat = savedImage.getTargetFormat();
 
-            // Update status to PROCESSING
-            savedImage.setStatus(ConversionStatus.PROCESSING);
-            imageRepository.save(savedImage);
-            
-            // Track conversion request
-            Counter.builder("imagecloud.conversion.requests.total")
-                    .tag("status", "initiated")
-                    .tag("target_format", targetFormat)
-                    .description("Total conversion requests initiated")
-                    .register(meterRegistry)
-                    .increment();
+        // Small images are converted right here; anything else (or a saturated executor) goes to the queue
+        Long imageId = savedImage.getId();
+        InlineAttempt inline = inlineConversionService.tryConvert(imageData, pixelCount, originalFormat, targetFormat,
+                late -> finishDeferred(savedImage, imageData, late, uploadStartedAt));
+        if (inline.completed()) {
+            saveConverted(imageId, inline.converted());
+
+            imageMetrics.countRequest(RequestStatus.SUCCESS, targetFormat);
+            log.info("Image ID {} converted inline", imageId);
+            long elapsed = System.currentTimeMillis() - uploadStartedAt;
+            imageMetrics.recordEndToEnd(targetFormat, imageData.length, true, true, elapsed);
+            imageMetrics.recordTimeToFirstPixel(targetFormat, imageData.length, false, elapsed);
 
             return new ImageUploadResponse(
-                    savedImage.getId(),
+                    imageId,
+                    "COMPLETED",
+                    "Image uploaded and converted",
+                    inline.converted()
+            );
+        }
+        if (inline.deferred()) {
+            // The inline conversion overran its timeout but is still running; it completes the image itself.
+            // Only move the row if still PENDING: the late result may already have landed
+            imageRepository.transitionStatus(List.of(imageId), ConversionStatus.PENDING, ConversionStatus.PROCESSING);
+            return new ImageUploadResponse(
+                    imageId,
                     "PROCESSING",
-                    "Image uploaded successfully and conversion started"
+                    "Image uploaded; conversion is finishing"
             );
+        }
 
-        } catch (IOException e) {
-            log.error("Error uploading image", e);
-            // Track failed uploads
-            Counter.builder("imagecloud.conversion.requests.total")
-                    .tag("status", "upload_failed")
-                    .tag("target_format", targetFormat != null ? targetFormat : "unknown")
-                    .description("Total conversion requests initiated")
-                    .register(meterRegistry)
-                    .increment();
-            throw new RuntimeException("Failed to upload image: " + e.getMessage());
+        return enqueue(savedImage, imageData, targetFormat, uploadStartedAt);
+    }
+
+    /**
+     * Completes an image whose inline conversion outlived the upload request. A failed conversion is
+     * queued as it would have been had the inline path declined it.
+     */
+    private void finishDeferred(Image savedImage, byte[] imageData, byte[] converted, long uploadStartedAt) {
+        String targetFormat = savedImage.getTargetFormat();
+        if (converted == null) {
+            try {
+                enqueue(savedImage, imageData, targetFormat, uploadStartedAt);
+            } catch (RuntimeException e) {
+                failToStart(savedImage, e);
+            }
+            return;
+        }
+        try {
+            handleConversionResponse(new ConversionResponse(savedImage.getId(), converted, true, null, false));
+            imageMetrics.recordEndToEnd(targetFormat, imageData.length, true, true,
+                    System.currentTimeMillis() - uploadStartedAt);
+        } catch (RuntimeException e) {
+            log.error("Failed to complete deferred conversion for image ID: {}", savedImage.getId(), e);
         }
     }
 
-    public void handleConversionResponse(ConversionResponse response) {
+    private void failToStart(Image savedImage, RuntimeException e) {
+        log.error("Failed to start conversion for image ID: {}", savedImage.getId(), e);
+        // A row left PENDING would count against the user's in-flight quota until the deadline
+        imageRepository.failConversion(savedImage.getId(), ConversionStatus.FAILED,
+                "Failed to start conversion: " + e.getMessage());
+        imageMetrics.countRequest(RequestStatus.UPLOAD_FAILED, savedImage.getTargetFormat());
+    }
+
+    private ImageUploadResponse enqueue(Image savedImage, byte[] imageData, String targetFormat, long uploadStartedAt) {
+        // The user already has an identical conversion queued (e.g. a double-submitted upload): share its result
+        Long leaderId = conversionCoalescer.findLeader(savedImage.getUserId(), savedImage.getSourceHash(),
+                targetFormat, savedImage.getId());
+        if (leaderId != null) {
+            imageRepository.attachToLeader(savedImage.getId(), leaderId, ConversionStatus.PROCESSING);
+            conversionCoalescer.followersAttached(List.of(leaderId), 1);
+            log.info("Image ID {} attached to in-flight conversion of image ID {}", savedImage.getId(), leaderId);
+
+            return new ImageUploadResponse(
+                    savedImage.getId(),
+                    "PROCESSING",
+                    "Image uploaded; an identical conversion is already in progress"
+            );
+        }
+
+        // Hand over for conversion (RabbitMQ, or in-process in all-in-one mode)
+        ConversionRequest request = new ConversionRequest(
+                savedImage.getId(),
+                imageData,
+                savedImage.getOriginalFormat(),
+                targetFormat,
+                uploadStartedAt + deadlineMs,
+                savedImage.getSourceHash()
+        );
+
+        // Measure queue send time
+        Timer.Sample queueSample = Timer.start();
+        conversionBus.send(request, uploadStartedAt);
+        queueSample.stop(imageMetrics.queueSend(false));
+        
+        log.info("Conversion request sent for image ID: {}", savedImage.getId());
+
+        // Only move the row if still PENDING: an in-process conversion may already have completed it
+        imageRepository.transitionStatus(List.of(savedImage.getId()), ConversionStatus.PENDING,
+                ConversionStatus.PROCESSING);
+        
+        // Track conversion request
+        imageMetrics.countRequest(RequestStatus.INITIATED, targetFormat);
+
+        return new ImageUploadResponse(
+                savedImage.getId(),
+                "PROCESSING",
+                "Image uploaded successfully and conversion started"
+        );
+    }
+
+    public ConversionTargetView handleConversionResponse(ConversionResponse response) {
         log.info("Received conversion response for image ID: {}", response.getImageId());
 
-        Timer.Sample dbSample = Timer.start(meterRegistry);
-        Image image = imageRepository.findById(response.getImageId())
+        Timer.Sample dbSample = Timer.start();
+        ConversionTargetView image = imageRepository.findConversionTargetById(response.getImageId())
                 .orElseThrow(() -> new RuntimeException("Image not found with ID: " + response.getImageId()));
-        dbSample.stop(Timer.builder("imagecloud.database.query.duration")
-                .tag("operation", "find")
-                .tag("entity", "image")
-                .description("Database query execution time")
-                .register(meterRegistry));
-
-        if (response.isSuccess()) {
-            image.setConvertedImage(response.getConvertedImageData());
-            image.setStatus(ConversionStatus.COMPLETED);
-            image.setConvertedAt(LocalDateTime.now());
+        dbSample.stop(imageMetrics.dbQuery(DbOperation.FIND));
+
+        if (response.isExpired()) {
+            // Conversion-service shed the job unprocessed; the user has most likely given up on it
+            imageRepository.failConversion(image.getId(), ConversionStatus.EXPIRED, response.getErrorMessage());
+            log.warn("Image conversion expired before processing for ID: {}", response.getImageId());
+
+            imageMetrics.countRequest(RequestStatus.EXPIRED, image.getTargetFormat());
+        } else if (response.isSuccess()) {
+            saveConverted(image.getId(), response.getConvertedImageData());
             log.info("Image conversion completed for ID: {}", response.getImageId());
             
             // Track successful conversion
-            Counter.builder("imagecloud.conversion.requests.total")
-                    .tag("status", "success")
-                    .tag("target_format", image.getTargetFormat())
-                    .description("Total conversion requests initiated")
-                    .register(meterRegistry)
-                    .increment();
+            imageMetrics.countRequest(RequestStatus.SUCCESS, image.getTargetFormat());
         } else {
-            image.setStatus(ConversionStatus.FAILED);
-            image.setErrorMessage(response.getErrorMessage());
+            imageRepository.failConversion(image.getId(), ConversionStatus.FAILED, response.getErrorMessage());
             log.error("Image conversion failed for ID: {}. Error: {}", response.getImageId(), response.getErrorMessage());
             
             // Track failed conversion
-            Counter.builder("imagecloud.conversion.requests.total")
-                    .tag("status", "failed")
-                    .tag("target_format", image.getTargetFormat())
-                    .description("Total conversion requests initiated")
-                    .register(meterRegistry)
-                    .increment();
+            imageMetrics.countRequest(RequestStatus.FAILED, image.getTargetFormat());
         }
 
-        imageRepository.save(image);
+        // The preview has served its purpose once the image reached a terminal state. Deleted whether or not
+        // previewAt was set when read above: a preview may have been stored between that read and the update
+        imagePreviewRepository.deletePreview(image.getId());
+
+        conversionCoalescer.leaderFinished(image.getId());
+        return image;
+    }
+
+    /**
+     * Stores a progressive preview while the image is still waiting for its full result.
+     *
+     * @return the image, or null if the preview was dropped because the result (or an earlier preview) won
+     */
+    @Transactional
+    public ConversionTargetView handleConversionPreview(ConversionPreview preview) {
+        LocalDateTime now = LocalDateTime.now();
+        if (imageRepository.markPreviewed(preview.getImageId(), now,
+                List.of(ConversionStatus.PENDING, ConversionStatus.PROCESSING)) == 0) {
+            log.info("Dropping preview for image ID: {}; already completed or previewed", preview.getImageId());
+            return null;
+        }
+        imagePreviewRepository.save(new ImagePreview(preview.getImageId(), preview.getPreviewData(),
+                preview.getWidth(), preview.getHeight(), now));
+        log.info("Stored {}x{} preview for image ID: {}", preview.getWidth(), preview.getHeight(),
+                preview.getImageId());
+        return imageRepository.findConversionTargetById(preview.getImageId()).orElse(null);
+    }
+
+    /**
+     * Preview of an image whose conversion has not finished. Images attached to an identical in-flight
+     * conversion of the same user show that conversion's preview.
+     */
+    public byte[] getPreview(Long imageId, String userId) {
+        Image image = getImageStatus(imageId, userId);
+        Optional<ImagePreview> preview = imagePreviewRepository.findById(imageId);
+        if (preview.isEmpty() && image.getCoalescedWith() != null) {
+            preview = imagePreviewRepository.findById(image.getCoalescedWith());
+        }
+        return preview.map(ImagePreview::getPreviewImage)
+                .orElseThrow(() -> new RuntimeException("No preview available"));
+    }
+
+    /**
+     * Stores a conversion result and marks the image COMPLETED, writing only the result columns.
+     * The blob store attaches the data to a detached stand-in carrying just the id.
+     */
+    private void saveConverted(Long imageId, byte[] convertedData) {
+        Image result = new Image();
+        result.setId(imageId);
+        imageBlobStore.storeConverted(result, convertedData);
+        imageRepository.completeConversion(imageId, ConversionStatus.COMPLETED, result.getConvertedImage(),
+                result.getConvertedOid(), ContentHash.sha256Hex(convertedData), LocalDateTime.now());
     }
 
     public List<ImageHistoryResponse> getUserHistory(String userId) {
-        Timer.Sample dbSample = Timer.start(meterRegistry);
+        Timer.Sample dbSample = Timer.start();
         List<Image> images = imageRepository.findByUserIdOrderByUploadedAtDesc(userId);
-        dbSample.stop(Timer.builder("imagecloud.database.query.duration")
-                .tag("operation", "findByUser")
-                .tag("entity", "image")
-                .description("Database query execution time")
-                .register(meterRegistry));
+        dbSample.stop(imageMetrics.dbQuery(DbOperation.FIND_BY_USER));
 
         return images.stream()
                 .map(image -> new ImageHistoryResponse(
@@ -175,8 +324,11 @@ public class ImageService {
                 .collect(Collectors.toList());
     }
 
-    public byte[] getConvertedImage(Long imageId, String userId) {
-        Image image = imageRepository.findById(imageId)
+    /**
+     * Authorises a download from the row's metadata alone; the blob is read separately, and only if needed.
+     */
+    public DownloadView getDownload(Long imageId, String userId) {
+        DownloadView image = imageRepository.findDownloadById(imageId)
                 .orElseThrow(() -> new RuntimeException("Image not found"));
 
         if (!image.getUserId().equals(userId)) {
@@ -187,7 +339,11 @@ public class ImageService {
             throw new RuntimeException("Image conversion not completed yet");
         }
 
-        return image.getConvertedImage();
+        return image;
+    }
+
+    public byte[] loadConverted(Long imageId) {
+        return imageBlobStore.loadConverted(imageId);
     }
 
     public Image getImageStatus(Long imageId, String userId) {
@@ -201,6 +357,11 @@ public class ImageService {
         return image;
     }
 
+    private String detectFormat(byte[] data, String filename) {
+        String sniffed = ImageFormats.detect(data);
+        return sniffed != null ? sniffed : ImageFormats.normalize(getFileExtension(filename));
+    }
+
     private String getFileExtension(String filename) {
         if (filename == null || !filename.contains(".")) {
             return "";
@@ -0,0 +1,175 @@
+package main.java.com.imagecloud.main.service;
+
+import com.imagecloud.common.image.ImageFormats;
+import com.imagecloud.common.image.ImageTranscoder;
+import com.imagecloud.common.image.PixelPipeline;
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.metrics.ImageMetrics.InlineOutcome;
+import io.micrometer.core.instrument.Gauge;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Converts small images directly inside main-service so they skip the RabbitMQ round trip.
+ * Work runs on a bounded executor; when it is saturated or the conversion fails, callers fall back to the queue.
+ * Conversions use the same {@link ImageTranscoder} as conversion-service (including alpha flattening for JPEG),
+ * run serially since the executor already bounds concurrency.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InlineConversionService {
+
+    private final ImageMetrics imageMetrics;
+
+    private final ImageTranscoder transcoder = new ImageTranscoder(PixelPipeline.serial());
+
+    @Value("${image.conversion.inline.enabled:true}")
+    private boolean enabled;
+
+    @Value("${image.conversion.inline.max-bytes:262144}")
+    private long maxBytes;
+
+    @Value("${image.conversion.inline.max-pixels:1048576}")
+    private long maxPixels;
+
+    @Value("${image.conversion.inline.threads:2}")
+    private int threads;
+
+    @Value("${image.conversion.inline.queue-capacity:4}")
+    private int queueCapacity;
+
+    @Value("${image.conversion.inline.timeout-ms:2000}")
+    private long timeoutMs;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "inline-conversion-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("imagecloud.conversion.inline.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Inline conversions currently running")
+                .register(imageMetrics.registry());
+        Gauge.builder("imagecloud.conversion.inline.queued", executor, e -> e.getQueue().size())
+                .description("Inline conversions waiting for a thread")
+                .register(imageMetrics.registry());
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // Deferred conversions own their images; let them finish rather than leave the rows in PROCESSING
+        executor.shutdown();
+        if (!executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+            log.warn("Inline conversions still running at shutdown: {}", executor.getActiveCount());
+        }
+    }
+
+    /**
+     * Outcome of an inline attempt.
+     *
+     * @param converted the converted bytes if the conversion finished within the timeout, otherwise null
+     * @param deferred  the conversion is still running and its result will be handed to the late-result callback
+     */
+    public record InlineAttempt(byte[] converted, boolean deferred) {
+        static final InlineAttempt DECLINED = new InlineAttempt(null, false);
+        static final InlineAttempt DEFERRED = new InlineAttempt(null, true);
+
+        public boolean completed() {
+            return converted != null;
+        }
+    }
+
+    /**
+     * Try to convert the image synchronously.
+     * <p>
+     * ImageIO does not respond to interruption, so a conversion that overruns the timeout cannot be cancelled:
+     * it keeps its executor thread either way. Rather than queue a second conversion of the same image, the
+     * attempt is deferred and {@code lateResult} receives the bytes once the conversion finishes, or null if it
+     * failed and the caller should queue it after all.
+     *
+     * @param pixelCount pixel count from the image header, or -1 if unknown
+     * @return converted bytes, deferred, or declined if the image is not eligible or the inline path could not take it
+     */
+    public InlineAttempt tryConvert(byte[] imageData, long pixelCount, String sourceFormat, String targetFormat,
+                                    Consumer<byte[]> lateResult) {
+        if (!enabled || imageData.length > maxBytes || !withinPixelBudget(pixelCount)) {
+            imageMetrics.countInline(InlineOutcome.INELIGIBLE);
+            return InlineAttempt.DECLINED;
+        }
+
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(convert(imageData, sourceFormat, targetFormat));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            imageMetrics.countInline(InlineOutcome.REJECTED);
+            log.debug("Inline executor saturated, falling back to queue");
+            return InlineAttempt.DECLINED;
+        }
+
+        try {
+            byte[] result = future.get(timeoutMs, TimeUnit.MILLISECONDS);
+            imageMetrics.countInline(InlineOutcome.COMPLETED);
+            return new InlineAttempt(result, false);
+        } catch (TimeoutException e) {
+            imageMetrics.countInline(InlineOutcome.TIMEOUT);
+            log.warn("Inline conversion exceeded {} ms, completing it in the background", timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            imageMetrics.countInline(InlineOutcome.TIMEOUT);
+        } catch (ExecutionException e) {
+            imageMetrics.countInline(InlineOutcome.FAILED);
+            log.warn("Inline conversion failed, falling back to queue: {}", e.getCause().getMessage());
+            return InlineAttempt.DECLINED;
+        }
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                log.warn("Deferred inline conversion failed, falling back to queue: {}", error.getMessage());
+            }
+            lateResult.accept(error == null ? result : null);
+        });
+        return InlineAttempt.DEFERRED;
+    }
+
+    private byte[] convert(byte[] imageData, String sourceFormat, String targetFormat) throws IOException {
+        long startedAt = System.nanoTime();
+
+        byte[] result;
+        String detected = ImageFormats.detect(imageData);
+        if (detected != null && detected.equals(ImageFormats.normalize(targetFormat))) {
+            result = imageData;
+        } else {
+            result = transcoder.transcode(imageData, targetFormat);
+        }
+
+        imageMetrics.recordInlineDuration(sourceFormat, targetFormat, System.nanoTime() - startedAt);
+        return result;
+    }
+
+    private boolean withinPixelBudget(long pixelCount) {
+        return pixelCount >= 0 && pixelCount <= maxPixels;
+    }
+}
@@ -1,21 +1,66 @@
 package main.java.com.imagecloud.main.service;
 
+import com.imagecloud.common.messaging.PipelineHeaders;
+import com.imagecloud.main.dto.ConversionPreview;
 import com.imagecloud.main.dto.ConversionResponse;
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.repository.ImageRepository.ConversionTargetView;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+
 @Service
+@ConditionalOnProperty(name = "image.conversion.transport", havingValue = "rabbitmq", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class MessageConsumer {
 
     private final ImageService imageService;
+    private final ImageMetrics imageMetrics;
 
     @RabbitListener(queues = "${rabbitmq.queue.conversion-response}")
-    public void consumeConversionResponse(ConversionResponse response) {
+    public void consumeConversionResponse(ConversionResponse response, @Headers Map<String, Object> headers) {
+        long dequeuedAt = System.currentTimeMillis();
         log.info("Consuming conversion response for image ID: {}", response.getImageId());
-        imageService.handleConversionResponse(response);
+
+        Long responseEnqueuedAt = PipelineHeaders.longValue(headers, PipelineHeaders.RESPONSE_ENQUEUED_AT);
+        if (responseEnqueuedAt != null) {
+            imageMetrics.recordResponseQueueWait(dequeuedAt - responseEnqueuedAt);
+        }
+
+        ConversionTargetView image = imageService.handleConversionResponse(response);
+        long persistedAt = System.currentTimeMillis();
+
+        imageMetrics.recordResponseProcessing(persistedAt - dequeuedAt);
+
+        Long uploadedAt = PipelineHeaders.longValue(headers, PipelineHeaders.UPLOADED_AT);
+        Long sourceBytes = PipelineHeaders.longValue(headers, PipelineHeaders.SOURCE_BYTES);
+        if (uploadedAt != null) {
+            imageMetrics.recordEndToEnd(image.getTargetFormat(), sourceBytes != null ? sourceBytes : 0,
+                    response.isSuccess(), false, persistedAt - uploadedAt);
+            if (response.isSuccess() && image.getPreviewAt() == null) {
+                imageMetrics.recordTimeToFirstPixel(image.getTargetFormat(), sourceBytes != null ? sourceBytes : 0,
+                        false, persistedAt - uploadedAt);
+            }
+        }
+    }
+
+    @RabbitListener(queues = "${rabbitmq.queue.conversion-preview}")
+    public void consumeConversionPreview(ConversionPreview preview, @Headers Map<String, Object> headers) {
+        ConversionTargetView image = imageService.handleConversionPreview(preview);
+        if (image == null) {
+            return;
+        }
+        Long uploadedAt = PipelineHeaders.longValue(headers, PipelineHeaders.UPLOADED_AT);
+        Long sourceBytes = PipelineHeaders.longValue(headers, PipelineHeaders.SOURCE_BYTES);
+        if (uploadedAt != null) {
+            imageMetrics.recordTimeToFirstPixel(image.getTargetFormat(), sourceBytes != null ? sourceBytes : 0,
+                    true, System.currentTimeMillis() - uploadedAt);
+        }
     }
 }
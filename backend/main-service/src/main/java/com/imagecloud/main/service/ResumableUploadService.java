@@ -0,0 +1,298 @@
+package main.java.com.imagecloud.main.service;
+
+import com.imagecloud.common.util.ContentHash;
+import com.imagecloud.main.dto.ImageUploadResponse;
+import com.imagecloud.main.dto.UploadSessionResponse;
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.metrics.ImageMetrics.UploadSessionOutcome;
+import com.imagecloud.main.model.UploadSession;
+import com.imagecloud.main.repository.UploadSessionRepository;
+import com.imagecloud.main.storage.UploadStagingStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads for images above the multipart limit: create a session, append chunks at the offset
+ * the server reports, complete. A failed chunk leaves the offset where it was, so a client resumes by
+ * reading the session and sending only what is missing.
+ *
+ * Chunks go straight from the request body to the session's staging object ({@link UploadStagingStore}).
+ * The whole-file SHA-256 is built incrementally while chunks arrive at this instance; it becomes the
+ * image's source hash without another pass over the bytes. If a chunk was taken by another replica, the
+ * running digest is dropped and the hash is computed on completion instead.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadService {
+
+    private record RunningDigest(long offset, MessageDigest digest, long touchedAt) {
+    }
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadStagingStore stagingStore;
+    private final ImageService imageService;
+    private final ImageMetrics imageMetrics;
+
+    // Per-session digests covering bytes [0, offset); only valid while this instance saw every chunk
+    private final Map<String, RunningDigest> digests = new ConcurrentHashMap<>();
+
+    @Value("${image.upload.resumable.max-bytes:52428800}")
+    private long maxBytes;
+
+    @Value("${image.upload.resumable.max-chunk-bytes:8388608}")
+    private int maxChunkBytes;
+
+    @Value("${image.upload.resumable.expiry-hours:24}")
+    private long expiryHours;
+
+    @Value("${image.upload.resumable.cleanup-batch-size:100}")
+    private int cleanupBatchSize;
+
+    /**
+     * @param sha256 optional hex SHA-256 of the whole file, verified on completion
+     */
+    @Transactional
+    public UploadSessionResponse create(String fileName, String targetFormat, long length, String sha256,
+                                        String userId) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("fileName is required");
+        }
+        if (length <= 0 || length > maxBytes) {
+            throw new IllegalArgumentException("length must be between 1 and " + maxBytes + " bytes");
+        }
+        if (sha256 != null && !sha256.matches("[0-9a-fA-F]{64}")) {
+            throw new IllegalArgumentException("sha256 must be 64 hex characters");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        UploadSession session = new UploadSession(
+                UUID.randomUUID().toString(),
+                userId,
+                fileName,
+                targetFormat,
+                length,
+                0,
+                stagingStore.create(),
+                sha256 != null ? sha256.toLowerCase() : null,
+                false,
+                now,
+                now.plusHours(expiryHours)
+        );
+        uploadSessionRepository.save(session);
+        digests.put(session.getId(), new RunningDigest(0, ContentHash.newSha256(), System.currentTimeMillis()));
+
+        imageMetrics.countUploadSession(UploadSessionOutcome.CREATED);
+        log.info("Resumable upload {} created for {} bytes", session.getId(), length);
+        return toResponse(session);
+    }
+
+    public UploadSessionResponse status(String uploadId, String userId) {
+        return toResponse(find(uploadId, userId));
+    }
+
+    /**
+     * Stores one chunk starting at {@code offset}.
+     *
+     * @param contentLength declared chunk size, or -1 if unknown
+     * @param chunkSha256 optional hex SHA-256 of this chunk; on mismatch nothing is stored
+     * @throws IllegalStateException if {@code offset} is not the upload's current offset
+     * @throws IllegalArgumentException if the chunk is empty, too large or fails its checksum
+     */
+    public UploadSessionResponse appendChunk(String uploadId, String userId, long offset, InputStream body,
+                                             long contentLength, String chunkSha256) throws IOException {
+        UploadSession session = find(uploadId, userId);
+        if (offset != session.getReceivedBytes()) {
+            imageMetrics.countUploadChunkConflict();
+            throw new IllegalStateException("Chunk offset " + offset + " does not match upload offset "
+                    + session.getReceivedBytes());
+        }
+
+        int limit = (int) Math.min(session.getTotalBytes() - offset, maxChunkBytes);
+        // A declared oversize chunk is rejected before its body is read
+        if (contentLength > limit) {
+            throw chunkTooLarge(limit, session.getTotalBytes() - offset);
+        }
+        byte[] chunk = body.readNBytes(limit);
+        if (body.read() != -1) {
+            throw chunkTooLarge(limit, session.getTotalBytes() - offset);
+        }
+        if (chunk.length == 0) {
+            throw new IllegalArgumentException("Chunk is empty");
+        }
+        if (chunkSha256 != null && !ContentHash.sha256Hex(chunk).equalsIgnoreCase(chunkSha256)) {
+            throw new IllegalArgumentException("Chunk checksum mismatch");
+        }
+
+        // Advance a copy, so a failed write leaves the running digest at the stored offset
+        RunningDigest running = digests.get(uploadId);
+        MessageDigest next = null;
+        if (running != null && running.offset() == offset) {
+            try {
+                next = (MessageDigest) running.digest().clone();
+                next.update(chunk);
+            } catch (CloneNotSupportedException e) {
+                next = null;
+            }
+        }
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(expiryHours);
+        long stored;
+        try {
+            stored = stagingStore.append(uploadId, session.getStagingOid(), offset, chunk, expiresAt);
+        } catch (IllegalStateException e) {
+            imageMetrics.countUploadChunkConflict();
+            throw e;
+        }
+        if (next != null) {
+            digests.put(uploadId, new RunningDigest(stored, next, System.currentTimeMillis()));
+        } else {
+            digests.remove(uploadId);
+        }
+        imageMetrics.countUploadChunk(chunk.length);
+
+        session.setReceivedBytes(stored);
+        session.setExpiresAt(expiresAt);
+        return toResponse(session);
+    }
+
+    /**
+     * Turns a fully received upload into an image and starts its conversion, like a single-request upload.
+     * The session is kept if this fails before the image is created, other than on a checksum mismatch,
+     * so it can be retried. Once the image exists the session is spent, even if its conversion could not be
+     * started; that is reported in the returned response.
+     */
+    public ImageUploadResponse complete(String uploadId, String userId) {
+        UploadSession session = find(uploadId, userId);
+        if (session.getReceivedBytes() != session.getTotalBytes()) {
+            throw new IllegalStateException("Upload incomplete: " + session.getReceivedBytes() + " of "
+                    + session.getTotalBytes() + " bytes received");
+        }
+        if (uploadSessionRepository.claimForCompletion(uploadId) == 0) {
+            throw new IllegalStateException("Upload is already being completed");
+        }
+
+        ImageUploadResponse response;
+        try {
+            byte[] imageData = stagingStore.read(session.getStagingOid(), (int) session.getTotalBytes());
+            if (imageData.length != session.getTotalBytes()) {
+                throw new IllegalStateException("Staged upload has " + imageData.length + " bytes, expected "
+                        + session.getTotalBytes());
+            }
+
+            // Taken out, as digest() resets it; a retried completion hashes the staged bytes instead
+            RunningDigest running = digests.remove(uploadId);
+            String sha256 = running != null && running.offset() == session.getTotalBytes()
+                    ? ContentHash.hex(running.digest().digest())
+                    : null;
+            if (session.getDeclaredSha256() != null) {
+                if (sha256 == null) {
+                    sha256 = ContentHash.sha256Hex(imageData);
+                }
+                if (!sha256.equals(session.getDeclaredSha256())) {
+                    discard(session);
+                    imageMetrics.countUploadSession(UploadSessionOutcome.CHECKSUM_MISMATCH);
+                    throw new IllegalArgumentException("File checksum mismatch; the upload was discarded");
+                }
+            }
+
+            // Throws only while the image has not been stored; a later failure comes back as a FAILED response
+            response = imageService.uploadAndConvert(session.getOriginalFileName(), imageData,
+                    sha256, session.getTargetFormat(), userId);
+
+        } catch (RuntimeException e) {
+            uploadSessionRepository.releaseCompletion(uploadId);
+            throw e;
+        }
+
+        // The image exists now, so the claim is never released: a retry must not create it a second time.
+        // If cleanup fails here, the claimed session is left to the expiry sweep.
+        try {
+            discard(session);
+        } catch (RuntimeException e) {
+            log.warn("Could not remove completed upload {}, leaving it to expire: {}", uploadId, e.getMessage());
+        }
+        imageMetrics.countUploadSession(UploadSessionOutcome.COMPLETED);
+        log.info("Resumable upload {} completed as image ID {}", uploadId, response.getImageId());
+        return response;
+    }
+
+    /**
+     * @throws IllegalStateException if the upload is being completed
+     */
+    public void abort(String uploadId, String userId) {
+        UploadSession session = find(uploadId, userId);
+        if (uploadSessionRepository.claimForAbort(uploadId) == 0) {
+            throw new IllegalStateException("Upload is being completed");
+        }
+        discard(session);
+        imageMetrics.countUploadSession(UploadSessionOutcome.ABORTED);
+        log.info("Resumable upload {} aborted", uploadId);
+    }
+
+    /**
+     * Drops sessions nobody has written to within the expiry window, with their staged bytes.
+     */
+    @Scheduled(fixedDelayString = "${image.upload.resumable.cleanup-interval-ms:600000}")
+    public void removeExpired() {
+        List<UploadSession> expired = uploadSessionRepository.findByExpiresAtBefore(LocalDateTime.now(),
+                PageRequest.of(0, cleanupBatchSize));
+        for (UploadSession session : expired) {
+            try {
+                discard(session);
+                imageMetrics.countUploadSession(UploadSessionOutcome.EXPIRED);
+            } catch (RuntimeException e) {
+                log.warn("Could not remove expired upload {}: {}", session.getId(), e.getMessage());
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.info("Removed {} expired resumable uploads", expired.size());
+        }
+
+        // Digests of sessions finished or expired through another instance
+        long cutoff = System.currentTimeMillis() - expiryHours * 3_600_000;
+        digests.values().removeIf(running -> running.touchedAt() < cutoff);
+    }
+
+    private void discard(UploadSession session) {
+        stagingStore.delete(session.getId(), session.getStagingOid());
+        digests.remove(session.getId());
+    }
+
+    private IllegalArgumentException chunkTooLarge(int limit, long remaining) {
+        return new IllegalArgumentException("Chunk exceeds " + limit + " bytes (chunk limit " + maxChunkBytes
+                + ", " + remaining + " bytes remaining)");
+    }
+
+    private UploadSession find(String uploadId, String userId) {
+        return uploadSessionRepository.findByIdAndUserId(uploadId, userId)
+                .orElseThrow(() -> new NoSuchElementException("Upload session not found"));
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session) {
+        return new UploadSessionResponse(
+                session.getId(),
+                session.getOriginalFileName(),
+                session.getTargetFormat(),
+                session.getTotalBytes(),
+                session.getReceivedBytes(),
+                maxChunkBytes,
+                session.getExpiresAt()
+        );
+    }
+}
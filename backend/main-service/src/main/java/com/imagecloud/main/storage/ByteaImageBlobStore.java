@@ -0,0 +1,64 @@
+package main.java.com.imagecloud.main.storage;
+
+import com.imagecloud.main.model.Image;
+import com.imagecloud.main.repository.ImageRepository;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Default layout: blobs in the images table's bytea columns, used for both {@code bytea} and
+ * {@code bytea-external} (the latter only changes the columns' TOAST strategy, see ImageStorageConfig).
+ * Reads are materialised by the driver; streaming needs large objects.
+ */
+@RequiredArgsConstructor
+public class ByteaImageBlobStore implements ImageBlobStore {
+
+    private final ImageRepository imageRepository;
+
+    @Override
+    public void storeOriginal(Image image, byte[] data) {
+        image.setOriginalImage(data);
+    }
+
+    @Override
+    public void storeConverted(Image image, byte[] data) {
+        image.setConvertedImage(data);
+    }
+
+    @Override
+    public byte[] loadConverted(Image image) {
+        return image.getConvertedImage();
+    }
+
+    @Override
+    public byte[] loadConverted(Long imageId) {
+        return imageRepository.findConvertedImageById(imageId);
+    }
+
+    @Override
+    public long copyConverted(Long imageId, OutputStream out) throws IOException {
+        byte[] data = loadConverted(imageId);
+        if (data == null) {
+            return 0;
+        }
+        out.write(data);
+        return data.length;
+    }
+
+    @Override
+    public byte[] loadOriginal(Long imageId) {
+        return imageRepository.findOriginalImageById(imageId);
+    }
+
+    @Override
+    public void releaseOriginal(Long imageId) {
+        imageRepository.clearOriginalImage(imageId);
+    }
+
+    @Override
+    public void releaseConverted(Long imageId) {
+        imageRepository.clearConvertedImage(imageId);
+    }
+}
@@ -0,0 +1,40 @@
+package main.java.com.imagecloud.main.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Archive tier for blobs that left Postgres. Keys are stable per image and slot, so no pointer is stored on the row.
+ */
+public interface ColdBlobStore {
+
+    enum Slot {
+        ORIGINAL("original"),
+        CONVERTED("converted");
+
+        private final String prefix;
+
+        Slot(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String prefix() {
+            return prefix;
+        }
+    }
+
+    /**
+     * Durably stores the blob; must not return before the data would survive a crash.
+     */
+    void put(Slot slot, Long imageId, byte[] data) throws IOException;
+
+    /**
+     * @return the blob, or null if it was never archived
+     */
+    byte[] get(Slot slot, Long imageId) throws IOException;
+
+    /**
+     * @return bytes written, or -1 if it was never archived
+     */
+    long copyTo(Slot slot, Long imageId, OutputStream out) throws IOException;
+}
@@ -0,0 +1,66 @@
+package main.java.com.imagecloud.main.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Cold tier on a filesystem, typically a network or object-store-backed mount.
+ * Files are fanned out as {@code <slot>/<id % 1000>/<id>} to keep directories small,
+ * and written to a temp file, fsynced and renamed so a reader never sees a partial blob.
+ */
+public class FileSystemColdBlobStore implements ColdBlobStore {
+
+    private final Path root;
+
+    public FileSystemColdBlobStore(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void put(Slot slot, Long imageId, byte[] data) throws IOException {
+        Path target = pathFor(slot, imageId);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), imageId + "-", ".part");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public byte[] get(Slot slot, Long imageId) throws IOException {
+        try {
+            return Files.readAllBytes(pathFor(slot, imageId));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public long copyTo(Slot slot, Long imageId, OutputStream out) throws IOException {
+        try {
+            return Files.copy(pathFor(slot, imageId), out);
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+    }
+
+    private Path pathFor(Slot slot, Long imageId) {
+        return root.resolve(slot.prefix()).resolve(String.valueOf(imageId % 1000)).resolve(String.valueOf(imageId));
+    }
+}
@@ -0,0 +1,62 @@
+package main.java.com.imagecloud.main.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size-bounded LRU of recently converted images, keyed by image ID.
+ * Converted images never change once written, so entries need no invalidation, only eviction.
+ * Guarded by a ReentrantLock rather than a monitor, so a virtual thread waiting on it does not pin its carrier.
+ */
+public class HotImageCache {
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // Access-ordered, guarded by lock
+    private final LinkedHashMap<Long, byte[]> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long totalBytes;
+
+    public HotImageCache(long maxBytes, long maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+    }
+
+    public byte[] get(Long imageId) {
+        lock.lock();
+        try {
+            return entries.get(imageId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(Long imageId, byte[] data) {
+        if (imageId == null || data == null || data.length > maxEntryBytes) {
+            return;
+        }
+        lock.lock();
+        try {
+            byte[] previous = entries.put(imageId, data);
+            totalBytes += data.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> eldest = entries.values().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                totalBytes -= eldest.next().length;
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long totalBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
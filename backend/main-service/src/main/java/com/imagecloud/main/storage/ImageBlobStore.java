@@ -0,0 +1,40 @@
+package main.java.com.imagecloud.main.storage;
+
+import com.imagecloud.main.model.Image;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Where image bytes are persisted, selected by {@code image.storage.mode}.
+ * Store methods only attach the data to the entity (or to a reference on it); the caller still saves the row.
+ */
+public interface ImageBlobStore {
+
+    void storeOriginal(Image image, byte[] data);
+
+    void storeConverted(Image image, byte[] data);
+
+    byte[] loadConverted(Image image);
+
+    byte[] loadConverted(Long imageId);
+
+    /**
+     * Streams the converted image into {@code out} without closing it.
+     *
+     * @return bytes written, 0 if the image has no converted data
+     */
+    long copyConverted(Long imageId, OutputStream out) throws IOException;
+
+    byte[] loadOriginal(Long imageId);
+
+    /**
+     * Drops the original from the database. Callers must have copied it elsewhere first.
+     */
+    void releaseOriginal(Long imageId);
+
+    /**
+     * Drops the converted image from the database. Callers must have copied it elsewhere first.
+     */
+    void releaseConverted(Long imageId);
+}
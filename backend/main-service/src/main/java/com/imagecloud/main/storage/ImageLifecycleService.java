@@ -0,0 +1,120 @@
+package main.java.com.imagecloud.main.storage;
+
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.model.ConversionStatus;
+import com.imagecloud.main.repository.ImageRepository;
+import com.imagecloud.main.storage.ColdBlobStore.Slot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Moves blobs out of Postgres once they are cold:
+ * originals of finished conversions after {@code original-after-days}, converted outputs after
+ * {@code converted-after-days}. Each blob is written durably to the cold tier before the row is cleared,
+ * and the clear plus the archived-at stamp happen in one transaction, so a crash at any point either
+ * leaves the blob in Postgres or in both places, never in neither.
+ */
+@Service
+@Slf4j
+public class ImageLifecycleService {
+
+    private static final EnumSet<ConversionStatus> FINISHED =
+            EnumSet.of(ConversionStatus.COMPLETED, ConversionStatus.FAILED, ConversionStatus.EXPIRED);
+
+    private final ImageRepository imageRepository;
+    private final ImageBlobStore imageBlobStore;
+    private final ColdBlobStore coldBlobStore;
+    private final ImageMetrics imageMetrics;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${image.storage.tiering.enabled:false}")
+    private boolean enabled;
+
+    @Value("${image.storage.tiering.original-after-days:7}")
+    private long originalAfterDays;
+
+    @Value("${image.storage.tiering.converted-after-days:30}")
+    private long convertedAfterDays;
+
+    @Value("${image.storage.tiering.archive-batch-size:100}")
+    private int batchSize;
+
+    // Reads go straight to the database layout so archival never churns the hot cache
+    public ImageLifecycleService(ImageRepository imageRepository,
+                                 @Qualifier("databaseBlobStore") ImageBlobStore imageBlobStore,
+                                 ColdBlobStore coldBlobStore,
+                                 ImageMetrics imageMetrics,
+                                 PlatformTransactionManager transactionManager) {
+        this.imageRepository = imageRepository;
+        this.imageBlobStore = imageBlobStore;
+        this.coldBlobStore = coldBlobStore;
+        this.imageMetrics = imageMetrics;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${image.storage.tiering.archive-interval-ms:600000}")
+    public void archive() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> originals = imageRepository.findOriginalsToArchive(FINISHED, now.minusDays(originalAfterDays),
+                PageRequest.of(0, batchSize));
+        int archivedOriginals = 0;
+        for (Long imageId : originals) {
+            if (archive(Slot.ORIGINAL, imageId)) {
+                archivedOriginals++;
+            }
+        }
+
+        List<Long> converted = imageRepository.findConvertedToArchive(ConversionStatus.COMPLETED,
+                now.minusDays(convertedAfterDays), PageRequest.of(0, batchSize));
+        int archivedConverted = 0;
+        for (Long imageId : converted) {
+            if (archive(Slot.CONVERTED, imageId)) {
+                archivedConverted++;
+            }
+        }
+
+        if (archivedOriginals + archivedConverted > 0) {
+            log.info("Archived {} originals and {} converted images to the cold tier",
+                    archivedOriginals, archivedConverted);
+        }
+    }
+
+    private boolean archive(Slot slot, Long imageId) {
+        boolean original = slot == Slot.ORIGINAL;
+        try {
+            byte[] data = original ? imageBlobStore.loadOriginal(imageId) : imageBlobStore.loadConverted(imageId);
+            if (data != null) {
+                coldBlobStore.put(slot, imageId, data);
+            }
+            LocalDateTime archivedAt = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> {
+                if (original) {
+                    imageBlobStore.releaseOriginal(imageId);
+                    imageRepository.markOriginalArchived(imageId, archivedAt);
+                } else {
+                    imageBlobStore.releaseConverted(imageId);
+                    imageRepository.markConvertedArchived(imageId, archivedAt);
+                }
+            });
+            imageMetrics.countArchived(original, data != null ? data.length : 0);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to archive {} of image ID {}: {}", slot.prefix(), imageId, e.getMessage());
+            return false;
+        }
+    }
+}
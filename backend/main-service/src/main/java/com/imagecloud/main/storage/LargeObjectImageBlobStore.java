@@ -0,0 +1,207 @@
+package main.java.com.imagecloud.main.storage;
+
+import com.imagecloud.main.model.Image;
+import com.imagecloud.main.repository.ImageRepository;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.postgresql.largeobject.LargeObject;
+import org.postgresql.largeobject.LargeObjectManager;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+
+/**
+ * Stores blobs through the PostgreSQL Large Object API; the row only keeps the OID.
+ *
+ * Large objects are written and read in chunks over the binary protocol, so reads need not be decoded into
+ * one array by the driver, and pg_largeobject pages are not TOAST compressed. The LO API only works inside a
+ * transaction, hence the TransactionTemplate around every call.
+ *
+ * Streamed reads go to a client at whatever pace it reads, so they are never written from inside that
+ * transaction: each object is first copied into memory, or into a temp file above {@code spoolThresholdBytes},
+ * and the connection is back in the pool before the first byte is sent.
+ *
+ * Rows written before switching modes still have bytea data; reads fall back to it when no OID is set.
+ * Objects orphaned by failed uploads can be reclaimed with {@code vacuumlo}.
+ */
+@RequiredArgsConstructor
+public class LargeObjectImageBlobStore implements ImageBlobStore {
+
+    private final ImageRepository imageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long spoolThresholdBytes;
+
+    /**
+     * A large object copied out of the database: in {@code data}, or in {@code file} when it was too large.
+     */
+    private record Spooled(byte[] data, Path file) {
+    }
+
+    @Override
+    public void storeOriginal(Image image, byte[] data) {
+        image.setOriginalOid(write(new ByteArrayInputStream(data)));
+        image.setOriginalImage(null);
+    }
+
+    @Override
+    public void storeConverted(Image image, byte[] data) {
+        image.setConvertedOid(write(new ByteArrayInputStream(data)));
+        image.setConvertedImage(null);
+    }
+
+    @Override
+    public byte[] loadConverted(Image image) {
+        if (image.getConvertedOid() == null) {
+            return image.getConvertedImage();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        read(image.getConvertedOid(), out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] loadConverted(Long imageId) {
+        Long oid = convertedOid(imageId);
+        if (oid == null) {
+            return imageRepository.findConvertedImageById(imageId);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        read(oid, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public long copyConverted(Long imageId, OutputStream out) throws IOException {
+        Long oid = convertedOid(imageId);
+        if (oid == null) {
+            byte[] data = imageRepository.findConvertedImageById(imageId);
+            if (data == null) {
+                return 0;
+            }
+            out.write(data);
+            return data.length;
+        }
+        Spooled spooled;
+        try {
+            spooled = spool(oid);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (spooled.file() == null) {
+            out.write(spooled.data());
+            return spooled.data().length;
+        }
+        try {
+            return Files.copy(spooled.file(), out);
+        } finally {
+            Files.deleteIfExists(spooled.file());
+        }
+    }
+
+    @Override
+    public byte[] loadOriginal(Long imageId) {
+        Long oid = oid("original_oid", imageId);
+        if (oid == null) {
+            return imageRepository.findOriginalImageById(imageId);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        read(oid, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public void releaseOriginal(Long imageId) {
+        release("original_oid", "original_image", imageId);
+    }
+
+    @Override
+    public void releaseConverted(Long imageId) {
+        release("converted_oid", "converted_image", imageId);
+    }
+
+    /**
+     * Clears the row's reference and unlinks the object once no other row shares it (coalesced images do).
+     */
+    private void release(String oidColumn, String byteaColumn, Long imageId) {
+        Long oid = oid(oidColumn, imageId);
+        jdbcTemplate.update("update images set " + oidColumn + " = null, " + byteaColumn + " = null where id = ?",
+                imageId);
+        if (oid != null) {
+            jdbcTemplate.queryForList("select lo_unlink(?) where not exists "
+                    + "(select 1 from images where " + oidColumn + " = ?)", oid, oid);
+        }
+    }
+
+    private Long convertedOid(Long imageId) {
+        return oid("converted_oid", imageId);
+    }
+
+    private Long oid(String column, Long imageId) {
+        try {
+            return jdbcTemplate.queryForObject("select " + column + " from images where id = ?", Long.class, imageId);
+        } catch (EmptyResultDataAccessException e) {
+            return null;
+        }
+    }
+
+    private long write(InputStream data) {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            LargeObjectManager manager = connection.unwrap(PGConnection.class).getLargeObjectAPI();
+            long oid = manager.createLO(LargeObjectManager.READWRITE);
+            LargeObject object = manager.open(oid, LargeObjectManager.WRITE);
+            try (OutputStream out = object.getOutputStream()) {
+                data.transferTo(out);
+            } catch (IOException e) {
+                throw new SQLException("Failed to write large object " + oid, e);
+            }
+            return oid;
+        }));
+    }
+
+    private Spooled spool(long oid) {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Spooled>) connection -> {
+            LargeObjectManager manager = connection.unwrap(PGConnection.class).getLargeObjectAPI();
+            LargeObject object = manager.open(oid, LargeObjectManager.READ);
+            long size = object.size64();
+            if (size <= spoolThresholdBytes) {
+                return new Spooled(object.read((int) size), null);
+            }
+            Path file = null;
+            try (InputStream in = object.getInputStream()) {
+                file = Files.createTempFile("imagecloud-lo-" + oid + "-", ".part");
+                Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+                return new Spooled(null, file);
+            } catch (IOException e) {
+                if (file != null) {
+                    file.toFile().delete();
+                }
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+
+    private long read(long oid, OutputStream out) {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            LargeObjectManager manager = connection.unwrap(PGConnection.class).getLargeObjectAPI();
+            LargeObject object = manager.open(oid, LargeObjectManager.READ);
+            try (InputStream in = object.getInputStream()) {
+                return in.transferTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+    }
+}
@@ -0,0 +1,113 @@
+package main.java.com.imagecloud.main.storage;
+
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.metrics.ImageMetrics.StorageTier;
+import com.imagecloud.main.model.Image;
+import com.imagecloud.main.storage.ColdBlobStore.Slot;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Read-through tiers in front of the database layout: hot (local LRU of recent outputs), then Postgres,
+ * then the cold archive. Writes always go to Postgres; {@link ImageLifecycleService} moves data down later.
+ */
+@RequiredArgsConstructor
+public class TieredImageBlobStore implements ImageBlobStore {
+
+    private final ImageBlobStore database;
+    private final HotImageCache hotCache;
+    private final ColdBlobStore coldStore;
+    private final ImageMetrics imageMetrics;
+
+    @Override
+    public void storeOriginal(Image image, byte[] data) {
+        database.storeOriginal(image, data);
+    }
+
+    @Override
+    public void storeConverted(Image image, byte[] data) {
+        database.storeConverted(image, data);
+        hotCache.put(image.getId(), data);
+    }
+
+    @Override
+    public byte[] loadConverted(Image image) {
+        byte[] hot = hotCache.get(image.getId());
+        if (hot != null) {
+            imageMetrics.countStorageRead(StorageTier.HOT);
+            return hot;
+        }
+        return fromDatabaseOrCold(image.getId(), database.loadConverted(image));
+    }
+
+    @Override
+    public byte[] loadConverted(Long imageId) {
+        byte[] hot = hotCache.get(imageId);
+        if (hot != null) {
+            imageMetrics.countStorageRead(StorageTier.HOT);
+            return hot;
+        }
+        return fromDatabaseOrCold(imageId, database.loadConverted(imageId));
+    }
+
+    @Override
+    public long copyConverted(Long imageId, OutputStream out) throws IOException {
+        byte[] hot = hotCache.get(imageId);
+        if (hot != null) {
+            imageMetrics.countStorageRead(StorageTier.HOT);
+            out.write(hot);
+            return hot.length;
+        }
+        // Streamed reads are not cached: they are ZIP exports, which would only flush the hot set
+        long written = database.copyConverted(imageId, out);
+        if (written > 0) {
+            imageMetrics.countStorageRead(StorageTier.DATABASE);
+            return written;
+        }
+        long cold = coldStore.copyTo(Slot.CONVERTED, imageId, out);
+        imageMetrics.countStorageRead(cold >= 0 ? StorageTier.COLD : StorageTier.MISS);
+        return Math.max(0, cold);
+    }
+
+    @Override
+    public byte[] loadOriginal(Long imageId) {
+        byte[] data = database.loadOriginal(imageId);
+        if (data != null) {
+            return data;
+        }
+        try {
+            return coldStore.get(Slot.ORIGINAL, imageId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void releaseOriginal(Long imageId) {
+        database.releaseOriginal(imageId);
+    }
+
+    @Override
+    public void releaseConverted(Long imageId) {
+        database.releaseConverted(imageId);
+    }
+
+    private byte[] fromDatabaseOrCold(Long imageId, byte[] fromDatabase) {
+        if (fromDatabase != null) {
+            imageMetrics.countStorageRead(StorageTier.DATABASE);
+            hotCache.put(imageId, fromDatabase);
+            return fromDatabase;
+        }
+        try {
+            byte[] cold = coldStore.get(Slot.CONVERTED, imageId);
+            imageMetrics.countStorageRead(cold != null ? StorageTier.COLD : StorageTier.MISS);
+            hotCache.put(imageId, cold);
+            return cold;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package main.java.com.imagecloud.main.storage;
+
+import org.postgresql.PGConnection;
+import org.postgresql.largeobject.LargeObject;
+import org.postgresql.largeobject.LargeObjectManager;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Staging area for resumable uploads: one PostgreSQL large object per upload session, whatever
+ * {@code image.storage.mode} is. Every replica sees the same bytes, so consecutive chunks of one upload may
+ * land on different instances, and the LO API can write at an offset without rewriting what came before.
+ *
+ * A chunk is written and the session's offset advanced in one transaction under a row lock on the session,
+ * so a chunk is either stored completely or not at all, and two concurrent writers cannot both append.
+ */
+@Component
+public class UploadStagingStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public UploadStagingStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Creates an empty staging object. Joins the caller's transaction if there is one.
+     */
+    public long create() {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<Long>) connection ->
+                connection.unwrap(PGConnection.class).getLargeObjectAPI().createLO(LargeObjectManager.READWRITE)));
+    }
+
+    /**
+     * Writes {@code data} at {@code offset} and advances the session to the end of it.
+     *
+     * @return the session's new offset
+     * @throws IllegalStateException if the session has moved past or not reached {@code offset}, or is being completed
+     */
+    public long append(String sessionId, long oid, long offset, byte[] data, LocalDateTime expiresAt) {
+        return transactionTemplate.execute(status -> {
+            Map<String, Object> row;
+            try {
+                row = jdbcTemplate.queryForMap(
+                        "select received_bytes, completing from upload_sessions where id = ? for update", sessionId);
+            } catch (EmptyResultDataAccessException e) {
+                throw new IllegalStateException("Upload session no longer exists");
+            }
+            long received = ((Number) row.get("received_bytes")).longValue();
+            if (Boolean.TRUE.equals(row.get("completing"))) {
+                throw new IllegalStateException("Upload is being completed");
+            }
+            if (received != offset) {
+                throw new IllegalStateException("Chunk offset " + offset + " does not match upload offset " + received);
+            }
+
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                LargeObjectManager manager = connection.unwrap(PGConnection.class).getLargeObjectAPI();
+                LargeObject object = manager.open(oid, LargeObjectManager.WRITE);
+                try {
+                    object.seek64(offset, LargeObject.SEEK_SET);
+                    object.write(data);
+                } finally {
+                    object.close();
+                }
+                return null;
+            });
+
+            long next = offset + data.length;
+            jdbcTemplate.update("update upload_sessions set received_bytes = ?, expires_at = ? where id = ?",
+                    next, Timestamp.valueOf(expiresAt), sessionId);
+            return next;
+        });
+    }
+
+    public byte[] read(long oid, int length) {
+        return transactionTemplate.execute(status -> jdbcTemplate.execute((ConnectionCallback<byte[]>) connection -> {
+            LargeObjectManager manager = connection.unwrap(PGConnection.class).getLargeObjectAPI();
+            LargeObject object = manager.open(oid, LargeObjectManager.READ);
+            try {
+                return object.read(length);
+            } finally {
+                object.close();
+            }
+        }));
+    }
+
+    /**
+     * Removes the session row and its staging object together.
+     */
+    public void delete(String sessionId, long oid) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from upload_sessions where id = ?", sessionId);
+            jdbcTemplate.queryForList("select lo_unlink(?) where exists "
+                    + "(select 1 from pg_largeobject_metadata where oid = ?)", oid, oid);
+        });
+    }
+}
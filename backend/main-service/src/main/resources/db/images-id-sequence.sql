@@ -0,0 +1,14 @@
+-- images.id is allocated from images_id_seq in blocks of Image.ID_ALLOCATION_SIZE.
+-- Databases created while the column was IDENTITY already own that sequence through the column;
+-- only its step changes, and ids handed out so far stay below the next block.
+do $$
+begin
+    if exists (select 1 from information_schema.columns
+               where table_name = 'images' and column_name = 'id' and is_identity = 'YES') then
+        alter table images alter column id set increment by 50;
+    else
+        create sequence if not exists images_id_seq increment by 50;
+        alter sequence images_id_seq increment by 50;
+    end if;
+end
+$$
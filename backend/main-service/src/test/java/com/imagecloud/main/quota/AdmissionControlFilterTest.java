@@ -0,0 +1,31 @@
+package com.imagecloud.main.quota;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class AdmissionControlFilterTest {
+
+    private final AdmissionControlFilter filter = new AdmissionControlFilter(mock(QuotaService.class));
+
+    @Test
+    void admitsOnlyRequestsThatBringANewUpload() {
+        assertThat(filtered("POST", "/api/images/upload")).isTrue();
+        assertThat(filtered("POST", "/api/images/upload/batch")).isTrue();
+        assertThat(filtered("POST", "/api/images/uploads")).isTrue();
+    }
+
+    @Test
+    void leavesResumableChunksAndCompletionAlone() {
+        // Their bytes were admitted with the whole declared length when the upload was created
+        assertThat(filtered("PATCH", "/api/images/uploads/abc")).isFalse();
+        assertThat(filtered("POST", "/api/images/uploads/abc/complete")).isFalse();
+        assertThat(filtered("GET", "/api/images/upload")).isFalse();
+    }
+
+    private boolean filtered(String method, String uri) {
+        return !filter.shouldNotFilter(new MockHttpServletRequest(method, uri));
+    }
+}
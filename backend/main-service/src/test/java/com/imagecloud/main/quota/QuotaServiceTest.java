@@ -0,0 +1,201 @@
+package com.imagecloud.main.quota;
+
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.model.UserUploadWindow;
+import com.imagecloud.main.repository.ImageRepository;
+import com.imagecloud.main.repository.ImageRepository.PendingWorkView;
+import com.imagecloud.main.repository.UserUploadWindowRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuotaServiceTest {
+
+    private static final String USER = "42";
+    private static final long MAX_BYTES = 1000;
+    private static final long WINDOW_SECONDS = 60;
+
+    private final ImageRepository imageRepository = mock(ImageRepository.class);
+    private final UserUploadWindowRepository windowRepository = mock(UserUploadWindowRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // Stands in for the user_upload_windows table: userId -> {windowBytes, windowStartedAt}
+    private final Map<String, long[]> windows = new HashMap<>();
+
+    private QuotaService quotaService;
+
+    @BeforeEach
+    void setUp() {
+        quotaService = new QuotaService(imageRepository, windowRepository, new ImageMetrics(registry));
+        ReflectionTestUtils.setField(quotaService, "enabled", true);
+        ReflectionTestUtils.setField(quotaService, "maxInFlight", 3L);
+        ReflectionTestUtils.setField(quotaService, "maxPendingPixels", 1_000_000L);
+        ReflectionTestUtils.setField(quotaService, "maxBytesPerWindow", MAX_BYTES);
+        ReflectionTestUtils.setField(quotaService, "windowSeconds", WINDOW_SECONDS);
+        ReflectionTestUtils.setField(quotaService, "retryAfterSeconds", 5L);
+        ReflectionTestUtils.setField(quotaService, "deadlineMs", 300_000L);
+
+        pendingWork(0, 0);
+        // Same conditions as the JPQL update: start a new window if the old one ended, else add if it fits
+        when(windowRepository.reserve(anyString(), anyLong(), anyLong(), anyLong(), anyLong(), any()))
+                .thenAnswer(call -> {
+                    long[] window = windows.get(call.<String>getArgument(0));
+                    long bytes = call.getArgument(1);
+                    if (window == null) {
+                        return 0;
+                    }
+                    if (window[1] <= call.<Long>getArgument(4)) {
+                        window[0] = bytes;
+                        window[1] = call.getArgument(3);
+                        return 1;
+                    }
+                    if (window[0] + bytes <= call.<Long>getArgument(2)) {
+                        window[0] += bytes;
+                        return 1;
+                    }
+                    return 0;
+                });
+        when(windowRepository.createIfAbsent(anyString(), anyLong(), any())).thenAnswer(call -> {
+            windows.putIfAbsent(call.getArgument(0), new long[] {0, call.getArgument(1)});
+            return 1;
+        });
+        when(windowRepository.findById(anyString())).thenAnswer(call -> Optional.ofNullable(windows.get(call.getArgument(0)))
+                .map(window -> new UserUploadWindow(call.getArgument(0), window[0], window[1], LocalDateTime.now())));
+    }
+
+    @Test
+    void admitsAndReservesBytesInANewWindow() {
+        AdmissionDecision decision = quotaService.admit(USER, 400);
+
+        assertThat(decision.allowed()).isTrue();
+        assertThat(windows.get(USER)[0]).isEqualTo(400);
+    }
+
+    @Test
+    void rejectsOnceTheWindowIsFullWithRetryAfterUntilItEnds() {
+        assertThat(quotaService.admit(USER, 600).allowed()).isTrue();
+        assertThat(quotaService.admit(USER, 400).allowed()).isTrue();
+
+        AdmissionDecision decision = quotaService.admit(USER, 1);
+
+        assertThat(decision.allowed()).isFalse();
+        assertThat(decision.reason()).isEqualTo(QuotaService.REASON_BYTES);
+        assertThat(decision.retryAfterSeconds()).isBetween(WINDOW_SECONDS - 1, WINDOW_SECONDS);
+        assertThat(rejected(QuotaService.REASON_BYTES)).isEqualTo(1);
+    }
+
+    @Test
+    void retryAfterShrinksAsTheWindowRunsOut() {
+        windows.put(USER, new long[] {MAX_BYTES, System.currentTimeMillis() - 45_000});
+
+        AdmissionDecision decision = quotaService.admit(USER, 10);
+
+        assertThat(decision.allowed()).isFalse();
+        assertThat(decision.retryAfterSeconds()).isBetween(14L, 15L);
+    }
+
+    @Test
+    void anEndedWindowStartsOverWithTheNewUpload() {
+        windows.put(USER, new long[] {MAX_BYTES, System.currentTimeMillis() - WINDOW_SECONDS * 1000 - 1});
+
+        assertThat(quotaService.admit(USER, 300).allowed()).isTrue();
+        assertThat(windows.get(USER)[0]).isEqualTo(300);
+    }
+
+    @Test
+    void uploadLargerThanTheWholeWindowIsRejectedWithoutTouchingIt() {
+        AdmissionDecision decision = quotaService.admit(USER, MAX_BYTES + 1);
+
+        assertThat(decision.allowed()).isFalse();
+        assertThat(decision.reason()).isEqualTo(QuotaService.REASON_BYTES);
+        assertThat(decision.retryAfterSeconds()).isEqualTo(WINDOW_SECONDS);
+        verify(windowRepository, never()).reserve(anyString(), anyLong(), anyLong(), anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void rejectsWhenTooManyJobsAreInFlight() {
+        pendingWork(3, 10);
+
+        AdmissionDecision decision = quotaService.admit(USER, 10);
+
+        assertThat(decision.allowed()).isFalse();
+        assertThat(decision.reason()).isEqualTo(QuotaService.REASON_IN_FLIGHT);
+        assertThat(decision.retryAfterSeconds()).isEqualTo(5);
+        assertThat(rejected(QuotaService.REASON_IN_FLIGHT)).isEqualTo(1);
+        assertThat(windows).isEmpty();
+    }
+
+    @Test
+    void rejectsWhenPendingPixelWorkIsAtTheLimit() {
+        pendingWork(1, 1_000_000);
+
+        AdmissionDecision decision = quotaService.admit(USER, 10);
+
+        assertThat(decision.allowed()).isFalse();
+        assertThat(decision.reason()).isEqualTo(QuotaService.REASON_PIXELS);
+        assertThat(rejected(QuotaService.REASON_PIXELS)).isEqualTo(1);
+    }
+
+    @Test
+    void reusesPendingWorkWithinTheCacheIntervalAndCountsAdmittedUploads() {
+        ReflectionTestUtils.setField(quotaService, "pendingCacheMs", 60_000L);
+        pendingWork(1, 10);
+
+        assertThat(quotaService.admit(USER, 10).allowed()).isTrue();
+        assertThat(quotaService.admit(USER, 10).allowed()).isTrue();
+        // The two uploads admitted here bring the cached count to the limit before any of their rows is read
+        AdmissionDecision decision = quotaService.admit(USER, 10);
+
+        assertThat(decision.allowed()).isFalse();
+        assertThat(decision.reason()).isEqualTo(QuotaService.REASON_IN_FLIGHT);
+        verify(imageRepository, times(1)).sumPendingWork(eq(USER), any(), any());
+    }
+
+    @Test
+    void unknownContentLengthReservesNothing() {
+        assertThat(quotaService.admit(USER, -1).allowed()).isTrue();
+        assertThat(windows.get(USER)[0]).isZero();
+    }
+
+    @Test
+    void disabledQuotaAdmitsEverythingWithoutReadingState() {
+        ReflectionTestUtils.setField(quotaService, "enabled", false);
+
+        assertThat(quotaService.admit(USER, MAX_BYTES * 10).allowed()).isTrue();
+        verify(imageRepository, never()).sumPendingWork(eq(USER), any(), any());
+    }
+
+    private void pendingWork(long jobs, long pixels) {
+        when(imageRepository.sumPendingWork(eq(USER), any(), any())).thenReturn(new PendingWorkView() {
+            @Override
+            public long getJobs() {
+                return jobs;
+            }
+
+            @Override
+            public long getPixels() {
+                return pixels;
+            }
+        });
+    }
+
+    private double rejected(String reason) {
+        return registry.get("imagecloud.admission.rejected.total").tag("reason", reason).counter().count();
+    }
+}
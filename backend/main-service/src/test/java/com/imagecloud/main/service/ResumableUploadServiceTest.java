@@ -0,0 +1,238 @@
+package com.imagecloud.main.service;
+
+import com.imagecloud.common.util.ContentHash;
+import com.imagecloud.main.dto.ImageUploadResponse;
+import com.imagecloud.main.dto.UploadSessionResponse;
+import com.imagecloud.main.metrics.ImageMetrics;
+import com.imagecloud.main.model.UploadSession;
+import com.imagecloud.main.repository.UploadSessionRepository;
+import com.imagecloud.main.storage.UploadStagingStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResumableUploadServiceTest {
+
+    private static final String USER = "42";
+    private static final int MAX_CHUNK = 100;
+    private static final long STAGING_OID = 7;
+
+    private final UploadSessionRepository sessionRepository = mock(UploadSessionRepository.class);
+    private final UploadStagingStore stagingStore = mock(UploadStagingStore.class);
+    private final ImageService imageService = mock(ImageService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // Stand-ins for the upload_sessions table and the staging large object
+    private final Map<String, UploadSession> sessions = new HashMap<>();
+    private final ByteArrayOutputStream staged = new ByteArrayOutputStream();
+
+    private ResumableUploadService uploadService;
+
+    @BeforeEach
+    void setUp() {
+        uploadService = new ResumableUploadService(sessionRepository, stagingStore, imageService,
+                new ImageMetrics(registry));
+        ReflectionTestUtils.setField(uploadService, "maxBytes", 1000L);
+        ReflectionTestUtils.setField(uploadService, "maxChunkBytes", MAX_CHUNK);
+        ReflectionTestUtils.setField(uploadService, "expiryHours", 24L);
+
+        when(sessionRepository.save(any())).thenAnswer(call -> {
+            UploadSession session = call.getArgument(0);
+            sessions.put(session.getId(), session);
+            return session;
+        });
+        when(sessionRepository.findByIdAndUserId(anyString(), anyString())).thenAnswer(call -> Optional
+                .ofNullable(sessions.get(call.<String>getArgument(0)))
+                .filter(session -> session.getUserId().equals(call.getArgument(1))));
+        when(sessionRepository.claimForCompletion(anyString())).thenReturn(1);
+        when(sessionRepository.claimForAbort(anyString())).thenReturn(1);
+        when(stagingStore.create()).thenReturn(STAGING_OID);
+        when(stagingStore.append(anyString(), eq(STAGING_OID), anyLong(), any(), any())).thenAnswer(call -> {
+            byte[] data = call.getArgument(3);
+            staged.write(data);
+            return call.<Long>getArgument(2) + data.length;
+        });
+        when(stagingStore.read(eq(STAGING_OID), anyInt())).thenAnswer(call -> staged.toByteArray());
+    }
+
+    @Test
+    void chunksAdvanceTheOffsetByTheirSize() throws IOException {
+        String uploadId = create(250, null);
+
+        assertThat(append(uploadId, 0, bytes(100, 1)).getOffset()).isEqualTo(100);
+        assertThat(append(uploadId, 100, bytes(100, 2)).getOffset()).isEqualTo(200);
+        UploadSessionResponse last = append(uploadId, 200, bytes(50, 3));
+
+        assertThat(last.getOffset()).isEqualTo(250);
+        assertThat(registry.get("imagecloud.upload.resumable.chunk.bytes").counter().count()).isEqualTo(250);
+    }
+
+    @Test
+    void rejectsAChunkAtAnyOffsetOtherThanTheReceivedBytes() throws IOException {
+        String uploadId = create(250, null);
+        append(uploadId, 0, bytes(100, 1));
+
+        // A retry of the first chunk, and a chunk sent ahead of a missing one
+        assertThatThrownBy(() -> append(uploadId, 0, bytes(100, 1))).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> append(uploadId, 200, bytes(50, 3))).isInstanceOf(IllegalStateException.class);
+
+        assertThat(uploadService.status(uploadId, USER).getOffset()).isEqualTo(100);
+        assertThat(registry.get("imagecloud.upload.resumable.chunk.conflicts.total").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void rejectsChunksOverTheChunkLimitOrPastTheEndOfTheFile() throws IOException {
+        String uploadId = create(150, null);
+
+        // Over the chunk limit, whether or not the length was declared
+        assertThatThrownBy(() -> uploadService.appendChunk(uploadId, USER, 0, stream(bytes(101, 1)), 101, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> uploadService.appendChunk(uploadId, USER, 0, stream(bytes(101, 1)), -1, null))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        append(uploadId, 0, bytes(100, 1));
+        // Only 50 bytes of the file remain
+        assertThatThrownBy(() -> append(uploadId, 100, bytes(60, 2)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("50 bytes remaining");
+        assertThatThrownBy(() -> append(uploadId, 100, new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Chunk is empty");
+
+        assertThat(uploadService.status(uploadId, USER).getOffset()).isEqualTo(100);
+        assertThat(staged.size()).isEqualTo(100);
+    }
+
+    @Test
+    void storesNothingWhenTheChunkChecksumDoesNotMatch() throws IOException {
+        String uploadId = create(100, null);
+        byte[] chunk = bytes(100, 1);
+
+        assertThatThrownBy(() -> uploadService.appendChunk(uploadId, USER, 0, stream(chunk), chunk.length,
+                ContentHash.sha256Hex(bytes(100, 2))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Chunk checksum mismatch");
+        assertThat(staged.size()).isZero();
+
+        // Hex case does not matter
+        UploadSessionResponse stored = uploadService.appendChunk(uploadId, USER, 0, stream(chunk), chunk.length,
+                ContentHash.sha256Hex(chunk).toUpperCase());
+        assertThat(stored.getOffset()).isEqualTo(100);
+    }
+
+    @Test
+    void leavesTheOffsetWhenAnotherWriterGotThereFirst() throws IOException {
+        String uploadId = create(100, null);
+        when(stagingStore.append(anyString(), eq(STAGING_OID), eq(0L), any(), any()))
+                .thenThrow(new IllegalStateException("Upload offset changed concurrently"));
+
+        assertThatThrownBy(() -> append(uploadId, 0, bytes(100, 1))).isInstanceOf(IllegalStateException.class);
+
+        assertThat(uploadService.status(uploadId, USER).getOffset()).isZero();
+        assertThat(registry.get("imagecloud.upload.resumable.chunk.conflicts.total").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void completionHandsOverTheWholeFileHashBuiltFromTheChunks() throws IOException {
+        byte[] first = bytes(100, 1);
+        byte[] second = bytes(30, 2);
+        byte[] file = concat(first, second);
+        String uploadId = create(file.length, ContentHash.sha256Hex(file));
+        append(uploadId, 0, first);
+        append(uploadId, 100, second);
+        when(imageService.uploadAndConvert(anyString(), any(), any(), anyString(), anyString()))
+                .thenReturn(new ImageUploadResponse(1L, "PENDING", "Image uploaded"));
+
+        uploadService.complete(uploadId, USER);
+
+        verify(imageService).uploadAndConvert(eq("photo.png"), eq(file), eq(ContentHash.sha256Hex(file)),
+                eq("jpg"), eq(USER));
+    }
+
+    @Test
+    void completionReleasesTheClaimOnlyIfTheImageWasNotStored() throws IOException {
+        String stored = create(10, null);
+        append(stored, 0, bytes(10, 1));
+        when(imageService.uploadAndConvert(anyString(), any(), any(), anyString(), anyString()))
+                .thenReturn(new ImageUploadResponse(1L, "FAILED", "Conversion could not be started"));
+
+        assertThat(uploadService.complete(stored, USER).getStatus()).isEqualTo("FAILED");
+        verify(sessionRepository, never()).releaseCompletion(stored);
+        verify(stagingStore).delete(stored, STAGING_OID);
+
+        staged.reset();
+        String notStored = create(10, null);
+        append(notStored, 0, bytes(10, 2));
+        when(imageService.uploadAndConvert(anyString(), any(), any(), anyString(), anyString()))
+                .thenThrow(new IllegalStateException("database unavailable"));
+
+        assertThatThrownBy(() -> uploadService.complete(notStored, USER)).isInstanceOf(IllegalStateException.class);
+        verify(sessionRepository).releaseCompletion(notStored);
+        verify(stagingStore, never()).delete(notStored, STAGING_OID);
+    }
+
+    @Test
+    void abortDuringCompletionLeavesTheStagedBytesAlone() {
+        String uploadId = create(100, null);
+        when(sessionRepository.claimForAbort(uploadId)).thenReturn(0);
+
+        assertThatThrownBy(() -> uploadService.abort(uploadId, USER)).isInstanceOf(IllegalStateException.class);
+        verify(stagingStore, never()).delete(anyString(), anyLong());
+    }
+
+    @Test
+    void sessionsBelongToTheirUser() throws IOException {
+        String uploadId = create(100, null);
+
+        assertThatThrownBy(() -> uploadService.appendChunk(uploadId, "99", 0, stream(bytes(10, 1)), 10, null))
+                .isInstanceOf(NoSuchElementException.class);
+    }
+
+    private String create(long length, String sha256) {
+        return uploadService.create("photo.png", "jpg", length, sha256, USER).getUploadId();
+    }
+
+    private UploadSessionResponse append(String uploadId, long offset, byte[] chunk) throws IOException {
+        return uploadService.appendChunk(uploadId, USER, offset, stream(chunk), chunk.length, null);
+    }
+
+    private static InputStream stream(byte[] data) {
+        return new ByteArrayInputStream(data);
+    }
+
+    private static byte[] bytes(int length, int fill) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) fill);
+        return data;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+}
@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react'
+import React, { useState, useEffect, useRef } from 'react'
 import { useNavigate } from 'react-router-dom'
 import { useAuth } from '../context/AuthContext'
 import imageService from '../services/imageService'
@@ -38,6 +38,9 @@ const Dashboard = () => {
   const [history, setHistory] = useState([])
   const [error, setError] = useState('')
   const [showHistory, setShowHistory] = useState(false)
+  const [previewUrl, setPreviewUrl] = useState(null)
+  // Read by the polling closure, which is created once per conversion and would see a stale previewUrl
+  const previewFor = useRef(null)
 
   const supportedFormats = ['jpg', 'jpeg', 'png', 'gif', 'bmp', 'webp']
 
@@ -59,6 +62,12 @@ const Dashboard = () => {
     }
   }, [currentConversion])
 
+  useEffect(() => {
+    return () => {
+      if (previewUrl) window.URL.revokeObjectURL(previewUrl)
+    }
+  }, [previewUrl])
+
   const loadHistory = async () => {
     try {
       const data = await imageService.getHistory(user.userId)
@@ -71,9 +80,22 @@ const Dashboard = () => {
   const checkConversionStatus = async (imageId) => {
     try {
       const status = await imageService.getImageStatus(imageId, user.userId)
-      if (status.status === 'COMPLETED' || status.status === 'FAILED') {
+      if (status.status === 'COMPLETED' || status.status === 'FAILED' || status.status === 'EXPIRED') {
+        previewFor.current = null
         setCurrentConversion(status)
+        setPreviewUrl(null)
         loadHistory()
+      } else if (previewFor.current !== imageId && (status.previewAt || status.coalesced)) {
+        // A low-resolution preview is shown until the full conversion is ready; fetched once per image
+        previewFor.current = imageId
+        const blob = await imageService.getPreview(imageId, user.userId).catch(() => null)
+        if (previewFor.current !== imageId) return
+        if (blob) {
+          setPreviewUrl(window.URL.createObjectURL(blob))
+        } else {
+          // Not there yet (e.g. the shared conversion has no preview so far); try again on the next poll
+          previewFor.current = null
+        }
       }
     } catch (err) {
       console.error('Error checking status:', err)
@@ -101,6 +123,8 @@ const Dashboard = () => {
     
     try {
       const response = await imageService.uploadImage(selectedFile, targetFormat, user.userId)
+      previewFor.current = null
+      setPreviewUrl(null)
       setCurrentConversion({
         imageId: response.imageId,
         status: response.status,
@@ -135,6 +159,7 @@ const Dashboard = () => {
     switch (status) {
       case 'COMPLETED': return 'success'
       case 'FAILED': return 'error'
+      case 'EXPIRED': return 'error'
       case 'PROCESSING': return 'warning'
       case 'PENDING': return 'info'
       default: return 'default'
@@ -266,6 +291,19 @@ const Dashboard = () => {
                         </Box>
                       )}
 
+                      {currentConversion.status === 'PROCESSING' && previewUrl && (
+                        <Box sx={{ mt: 2 }}>
+                          <img
+                            src={previewUrl}
+                            alt={`Preview of ${currentConversion.originalFileName}`}
+                            style={{ maxWidth: '100%', display: 'block' }}
+                          />
+                          <Typography variant="caption" color="text.secondary">
+                            Preview — full resolution on its way
+                          </Typography>
+                        </Box>
+                      )}
+
                       {currentConversion.status === 'COMPLETED' && (
                         <Button
                           variant="contained"
@@ -286,6 +324,12 @@ const Dashboard = () => {
                           Conversion failed: {currentConversion.errorMessage}
                         </Alert>
                       )}
+
+                      {currentConversion.status === 'EXPIRED' && (
+                        <Alert severity="warning" sx={{ mt: 2 }}>
+                          Conversion was not started in time because the service is busy. Please try again.
+                        </Alert>
+                      )}
                     </CardContent>
                   </Card>
                 </Paper>
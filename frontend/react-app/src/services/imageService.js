@@ -35,6 +35,16 @@ const imageService = {
     return response.data
   },
 
+  async getPreview(imageId, userId) {
+    const response = await axios.get(`${API_URL}/${imageId}/preview`, {
+      headers: {
+        'X-User-Id': userId
+      },
+      responseType: 'blob'
+    })
+    return response.data
+  },
+
   async downloadImage(imageId, userId) {
     const response = await axios.get(`${API_URL}/${imageId}/download`, {
       headers: {